@@ -1,6 +1,7 @@
 package com.nanoorm;
 
 import com.nanoorm.android.AndroidAssociationMap;
+import com.nanoorm.jdbc.JdbcAssociationMap;
 import com.nanoorm.mappings.AssociationMap;
 
 /**
@@ -22,6 +23,9 @@ public class AssociationMapFactory {
 		case ANDROID:
 			return new AndroidAssociationMap();
 
+		case JDBC:
+			return new JdbcAssociationMap();
+
 		default:
 			throw new Exception("Banco de dados não suportado.");
 		}
@@ -0,0 +1,24 @@
+package com.nanoorm;
+
+/**
+ * Interface AsyncCallback
+ * Recebe o resultado de uma operação executada por um AsyncManager. Os métodos são
+ * chamados pela thread que executou a operação, ou pela thread que registrou o
+ * callback caso a operação já tenha sido finalizada.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public interface AsyncCallback<V> {
+
+	/**
+	 * Chamado quando a operação é finalizada com sucesso.
+	 * @param        result Resultado da operação, ou null para operações sem retorno.
+	 */
+	public void onSuccess (V result);
+
+	/**
+	 * Chamado quando a operação lança uma exceção ou é cancelada.
+	 * @param        error Exceção lançada pela operação, ou CancellationException.
+	 */
+	public void onFailure (Throwable error);
+
+}
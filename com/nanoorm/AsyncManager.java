@@ -0,0 +1,135 @@
+package com.nanoorm;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Interface AsyncManager
+ * Versão assíncrona de Manager, obtida através de ManagerFactory.buildAsyncManager.
+ * Cada operação é executada em segundo plano e retorna imediatamente um AsyncResult,
+ * que pode ser aguardado com get ou receber callbacks.
+ * As consultas são executadas concorrentemente pelo executor do AsyncManager,
+ * enquanto as gravações são executadas uma a uma, na ordem em que foram solicitadas,
+ * por uma única thread de escrita, assim como a conexão de escrita da fonte de dados.
+ * Uma consulta solicitada após uma gravação não aguarda a sua conclusão; para
+ * obter o resultado da gravação, a consulta deve ser solicitada no callback da
+ * gravação ou após o seu get.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public interface AsyncManager {
+
+	/**
+	 * Persiste a entidade informada na fonte de dados.
+	 * @param        entity Entidade a ser persistida.
+	 */
+	public <T> AsyncResult<Void> saveAsync (T entity);
+
+	/**
+	 * Carrega a entidade da classe e id informados.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public <T> AsyncResult<T> loadAsync (Class<T> entityClass, Serializable id);
+
+	/**
+	 * Remove a entidade informada da fonte de dados.
+	 * @param        entity Entidade a ser removida.
+	 */
+	public <T> AsyncResult<Void> deleteAsync (T entity);
+
+	/**
+	 * Atualiza a entidade informada na fonte de dados.
+	 * @param        entity Entidade a ser atualizada.
+	 */
+	public <T> AsyncResult<Void> updateAsync (T entity);
+
+	/**
+	 * Persiste as entidades informadas em lote.
+	 * @param        entities Entidades a serem persistidas.
+	 */
+	public <T> AsyncResult<Void> saveAllAsync (Collection<T> entities);
+
+	/**
+	 * Atualiza as entidades informadas em lote.
+	 * @param        entities Entidades a serem atualizadas.
+	 */
+	public <T> AsyncResult<Void> updateAllAsync (Collection<T> entities);
+
+	/**
+	 * Remove as entidades informadas em lote.
+	 * @param        entities Entidades a serem removidas.
+	 */
+	public <T> AsyncResult<Void> deleteAllAsync (Collection<T> entities);
+
+	/**
+	 * Lista todas as entidades da classe informada.
+	 * @param        entityClass Classe das entidades.
+	 */
+	public <T> AsyncResult<List<T>> listAsync (Class<T> entityClass);
+
+	/**
+	 * Lista uma página de entidades ordenadas pelo id, a partir do id informado.
+	 * @param        entityClass Classe das entidades.
+	 * @param        pageSize Quantidade máxima de entidades da página.
+	 * @param        afterId Id da última entidade da página anterior, ou null para a primeira página.
+	 */
+	public <T> AsyncResult<List<T>> listAsync (Class<T> entityClass, int pageSize, Serializable afterId);
+
+	/**
+	 * Lista uma página de entidades a partir da posição informada.
+	 * @param        entityClass Classe das entidades.
+	 * @param        firstResult Posição da primeira entidade da página.
+	 * @param        maxResults Quantidade máxima de entidades da página.
+	 */
+	public <T> AsyncResult<List<T>> listPageAsync (Class<T> entityClass, int firstResult, int maxResults);
+
+	/**
+	 * Carrega em lote as coleções informadas das entidades da lista.
+	 * @param        entities Entidades da mesma classe.
+	 * @param        properties Nomes dos atributos @OneToMany ou @ManyToMany.
+	 */
+	public <T> AsyncResult<List<T>> fetchAsync (List<T> entities, String... properties);
+
+	/**
+	 * Conta as entidades da classe informada.
+	 * @param        entityClass Classe das entidades.
+	 */
+	public AsyncResult<Long> countAsync (Class<?> entityClass);
+
+	/**
+	 * Indica se existe uma entidade da classe e id informados.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public AsyncResult<Boolean> existsAsync (Class<?> entityClass, Serializable id);
+
+	/**
+	 * Executa uma consulta qualquer, como uma Criteria, concorrentemente com as
+	 * demais consultas.
+	 * @param        query Consulta a ser executada através de getManager.
+	 */
+	public <V> AsyncResult<V> submitRead (Callable<V> query);
+
+	/**
+	 * Executa uma unidade de trabalho na thread de escrita, após as gravações já
+	 * solicitadas. A unidade pode iniciar e finalizar transações através de getManager,
+	 * que permanecem restritas a ela.
+	 * @param        work Unidade de trabalho a ser executada através de getManager.
+	 */
+	public <V> AsyncResult<V> submitWrite (Callable<V> work);
+
+	/**
+	 * Obtém o Manager utilizado pelas operações.
+	 * @return       com.nanoorm.Manager
+	 */
+	public Manager getManager ();
+
+	/**
+	 * Finaliza as threads do AsyncManager após a execução das operações já
+	 * solicitadas. O executor informado na construção, quando houver, não é finalizado.
+	 */
+	public void shutdown ();
+
+}
@@ -0,0 +1,77 @@
+package com.nanoorm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Class AsyncResult
+ * Resultado de uma operação executada por um AsyncManager. Além de ser um Future,
+ * permite registrar callbacks que são chamados quando a operação é finalizada,
+ * evitando que a thread que solicitou a operação precise aguardá-la em get.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class AsyncResult<V> extends FutureTask<V> {
+
+	private List<AsyncCallback<? super V>> callbacks = new ArrayList<AsyncCallback<? super V>>();
+	private boolean finished;
+
+	/**
+	 * Constrói o resultado da operação informada.
+	 * @param        operation Operação a ser executada.
+	 */
+	public AsyncResult(Callable<V> operation) {
+		super(operation);
+	}
+
+	/**
+	 * Registra um callback a ser chamado quando a operação for finalizada. Caso a
+	 * operação já tenha sido finalizada o callback é chamado imediatamente.
+	 * @return       AsyncResult<V> Este resultado, para encadear chamadas.
+	 * @param        callback Callback a ser registrado.
+	 */
+	public AsyncResult<V> addCallback(AsyncCallback<? super V> callback) {
+		synchronized (this) {
+			if (!finished) {
+				callbacks.add(callback);
+				return this;
+			}
+		}
+		notify(callback);
+		return this;
+	}
+
+	@Override
+	protected void done() {
+		List<AsyncCallback<? super V>> pending;
+		synchronized (this) {
+			finished = true;
+			pending = callbacks;
+			callbacks = null;
+		}
+		for (AsyncCallback<? super V> callback : pending)
+			notify(callback);
+	}
+
+	private void notify(AsyncCallback<? super V> callback) {
+		V result;
+		try {
+			result = get();
+		} catch (CancellationException e) {
+			callback.onFailure(e);
+			return;
+		} catch (ExecutionException e) {
+			callback.onFailure(e.getCause());
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			callback.onFailure(e);
+			return;
+		}
+		callback.onSuccess(result);
+	}
+
+}
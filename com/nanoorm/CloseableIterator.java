@@ -0,0 +1,22 @@
+package com.nanoorm;
+
+import java.util.Iterator;
+
+/**
+ * Interface CloseableIterator
+ * Iterator sobre o resultado de uma consulta que obtém as entidades uma a uma do
+ * cursor, sem carregar todas as linhas em memória. Os recursos do cursor e a
+ * conexão utilizada são liberados automaticamente quando a última entidade é
+ * obtida; caso a iteração seja interrompida antes disso, close deve ser chamado,
+ * preferencialmente em um bloco finally.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public interface CloseableIterator<T> extends Iterator<T> {
+
+	/**
+	 * Fecha o cursor e libera a conexão utilizada pela iteração. Chamadas
+	 * posteriores não têm efeito.
+	 */
+	public void close ();
+
+}
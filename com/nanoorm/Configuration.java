@@ -8,6 +8,11 @@ import java.util.List;
 import com.nanoorm.annotations.Column;
 import com.nanoorm.annotations.Entity;
 import com.nanoorm.annotations.Id;
+import com.nanoorm.cache.EntityCache;
+import com.nanoorm.cache.QueryCache;
+import com.nanoorm.mappings.ClassMapRegistry;
+import com.nanoorm.types.TypeCodec;
+import com.nanoorm.types.TypeCodecRegistry;
 
 /**
  * Class Configuration
@@ -22,6 +27,18 @@ public class Configuration {
 	private String userName;
 	private String password;
 	private List<Class<?>> classes = new ArrayList<Class<?>>();
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private TypeCodecRegistry typeCodecRegistry = new TypeCodecRegistry();
+	private long idleTimeout;
+	private int readConnections;
+	private EntityCache entityCache = new EntityCache();
+	private QueryCache queryCache = new QueryCache();
+	private ClassMapRegistry classMapRegistry = new ClassMapRegistry();
+
+	/**
+	 * Quantidade padrão de entidades gravadas por transação nas operações em lote.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
 
 	/**
 	 * Get the value of dataSourceType
@@ -63,6 +80,129 @@ public class Configuration {
 		return classes;
 	}
 
+	/**
+	 * Get the value of batchSize
+	 * @return the value of batchSize
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Define a quantidade de entidades gravadas por transação nas operações
+	 * em lote (saveAll, updateAll e deleteAll).
+	 * @param        batchSize Quantidade de entidades por transação, deve ser maior que zero.
+	 */
+	public Configuration setBatchSize(int batchSize) {
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("O tamanho do lote deve ser maior que zero.");
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * Get the value of idleTimeout
+	 * @return the value of idleTimeout
+	 */
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Define o tempo, em milissegundos, que a conexão permanece aberta após a
+	 * última operação ou sessão que a utilizava ser finalizada. O valor padrão
+	 * zero fecha a conexão imediatamente.
+	 * @param        idleTimeout Tempo de inatividade em milissegundos.
+	 */
+	public Configuration setIdleTimeout(long idleTimeout) {
+		if (idleTimeout < 0)
+			throw new IllegalArgumentException("O tempo de inatividade não pode ser negativo.");
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	/**
+	 * Get the value of readConnections
+	 * @return the value of readConnections
+	 */
+	public int getReadConnections() {
+		return readConnections;
+	}
+
+	/**
+	 * Define a quantidade de conexões somente leitura utilizadas pelas consultas.
+	 * Quando maior que zero, o banco de dados passa a utilizar write-ahead logging
+	 * (WAL) e as consultas das diversas threads são distribuídas entre as conexões
+	 * de leitura, enquanto todas as gravações são serializadas em uma única conexão
+	 * de escrita (ver PooledDbConnection). O valor padrão zero utiliza uma única
+	 * conexão para todas as operações. Bancos de dados em memória que não são
+	 * compartilhados entre conexões não podem utilizar conexões de leitura.
+	 * @param        readConnections Quantidade de conexões de leitura.
+	 */
+	public Configuration setReadConnections(int readConnections) {
+		if (readConnections < 0)
+			throw new IllegalArgumentException("A quantidade de conexões de leitura não pode ser negativa.");
+		this.readConnections = readConnections;
+		return this;
+	}
+
+	/**
+	 * Obtém o cache de segundo nível das entidades anotadas com @Cacheable, que é
+	 * compartilhado por todos os Managers construídos a partir desta configuração.
+	 * @return the value of entityCache
+	 */
+	public EntityCache getEntityCache() {
+		return entityCache;
+	}
+
+	/**
+	 * Obtém o cache de resultados de consultas, compartilhado por todos os Managers
+	 * construídos a partir desta configuração.
+	 * @return the value of queryCache
+	 */
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	/**
+	 * Obtém o registro de ClassMaps, compartilhado por todos os Managers construídos
+	 * a partir desta configuração.
+	 * @return the value of classMapRegistry
+	 */
+	public ClassMapRegistry getClassMapRegistry() {
+		return classMapRegistry;
+	}
+
+	/**
+	 * Define os limites do cache de resultados de consultas. Os valores padrão são
+	 * QueryCache.DEFAULT_MAX_ENTRIES e QueryCache.DEFAULT_MAX_BYTES.
+	 * @param        maxEntries Quantidade máxima de resultados mantidos em cache.
+	 * @param        maxBytes Tamanho aproximado máximo, em bytes, dos resultados em cache.
+	 */
+	public Configuration setQueryCacheLimits(int maxEntries, long maxBytes) {
+		queryCache.setLimits(maxEntries, maxBytes);
+		return this;
+	}
+
+	/**
+	 * Get the value of typeCodecRegistry
+	 * @return the value of typeCodecRegistry
+	 */
+	public TypeCodecRegistry getTypeCodecRegistry() {
+		return typeCodecRegistry;
+	}
+
+	/**
+	 * Registra um codec para o tipo informado, permitindo que atributos desse tipo
+	 * sejam persistidos ou substituindo a conversão padrão de um tipo nativo.
+	 * @param        type Tipo Java tratado pelo codec.
+	 * @param        codec Codec a ser utilizado para o tipo.
+	 */
+	public Configuration registerTypeCodec(Class<?> type, TypeCodec codec) {
+		typeCodecRegistry.register(type, codec);
+		return this;
+	}
+
 	/**
 	 * Adiciona os parâmetros necessários para a conexão com o banco de dados.
 	 * @param        dataSourceType Tipo de base de dados desejado para a conexão.
@@ -0,0 +1,305 @@
+package com.nanoorm;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Interface Criteria
+ * Consulta sobre as entidades de uma classe, obtida através de
+ * Manager.createCriteria. As restrições são referenciadas pelo nome dos atributos
+ * da classe, combinadas com AND e traduzidas para uma instrução sql parametrizada,
+ * de forma que a filtragem, a ordenação e a paginação sejam realizadas pelo banco
+ * de dados. A instrução é gerada uma única vez para cada formato de consulta
+ * (atributos, operadores e ordenação utilizados) e reutilizada nas execuções
+ * seguintes, variando apenas os valores dos parâmetros.
+ * Atributos @ManyToOne e @OneToOne podem ser comparados tanto com a entidade
+ * referenciada quanto com o seu id.
+ * Com setProjection, listTuples, listValues e listAs leem apenas as colunas
+ * selecionadas para tuplas, valores simples ou objetos de transferência (DTOs),
+ * utilizando os mesmos codecs de tipo das entidades.
+ * As funções de agregação (count, exists, sum, min, max, avg e groupBy) são
+ * calculadas pelo banco de dados, sem instanciar as entidades, assim como as
+ * operações em massa delete e update.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public interface Criteria<T> {
+
+	/**
+	 * Funções de agregação disponíveis em groupBy.
+	 */
+	public enum Aggregate {
+		/** Quantidade de linhas do grupo. */
+		COUNT,
+		/** Soma dos valores do atributo, Long para atributos inteiros e Double para os demais. */
+		SUM,
+		/** Menor valor do atributo, no tipo do atributo. */
+		MIN,
+		/** Maior valor do atributo, no tipo do atributo. */
+		MAX,
+		/** Média dos valores do atributo, como Double. */
+		AVG
+	}
+
+	/**
+	 * Restringe o atributo ao valor informado. Um valor null equivale a isNull.
+	 * @param        property Nome do atributo.
+	 * @param        value Valor a ser comparado.
+	 */
+	public Criteria<T> eq (String property, Object value);
+
+	/**
+	 * Restringe o atributo aos valores diferentes do informado. Um valor null
+	 * equivale a isNotNull.
+	 * @param        property Nome do atributo.
+	 * @param        value Valor a ser comparado.
+	 */
+	public Criteria<T> ne (String property, Object value);
+
+	/**
+	 * Restringe o atributo aos valores maiores que o informado.
+	 * @param        property Nome do atributo.
+	 * @param        value Valor a ser comparado.
+	 */
+	public Criteria<T> gt (String property, Object value);
+
+	/**
+	 * Restringe o atributo aos valores maiores ou iguais ao informado.
+	 * @param        property Nome do atributo.
+	 * @param        value Valor a ser comparado.
+	 */
+	public Criteria<T> ge (String property, Object value);
+
+	/**
+	 * Restringe o atributo aos valores menores que o informado.
+	 * @param        property Nome do atributo.
+	 * @param        value Valor a ser comparado.
+	 */
+	public Criteria<T> lt (String property, Object value);
+
+	/**
+	 * Restringe o atributo aos valores menores ou iguais ao informado.
+	 * @param        property Nome do atributo.
+	 * @param        value Valor a ser comparado.
+	 */
+	public Criteria<T> le (String property, Object value);
+
+	/**
+	 * Restringe o atributo aos valores entre low e high, inclusive.
+	 * @param        property Nome do atributo.
+	 * @param        low Menor valor aceito.
+	 * @param        high Maior valor aceito.
+	 */
+	public Criteria<T> between (String property, Object low, Object high);
+
+	/**
+	 * Restringe o atributo aos valores informados. Uma coleção vazia não retorna
+	 * nenhuma entidade.
+	 * @param        property Nome do atributo.
+	 * @param        values Valores aceitos.
+	 */
+	public Criteria<T> in (String property, Collection<?> values);
+
+	/**
+	 * Restringe o atributo aos valores informados.
+	 * @param        property Nome do atributo.
+	 * @param        values Valores aceitos.
+	 */
+	public Criteria<T> in (String property, Object... values);
+
+	/**
+	 * Restringe o atributo aos textos que atendem ao padrão informado, utilizando
+	 * os curingas % e _ do operador LIKE.
+	 * @param        property Nome do atributo.
+	 * @param        pattern Padrão a ser comparado.
+	 */
+	public Criteria<T> like (String property, String pattern);
+
+	/**
+	 * Restringe o atributo aos valores NULL.
+	 * @param        property Nome do atributo.
+	 */
+	public Criteria<T> isNull (String property);
+
+	/**
+	 * Restringe o atributo aos valores diferentes de NULL.
+	 * @param        property Nome do atributo.
+	 */
+	public Criteria<T> isNotNull (String property);
+
+	/**
+	 * Ordena o resultado pelo atributo informado em ordem crescente. Chamadas
+	 * sucessivas definem os critérios de desempate.
+	 * @param        property Nome do atributo.
+	 */
+	public Criteria<T> orderBy (String property);
+
+	/**
+	 * Ordena o resultado pelo atributo informado em ordem decrescente.
+	 * @param        property Nome do atributo.
+	 */
+	public Criteria<T> orderByDesc (String property);
+
+	/**
+	 * Define a quantidade de entidades a serem ignoradas no início do resultado.
+	 * @param        firstResult Quantidade de entidades ignoradas.
+	 */
+	public Criteria<T> setFirstResult (int firstResult);
+
+	/**
+	 * Define a quantidade máxima de entidades retornadas.
+	 * @param        maxResults Quantidade máxima de entidades.
+	 */
+	public Criteria<T> setMaxResults (int maxResults);
+
+	/**
+	 * Restringe as colunas selecionadas aos atributos informados. As entidades
+	 * retornadas terão apenas esses atributos preenchidos.
+	 * @param        properties Nomes dos atributos a serem selecionados.
+	 */
+	public Criteria<T> setProjection (String... properties);
+
+	/**
+	 * Define se o resultado da consulta deve ser obtido do e armazenado no cache de
+	 * consultas, sendo reutilizado até que a tabela da entidade seja alterada. As
+	 * consultas com projeção não utilizam o cache.
+	 * @param        cacheable Indica se o cache de consultas deve ser utilizado.
+	 */
+	public Criteria<T> setCacheable (boolean cacheable);
+
+	/**
+	 * Define os atributos a serem carregados junto com as entidades retornadas por
+	 * list. Atributos @ManyToOne e @OneToOne (lado dono) são carregados na mesma
+	 * consulta através de LEFT JOIN; atributos @OneToMany e @ManyToMany são
+	 * carregados em lote, com uma consulta adicional por atributo.
+	 * @param        properties Nomes dos atributos a serem carregados.
+	 */
+	public Criteria<T> fetch (String... properties);
+
+	/**
+	 * Executa a consulta e retorna as entidades encontradas.
+	 * @return       List<T>
+	 */
+	public List<T> list ();
+
+	/**
+	 * Executa a consulta selecionando apenas os atributos informados em
+	 * setProjection e retorna uma tupla por linha, com os valores na ordem da
+	 * projeção, sem instanciar as entidades. Atributos @ManyToOne e @OneToOne
+	 * retornam o id da entidade referenciada.
+	 * @return       List<Object[]>
+	 * @throws IllegalStateException Quando a projeção não foi definida.
+	 */
+	public List<Object[]> listTuples ();
+
+	/**
+	 * Executa a consulta selecionando o único atributo informado em setProjection
+	 * e retorna os seus valores, sem instanciar as entidades.
+	 * @return       List<V>
+	 * @throws IllegalStateException Quando a projeção não possui exatamente um atributo.
+	 */
+	public <V> List<V> listValues ();
+
+	/**
+	 * Executa a consulta selecionando apenas os atributos informados em
+	 * setProjection e instancia um objeto da classe informada por linha, através
+	 * do construtor público cujos parâmetros correspondem, em quantidade e tipo,
+	 * aos atributos da projeção.
+	 * @return       List<D>
+	 * @param        resultClass Classe dos objetos retornados.
+	 * @throws IllegalStateException Quando a projeção não foi definida.
+	 * @throws IllegalArgumentException Quando a classe não possui um construtor compatível.
+	 */
+	public <D> List<D> listAs (Class<D> resultClass);
+
+	/**
+	 * Obtém a quantidade de entidades que atendem aos critérios.
+	 * @return       long
+	 */
+	public long count ();
+
+	/**
+	 * Indica se existe alguma entidade que atende aos critérios, lendo no máximo
+	 * uma linha.
+	 * @return       boolean
+	 */
+	public boolean exists ();
+
+	/**
+	 * Obtém a soma dos valores do atributo nas entidades que atendem aos critérios.
+	 * @return       Number Long para atributos inteiros, Double para os demais, ou
+	 * null caso nenhuma entidade atenda aos critérios.
+	 * @param        property Nome do atributo.
+	 */
+	public Number sum (String property);
+
+	/**
+	 * Obtém a média dos valores do atributo nas entidades que atendem aos critérios.
+	 * @return       Double A média, ou null caso nenhuma entidade atenda aos critérios.
+	 * @param        property Nome do atributo.
+	 */
+	public Double avg (String property);
+
+	/**
+	 * Obtém o menor valor do atributo nas entidades que atendem aos critérios.
+	 * @return       V O valor no tipo do atributo (o id para referências), ou null.
+	 * @param        property Nome do atributo.
+	 */
+	public <V> V min (String property);
+
+	/**
+	 * Obtém o maior valor do atributo nas entidades que atendem aos critérios.
+	 * @return       V O valor no tipo do atributo (o id para referências), ou null.
+	 * @param        property Nome do atributo.
+	 */
+	public <V> V max (String property);
+
+	/**
+	 * Obtém a quantidade de entidades que atendem aos critérios para cada valor do
+	 * atributo informado, em ordem crescente desse valor.
+	 * @return       Map<K, Long>
+	 * @param        groupProperty Nome do atributo de agrupamento.
+	 */
+	public <K> Map<K, Long> countBy (String groupProperty);
+
+	/**
+	 * Aplica a função de agregação ao atributo informado para cada valor do atributo
+	 * de agrupamento, em ordem crescente desse valor.
+	 * @return       Map<K, V>
+	 * @param        groupProperty Nome do atributo de agrupamento.
+	 * @param        function Função de agregação.
+	 * @param        property Nome do atributo agregado, ou null para COUNT.
+	 */
+	public <K, V> Map<K, V> groupBy (String groupProperty, Aggregate function, String property);
+
+	/**
+	 * Remove com uma única instrução todas as entidades que atendem aos critérios,
+	 * sem carregá-las. As entidades da classe são removidas do mapa de identidade
+	 * da sessão corrente e do cache de segundo nível, e os resultados do cache de
+	 * consultas que utilizam a tabela são invalidados.
+	 * @return       int Quantidade de linhas removidas.
+	 */
+	public int delete ();
+
+	/**
+	 * Atribui os valores informados aos atributos de todas as entidades que atendem
+	 * aos critérios, com uma única instrução e sem carregá-las. Os caches são
+	 * atualizados da mesma forma que em delete.
+	 * @return       int Quantidade de linhas alteradas.
+	 * @param        assignments Valores indexados pelo nome do atributo. Atributos
+	 * @ManyToOne e @OneToOne aceitam a entidade, uma Ref ou o id.
+	 * @throws IllegalArgumentException Quando nenhum atributo é informado ou é
+	 * informado o id.
+	 */
+	public int update (Map<String, ?> assignments);
+
+	/**
+	 * Executa a consulta e retorna a única entidade encontrada, ou null caso
+	 * nenhuma entidade atenda aos critérios.
+	 * @return       T
+	 * @throws IllegalStateException Quando mais de uma entidade é encontrada.
+	 */
+	public T uniqueResult ();
+
+}
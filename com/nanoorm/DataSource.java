@@ -1,9 +1,13 @@
 package com.nanoorm;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
+import com.nanoorm.cache.EntityCache;
+import com.nanoorm.cache.QueryCache;
 import com.nanoorm.mappings.ClassMap;
+import com.nanoorm.types.TypeCodecRegistry;
 
 /**
  * Interface DataSource
@@ -57,6 +61,78 @@ public interface DataSource {
 	 */
 	public <T> void update(T entity);
 
+	/**
+	 * Persiste as entidades informadas na fonte de dados. As entidades são agrupadas
+	 * por classe e gravadas com uma única instrução compilada por classe, em
+	 * transações de no máximo getBatchSize() entidades cada.
+	 * @param        entities Entidades a serem persistidas na fonte de dados.
+	 */
+	public <T> void saveAll(Collection<T> entities);
+
+	/**
+	 * Atualiza as entidades informadas, agrupando-as da mesma forma que saveAll.
+	 * @param        entities Entidades a serem atualizadas.
+	 */
+	public <T> void updateAll(Collection<T> entities);
+
+	/**
+	 * Remove as entidades informadas da fonte de dados, agrupando-as da mesma
+	 * forma que saveAll.
+	 * @param        entities Entidades a serem removidas da fonte de dados.
+	 */
+	public <T> void deleteAll(Collection<T> entities);
+
+	/**
+	 * Obtém a quantidade de entidades gravadas por transação nas operações em lote.
+	 */
+	public int getBatchSize();
+
+	/**
+	 * Define a quantidade de entidades gravadas por transação nas operações em lote.
+	 * @param        batchSize Quantidade de entidades por transação, deve ser maior que zero.
+	 */
+	public void setBatchSize(int batchSize);
+
+	/**
+	 * Obtém o registro de codecs utilizado para converter os atributos das
+	 * entidades desta fonte de dados.
+	 */
+	public TypeCodecRegistry getTypeCodecRegistry();
+
+	/**
+	 * Obtém o mapa de identidade associado à thread corrente pela Session aberta
+	 * nesta thread, ou null caso não exista uma sessão aberta.
+	 */
+	public IdentityMap getIdentityMap();
+
+	/**
+	 * Associa o mapa de identidade informado à thread corrente. Enquanto associado,
+	 * as entidades carregadas nesta thread são obtidas do mapa quando já existirem.
+	 * @param        identityMap Mapa de identidade, ou null para remover a associação.
+	 */
+	public void setIdentityMap(IdentityMap identityMap);
+
+	/**
+	 * Obtém o cache de segundo nível das entidades anotadas com @Cacheable. As
+	 * entidades são removidas do cache quando gravadas ou excluídas por este DataSource.
+	 */
+	public EntityCache getEntityCache();
+
+	/**
+	 * Obtém o cache de resultados de consultas. Os resultados que utilizam uma tabela
+	 * são invalidados quando entidades da tabela são gravadas ou excluídas por este
+	 * DataSource.
+	 */
+	public QueryCache getQueryCache();
+
+	/**
+	 * Descarta do mapa de identidade da thread corrente e dos caches as entidades da
+	 * classe informada, após uma alteração em massa cujas linhas alteradas não são
+	 * conhecidas. Em uma transação, os caches são descartados novamente após o seu fim.
+	 * @param        entityClass Classe das entidades alteradas.
+	 */
+	public void evictAll(Class<?> entityClass);
+
 	/**
 	 * Cria uma lista com todas as entidades da classe informada no parâmetro
 	 * entityClass.
@@ -65,6 +141,67 @@ public interface DataSource {
 	 */
 	public <T> List<T> list(Class<T> entityClass);
 
+	/**
+	 * Executa a instrução select informada, que deve retornar todas as colunas
+	 * mapeadas da classe, e instancia as entidades correspondentes.
+	 * @param        entityClass Classe das entidades consultadas.
+	 * @param        sql Instrução select parametrizada.
+	 * @param        cacheable Indica se o resultado deve ser obtido do e armazenado no
+	 * cache de consultas.
+	 * @param        args Valores dos parâmetros da instrução.
+	 */
+	public <T> List<T> query(Class<T> entityClass, String sql, boolean cacheable, Object... args);
+
+	/**
+	 * Carrega em lote os atributos @OneToMany e @ManyToMany informados de todas as
+	 * entidades da lista, com uma consulta por atributo (dividida em blocos de até
+	 * 999 ids) em vez de uma consulta por entidade.
+	 * @param        entities Entidades da mesma classe cujas coleções serão carregadas.
+	 * @param        properties Nomes dos atributos a serem carregados.
+	 */
+	public <T> void fetch(List<T> entities, String... properties);
+
+	/**
+	 * Obtém uma página de entidades em ordem de id, iniciando após o id informado
+	 * no parâmetro afterId (paginação por chave).
+	 * @param        entityClass Classe das entidades a serem listadas.
+	 * @param        pageSize Quantidade máxima de entidades da página.
+	 * @param        afterId Id da última entidade da página anterior, ou null para a
+	 * primeira página.
+	 */
+	public <T> List<T> list(Class<T> entityClass, int pageSize, Serializable afterId);
+
+	/**
+	 * Obtém uma página de entidades em ordem de id, ignorando as firstResult
+	 * primeiras entidades.
+	 * @param        entityClass Classe das entidades a serem listadas.
+	 * @param        firstResult Quantidade de entidades a serem ignoradas.
+	 * @param        maxResults Quantidade máxima de entidades da página.
+	 */
+	public <T> List<T> listPage(Class<T> entityClass, int firstResult, int maxResults);
+
+	/**
+	 * Obtém a quantidade de entidades gravadas da classe informada.
+	 * @param        entityClass Classe das entidades a serem contadas.
+	 */
+	public long count(Class<?> entityClass);
+
+	/**
+	 * Indica se existe uma entidade da classe informada com o id informado, sem
+	 * instanciá-la.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public boolean exists(Class<?> entityClass, Serializable id);
+
+	/**
+	 * Obtém um iterator sobre todas as entidades da classe informada, que são
+	 * instanciadas uma a uma à medida que são percorridas. A conexão permanece
+	 * aberta até que o iterator seja esgotado ou fechado.
+	 * @param        entityClass Classe cujas entidades serão percorridas.
+	 */
+	public <T> CloseableIterator<T> iterate(Class<T> entityClass);
+
 	/**
 	 * Obtém uma instância de ClassMapping para a entidade informada no parâmetro
 	 * entityClass.
@@ -94,6 +231,28 @@ public interface DataSource {
 	 */
 	public void rollbackTransaction ();
 
+	/**
+	 * Grava imediatamente as gravações pendentes das classes anotadas com @WriteBehind.
+	 * @throws RuntimeException Quando a gravação falha, ou quando uma gravação em
+	 * segundo plano falhou desde a última chamada, com a falha como causa.
+	 */
+	public void flush ();
+
+	/**
+	 * Grava imediatamente as gravações pendentes da classe informada, caso seja
+	 * anotada com @WriteBehind. Executado antes das consultas da classe, para que
+	 * enxerguem as gravações pendentes.
+	 * @param        entityClass Classe cujas gravações pendentes serão gravadas.
+	 */
+	public void flush (Class<?> entityClass);
+
+	/**
+	 * Grava as gravações pendentes e finaliza a gravação em segundo plano das
+	 * classes anotadas com @WriteBehind.
+	 * @throws RuntimeException Nas mesmas situações de flush.
+	 */
+	public void shutdown ();
+
 	/**
 	 * Obtém a conexão deste DataSource.
 	 */
@@ -36,6 +36,32 @@ public interface DbConnection {
 	 * @param        sqlQuery Consulta a ser executada.
 	 */
 	public DbCursor executeSqlQuery (String sqlQuery);
+
+	/**
+	 * Executa uma consulta sql parametrizada que retorna resultados.
+	 * @return       com.nanoorm.DbCursor
+	 * @param        sqlQuery Consulta a ser executada.
+	 * @param        args Valores dos parâmetros da consulta, na ordem em que aparecem.
+	 */
+	public DbCursor executeSqlQuery (String sqlQuery, Object... args);
+
+	/**
+	 * Executa uma consulta sql parametrizada cujo resultado será percorrido uma única
+	 * vez, do início ao fim. O cursor retornado pode não suportar os métodos previous,
+	 * last e first, permitindo que o banco não mantenha todas as linhas em memória.
+	 * @return       com.nanoorm.DbCursor
+	 * @param        sqlQuery Consulta a ser executada.
+	 * @param        args Valores dos parâmetros da consulta, na ordem em que aparecem.
+	 */
+	public DbCursor executeStreamingQuery (String sqlQuery, Object... args);
+
+	/**
+	 * Compila uma instrução sql parametrizada. As instruções compiladas são mantidas
+	 * pela conexão e reutilizadas para o mesmo texto sql até que a conexão seja fechada.
+	 * @return       com.nanoorm.DbStatement
+	 * @param        sql Instrução sql a ser compilada.
+	 */
+	public DbStatement compileStatement (String sql);
 	
 	/**
 	 * Abre uma conexão com banco de dados.
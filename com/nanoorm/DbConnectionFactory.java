@@ -1,7 +1,10 @@
 package com.nanoorm;
 
+import android.content.Context;
+
 import com.nanoorm.android.AndroidConfiguration;
 import com.nanoorm.android.AndroidDbConnection;
+import com.nanoorm.jdbc.JdbcDbConnection;
 
 /**
  * Classe responsável por instanciar objetos de classes
@@ -19,22 +22,36 @@ public class DbConnectionFactory {
 	 */	
 	public static DbConnection getConnection(Configuration configuration) throws Exception {
 		DbConnection connection = null;
+		int readConnections = configuration.getReadConnections();
+		DbConnection[] readers = new DbConnection[readConnections];
 		switch (configuration.getDataSourceType()) {		
 		
 		case ANDROID:
-			if (configuration instanceof AndroidConfiguration)
-				connection = new AndroidDbConnection(configuration.getUrl(), ((AndroidConfiguration)configuration).getContext());
-			else
-				connection = new AndroidDbConnection(configuration.getUrl(), null);
+			Context context = configuration instanceof AndroidConfiguration ? ((AndroidConfiguration)configuration).getContext() : null;
+			AndroidDbConnection androidConnection = new AndroidDbConnection(configuration.getUrl(), context);
+			if (readConnections > 0) {
+				androidConnection.enableWriteAheadLogging();
+				for (int i = 0; i < readConnections; i++)
+					readers[i] = new AndroidDbConnection(configuration.getUrl(), context, true);
+			}
+			connection = androidConnection;
 			break;
 			
 		case JDBC:
-			
+			JdbcDbConnection jdbcConnection = new JdbcDbConnection(configuration.getUrl(), configuration.getUserName(), configuration.getPassword());
+			if (readConnections > 0) {
+				jdbcConnection.enableWriteAheadLogging();
+				for (int i = 0; i < readConnections; i++)
+					readers[i] = new JdbcDbConnection(configuration.getUrl(), configuration.getUserName(), configuration.getPassword(), true);
+			}
+			connection = jdbcConnection;
 			break;
 		default:
 			throw new Exception("Banco de dados não suportado.");
 		}
 		
+		if (readConnections > 0)
+			connection = new PooledDbConnection(connection, readers);
 		return connection;
 	}
 		
@@ -8,6 +8,13 @@ package com.nanoorm;
  */
 public interface DbCursor {
 
+	/**
+	 * Indica se o cursor está posicionado sobre uma linha. Retorna false para
+	 * cursores vazios ou que já passaram da última linha.
+	 * @return       boolean
+	 */
+	public boolean hasRow ();
+
 	/**
 	 * Move o cursor para a próxima linha.
 	 * @return       boolean
@@ -60,6 +67,59 @@ public interface DbCursor {
 	 */
 	public <T> T getValue(String columnName, Class<T> typeOfValue);
 	
+	/**
+	 * Obtém o índice da coluna informada no parâmetro columnName, permitindo que a
+	 * posição das colunas seja resolvida uma única vez por cursor e que os valores
+	 * de cada linha sejam obtidos pelos métodos baseados em índice.
+	 * @return       int O índice da coluna ou -1 caso a coluna não exista no cursor.
+	 * @param        columnName Nome da coluna.
+	 */
+	public int getColumnIndex(String columnName);
+
+	/**
+	 * Indica se o valor da coluna informada no parâmetro columnIndex é NULL.
+	 * Quando chamado logo após a leitura da mesma coluna por um dos métodos
+	 * primitivos, as implementações podem responder sem ler o valor novamente.
+	 * @return       boolean
+	 * @param        columnIndex Índice da coluna.
+	 */
+	public boolean isNull(int columnIndex);
+
+	/**
+	 * Retorna o valor inteiro da coluna informada, ou 0 quando o valor é NULL.
+	 * @return       int
+	 * @param        columnIndex Índice da coluna.
+	 */
+	public int getInt(int columnIndex);
+
+	/**
+	 * Retorna o valor inteiro longo da coluna informada, ou 0 quando o valor é NULL.
+	 * @return       long
+	 * @param        columnIndex Índice da coluna.
+	 */
+	public long getLong(int columnIndex);
+
+	/**
+	 * Retorna o valor de ponto flutuante da coluna informada, ou 0 quando o valor é NULL.
+	 * @return       double
+	 * @param        columnIndex Índice da coluna.
+	 */
+	public double getDouble(int columnIndex);
+
+	/**
+	 * Retorna o texto da coluna informada.
+	 * @return       String
+	 * @param        columnIndex Índice da coluna.
+	 */
+	public String getString(int columnIndex);
+
+	/**
+	 * Retorna o vetor de bytes da coluna informada.
+	 * @return       byte[]
+	 * @param        columnIndex Índice da coluna.
+	 */
+	public byte[] getBlob(int columnIndex);
+	
 	/**
 	 * Fecha o cursor liberando recursos.
 	 */
@@ -0,0 +1,73 @@
+package com.nanoorm;
+
+
+/**
+ * Interface DbStatement
+ * Representa uma instrução sql pré-compilada e parametrizada, cujos valores são
+ * associados por posição (iniciando em 1) antes de cada execução.
+ * As instâncias são obtidas através de DbConnection.compileStatement e pertencem
+ * à conexão que as compilou, sendo liberadas quando esta é fechada.
+ */
+public interface DbStatement {
+
+	/**
+	 * Associa o valor NULL ao parâmetro informado.
+	 * @param        index Posição do parâmetro na instrução.
+	 */
+	public void bindNull (int index);
+
+	/**
+	 * Associa um valor inteiro ao parâmetro informado.
+	 * @param        index Posição do parâmetro na instrução.
+	 * @param        value Valor a ser associado.
+	 */
+	public void bindLong (int index, long value);
+
+	/**
+	 * Associa um valor de ponto flutuante ao parâmetro informado.
+	 * @param        index Posição do parâmetro na instrução.
+	 * @param        value Valor a ser associado.
+	 */
+	public void bindDouble (int index, double value);
+
+	/**
+	 * Associa um texto ao parâmetro informado.
+	 * @param        index Posição do parâmetro na instrução.
+	 * @param        value Valor a ser associado.
+	 */
+	public void bindString (int index, String value);
+
+	/**
+	 * Associa um vetor de bytes ao parâmetro informado.
+	 * @param        index Posição do parâmetro na instrução.
+	 * @param        value Valor a ser associado.
+	 */
+	public void bindBlob (int index, byte[] value);
+
+	/**
+	 * Remove todos os valores associados aos parâmetros da instrução.
+	 */
+	public void clearBindings ();
+
+	/**
+	 * Executa a instrução com os valores associados.
+	 */
+	public void execute ();
+
+	/**
+	 * Executa uma instrução insert com os valores associados.
+	 * @return       long O identificador da linha inserida ou -1 caso não seja possível obtê-lo.
+	 */
+	public long executeInsert ();
+
+	/**
+	 * Executa uma instrução update ou delete com os valores associados.
+	 * @return       int Quantidade de linhas afetadas pela instrução.
+	 */
+	public int executeUpdateDelete ();
+
+	/**
+	 * Libera os recursos da instrução.
+	 */
+	public void close ();
+}
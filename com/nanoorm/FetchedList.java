@@ -0,0 +1,33 @@
+package com.nanoorm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Class FetchedList
+ * Lista atribuída aos atributos @OneToMany e @ManyToMany carregados em lote por
+ * Manager.fetch ou Criteria.fetch. O aspecto LazyLoad não recarrega os atributos
+ * cujo valor seja uma FetchedList, de forma que o acesso à coleção já carregada
+ * não execute nenhuma consulta.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class FetchedList<E> extends ArrayList<E> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constrói uma lista vazia.
+	 */
+	public FetchedList() {
+		super();
+	}
+
+	/**
+	 * Constrói uma lista com os elementos informados.
+	 * @param        elements Elementos da lista.
+	 */
+	public FetchedList(Collection<? extends E> elements) {
+		super(elements);
+	}
+
+}
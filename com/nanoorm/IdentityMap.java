@@ -0,0 +1,296 @@
+package com.nanoorm;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Class IdentityMap
+ * Mapa de identidade de uma Session, que garante uma única instância por classe e
+ * id enquanto a sessão estiver aberta. Entidades com ids inteiros (int, long e
+ * short) são indexadas por uma tabela de endereçamento aberto com chaves
+ * primitivas, de forma que as consultas ao mapa não criem objetos; ids de outros
+ * tipos utilizam um HashMap.
+ * Além das entidades completas o mapa guarda as referências (instâncias que possuem
+ * apenas o id, criadas para atributos @ManyToOne e @OneToOne), que são
+ * compartilhadas entre as entidades e completadas quando a entidade é carregada.
+ * Para cada entidade completa o mapa pode guardar também uma cópia do estado em que
+ * foi carregada ou gravada pela última vez (ClassMap.getState), utilizada para
+ * atualizar somente as colunas alteradas.
+ * Uma instância de IdentityMap não é thread-safe, assim como a Session à qual pertence.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class IdentityMap {
+
+	/**
+	 * Envolve as instâncias que possuem apenas o id preenchido.
+	 */
+	private static final class Reference {
+		private Object entity;
+
+		private Reference(Object entity) {
+			this.entity = entity;
+		}
+	}
+
+	private Map<Class<?>, LongTable> longTables = new HashMap<Class<?>, LongTable>();
+	private Map<Class<?>, Map<Object, Object>> objectTables = new HashMap<Class<?>, Map<Object, Object>>();
+	private Map<Object, Object[]> snapshots = new IdentityHashMap<Object, Object[]>();
+
+	/**
+	 * Indica se o id informado é armazenado na tabela de chaves primitivas.
+	 */
+	private static boolean isLongKey(Object id) {
+		return id instanceof Long || id instanceof Integer || id instanceof Short;
+	}
+
+	private Object lookup(Class<?> entityClass, Object id) {
+		if (id == null)
+			return null;
+		if (isLongKey(id))
+			return lookup(entityClass, ((Number) id).longValue());
+
+		Map<Object, Object> table = objectTables.get(entityClass);
+		return table == null ? null : table.get(id);
+	}
+
+	private Object lookup(Class<?> entityClass, long id) {
+		LongTable table = longTables.get(entityClass);
+		return table == null ? null : table.get(id);
+	}
+
+	private void store(Class<?> entityClass, Object id, Object value) {
+		if (isLongKey(id)) {
+			store(entityClass, ((Number) id).longValue(), value);
+			return;
+		}
+
+		Map<Object, Object> table = objectTables.get(entityClass);
+		if (table == null) {
+			table = new HashMap<Object, Object>();
+			objectTables.put(entityClass, table);
+		}
+		table.put(id, value);
+	}
+
+	private void store(Class<?> entityClass, long id, Object value) {
+		LongTable table = longTables.get(entityClass);
+		if (table == null) {
+			table = new LongTable();
+			longTables.put(entityClass, table);
+		}
+		table.put(id, value);
+	}
+
+	/**
+	 * Obtém a entidade completa da classe e id informados.
+	 * @return       Object A entidade ou null caso não esteja no mapa ou exista
+	 * apenas como referência.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public Object get(Class<?> entityClass, Object id) {
+		Object value = lookup(entityClass, id);
+		return value instanceof Reference ? null : value;
+	}
+
+	/**
+	 * Obtém a entidade completa da classe e id inteiro informados, sem criar objetos.
+	 * @return       Object A entidade ou null caso não esteja no mapa ou exista
+	 * apenas como referência.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public Object get(Class<?> entityClass, long id) {
+		Object value = lookup(entityClass, id);
+		return value instanceof Reference ? null : value;
+	}
+
+	/**
+	 * Obtém a instância da classe e id informados, seja ela uma entidade completa
+	 * ou uma referência.
+	 * @return       Object A instância ou null caso não esteja no mapa.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public Object getReference(Class<?> entityClass, Object id) {
+		Object value = lookup(entityClass, id);
+		return value instanceof Reference ? ((Reference) value).entity : value;
+	}
+
+	/**
+	 * Obtém a instância da classe e id inteiro informados, seja ela uma entidade
+	 * completa ou uma referência.
+	 * @return       Object A instância ou null caso não esteja no mapa.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public Object getReference(Class<?> entityClass, long id) {
+		Object value = lookup(entityClass, id);
+		return value instanceof Reference ? ((Reference) value).entity : value;
+	}
+
+	/**
+	 * Registra a entidade completa informada, substituindo a referência existente.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 * @param        entity Entidade a ser registrada.
+	 */
+	public void put(Class<?> entityClass, Object id, Object entity) {
+		if (id != null)
+			store(entityClass, id, entity);
+	}
+
+	/**
+	 * Registra a referência informada, caso ainda não exista uma instância com o
+	 * mesmo id no mapa.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 * @param        reference Instância que possui apenas o id preenchido.
+	 */
+	public void putReference(Class<?> entityClass, Object id, Object reference) {
+		if (id != null && lookup(entityClass, id) == null)
+			store(entityClass, id, new Reference(reference));
+	}
+
+	/**
+	 * Remove a instância da classe e id informados.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public void remove(Class<?> entityClass, Object id) {
+		if (id == null)
+			return;
+		Object value = lookup(entityClass, id);
+		if (value != null && !(value instanceof Reference))
+			snapshots.remove(value);
+		if (isLongKey(id)) {
+			LongTable table = longTables.get(entityClass);
+			if (table != null)
+				table.remove(((Number) id).longValue());
+		} else {
+			Map<Object, Object> table = objectTables.get(entityClass);
+			if (table != null)
+				table.remove(id);
+		}
+	}
+
+	/**
+	 * Remove todas as instâncias da classe informada.
+	 * @param        entityClass Classe das entidades.
+	 */
+	public void clear(Class<?> entityClass) {
+		longTables.remove(entityClass);
+		objectTables.remove(entityClass);
+		for (Iterator<Object> entities = snapshots.keySet().iterator(); entities.hasNext();)
+			if (entities.next().getClass() == entityClass)
+				entities.remove();
+	}
+
+	/**
+	 * Remove todas as instâncias do mapa.
+	 */
+	public void clear() {
+		longTables.clear();
+		objectTables.clear();
+		snapshots.clear();
+	}
+
+	/**
+	 * Registra o estado da entidade informada no momento em que foi carregada ou
+	 * gravada. O estado não deve ser alterado após registrado.
+	 * @param        entity Entidade registrada no mapa.
+	 * @param        state Estado obtido por ClassMap.getState.
+	 */
+	public void setSnapshot(Object entity, Object[] state) {
+		snapshots.put(entity, state);
+	}
+
+	/**
+	 * Obtém o último estado registrado da entidade informada.
+	 * @return       Object[] O estado, ou null caso a entidade não possua estado registrado.
+	 * @param        entity Entidade registrada no mapa.
+	 */
+	public Object[] getSnapshot(Object entity) {
+		return snapshots.get(entity);
+	}
+
+	/**
+	 * Tabela hash de endereçamento aberto com sondagem linear e chaves long. As
+	 * remoções deslocam as entradas seguintes, dispensando marcadores de remoção.
+	 */
+	static final class LongTable {
+
+		private long[] keys = new long[16];
+		private Object[] values = new Object[16];
+		private int mask = 15;
+		private int size;
+
+		private int slot(long key) {
+			long hash = key * 0x9E3779B97F4A7C15L;
+			return (int) (hash ^ (hash >>> 32)) & mask;
+		}
+
+		Object get(long key) {
+			for (int i = slot(key); values[i] != null; i = (i + 1) & mask)
+				if (keys[i] == key)
+					return values[i];
+			return null;
+		}
+
+		void put(long key, Object value) {
+			int i = slot(key);
+			for (; values[i] != null; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					values[i] = value;
+					return;
+				}
+			}
+			keys[i] = key;
+			values[i] = value;
+			if (++size * 2 > values.length)
+				resize();
+		}
+
+		void remove(long key) {
+			for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					shiftBack(i);
+					size--;
+					return;
+				}
+			}
+		}
+
+		private void shiftBack(int hole) {
+			values[hole] = null;
+			for (int i = (hole + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+				int ideal = slot(keys[i]);
+				if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+					keys[hole] = keys[i];
+					values[hole] = values[i];
+					values[i] = null;
+					hole = i;
+				}
+			}
+		}
+
+		private void resize() {
+			long[] oldKeys = keys;
+			Object[] oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = new Object[oldValues.length * 2];
+			mask = values.length - 1;
+			size = 0;
+			for (int i = 0; i < oldValues.length; i++)
+				if (oldValues[i] != null)
+					put(oldKeys[i], oldValues[i]);
+		}
+
+		int size() {
+			return size;
+		}
+	}
+
+}
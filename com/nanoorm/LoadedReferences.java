@@ -0,0 +1,76 @@
+package com.nanoorm;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Class LoadedReferences
+ * Registro das entidades referenciadas que já foram carregadas por completo na
+ * mesma consulta da entidade que as referencia (FetchType.JOIN ou Criteria.fetch).
+ * O aspecto LazyLoad não recarrega os atributos @ManyToOne e @OneToOne cujo valor
+ * esteja registrado. As entidades são comparadas por identidade e mantidas através
+ * de referências fracas, sendo removidas do registro quando deixam de ser utilizadas.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public final class LoadedReferences {
+
+	private static final class Key extends WeakReference<Object> {
+		private final int hash;
+
+		private Key(Object entity, ReferenceQueue<Object> queue) {
+			super(entity, queue);
+			this.hash = System.identityHashCode(entity);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other)
+				return true;
+			if (!(other instanceof Key))
+				return false;
+			Object entity = get();
+			return entity != null && entity == ((Key) other).get();
+		}
+	}
+
+	private static final Set<Key> entities = new HashSet<Key>();
+	private static final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+	private LoadedReferences() {
+	}
+
+	/**
+	 * Registra a entidade informada como carregada.
+	 * @param        entity Entidade carregada.
+	 */
+	public static synchronized void mark(Object entity) {
+		expunge();
+		entities.add(new Key(entity, queue));
+	}
+
+	/**
+	 * Indica se a entidade informada foi registrada como carregada.
+	 * @param        entity Entidade a ser verificada.
+	 */
+	public static synchronized boolean isLoaded(Object entity) {
+		if (entity == null)
+			return false;
+		expunge();
+		return entities.contains(new Key(entity, null));
+	}
+
+	private static void expunge() {
+		Reference<?> reference;
+		while ((reference = queue.poll()) != null)
+			entities.remove(reference);
+	}
+
+}
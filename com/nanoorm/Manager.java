@@ -1,6 +1,7 @@
 package com.nanoorm;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -44,6 +45,30 @@ public interface Manager {
 	 */
 	public <T> void update (T entity);
 
+	/**
+	 * Persiste as entidades informadas na fonte de dados em lote, abrindo a conexão
+	 * uma única vez e gravando cada classe com uma instrução compilada reutilizada.
+	 * As operações em cascata e das tabelas associativas @ManyToMany não são
+	 * executadas nas operações em lote.
+	 * @param <T>
+	 * @param        entities Entidades a serem persistidas na fonte de dados.
+	 */
+	public <T> void saveAll (Collection<T> entities);
+
+	/**
+	 * Atualiza as entidades informadas em lote.
+	 * @param <T>
+	 * @param        entities Entidades a serem atualizadas.
+	 */
+	public <T> void updateAll (Collection<T> entities);
+
+	/**
+	 * Remove as entidades informadas da fonte de dados em lote.
+	 * @param <T>
+	 * @param        entities Entidades a serem removidas da fonte de dados.
+	 */
+	public <T> void deleteAll (Collection<T> entities);
+
 	/**
 	 * Cria uma lista com todas as entidades da classe informada no parâmetro
 	 * entityClass.
@@ -53,14 +78,82 @@ public interface Manager {
 	 */
 	public <T> List<T> list (Class<T> entityClass);
 
+	/**
+	 * Obtém uma página de entidades em ordem de id, iniciando após o id informado
+	 * no parâmetro afterId. A página seguinte é obtida informando o id da última
+	 * entidade retornada, com custo constante independentemente da profundidade
+	 * da página.
+	 * @param <T>
+	 * @param        entityClass Classe das entidades a serem listadas.
+	 * @param        pageSize Quantidade máxima de entidades da página.
+	 * @param        afterId Id da última entidade da página anterior, ou null para a
+	 * primeira página.
+	 */
+	public <T> List<T> list (Class<T> entityClass, int pageSize, Serializable afterId);
 
 	/**
-	 * Cria um critério para o tipo informado no parâmetro entityClass.
+	 * Obtém uma página de entidades em ordem de id, ignorando as firstResult
+	 * primeiras entidades. Para páginas profundas prefira a paginação por chave.
+	 * @param <T>
+	 * @param        entityClass Classe das entidades a serem listadas.
+	 * @param        firstResult Quantidade de entidades a serem ignoradas.
+	 * @param        maxResults Quantidade máxima de entidades da página.
+	 */
+	public <T> List<T> listPage (Class<T> entityClass, int firstResult, int maxResults);
+
+	/**
+	 * Carrega em lote os atributos @OneToMany e @ManyToMany informados de todas as
+	 * entidades da lista. Os elementos das coleções de todas as entidades são obtidos
+	 * com uma única consulta por atributo e associados às entidades em memória,
+	 * evitando uma consulta por entidade no primeiro acesso a cada coleção.
+	 * @param <T>
+	 * @param        entities Entidades da mesma classe cujas coleções serão carregadas.
+	 * @param        properties Nomes dos atributos a serem carregados.
+	 */
+	public <T> void fetch (List<T> entities, String... properties);
+
+	/**
+	 * Obtém a quantidade de entidades gravadas da classe informada.
+	 * @param        entityClass Classe das entidades a serem contadas.
+	 */
+	public long count (Class<?> entityClass);
+
+	/**
+	 * Indica se existe uma entidade da classe informada com o id informado. A
+	 * entidade não é instanciada; a consulta lê apenas a chave primária.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public boolean exists (Class<?> entityClass, Serializable id);
+
+	/**
+	 * Obtém um iterator sobre todas as entidades da classe informada, que são
+	 * instanciadas uma a uma à medida que são percorridas, mantendo o consumo de
+	 * memória constante independentemente da quantidade de linhas da tabela.
+	 * A conexão permanece aberta até que o iterator seja esgotado ou fechado.
+	 * @param <T>
+	 * @param        entityClass Classe cujas entidades serão percorridas.
+	 */
+	public <T> CloseableIterator<T> iterate (Class<T> entityClass);
+
+
+	/**
+	 * Cria um critério para o tipo informado no parâmetro entityClass, permitindo
+	 * consultar as entidades com filtros, ordenação e paginação executados pelo
+	 * banco de dados.
 	 * @param <T>
 	 * @param        entityClass Classe da entidade para qual será gerado o critério.
+	 * @return       com.nanoorm.Criteria
 	 */
-	public <T> void createCriteria (Class<T> entityClass);
+	public <T> Criteria<T> createCriteria (Class<T> entityClass);
 	
+	/**
+	 * Abre uma sessão que mantém a conexão com a fonte de dados aberta até que
+	 * seja fechada, para ser utilizada em sequências de operações.
+	 * @return       com.nanoorm.Session
+	 */
+	public Session openSession ();
+
 	/**
 	 * Inicia uma transação com o fonte de dados.
 	 */
@@ -76,6 +169,19 @@ public interface Manager {
 	 * realizadas.
 	 */
 	public void rollbackTransaction ();
+
+	/**
+	 * Grava imediatamente as gravações pendentes das classes anotadas com
+	 * @WriteBehind, sem aguardar a gravação em segundo plano.
+	 */
+	public void flush ();
+
+	/**
+	 * Grava as gravações pendentes das classes anotadas com @WriteBehind e finaliza
+	 * a sua gravação em segundo plano. As gravações posteriores dessas classes são
+	 * executadas imediatamente. Deve ser chamado antes do encerramento da aplicação.
+	 */
+	public void shutdown ();
 	
 	public DataSource getDataSource();
 
@@ -2,7 +2,9 @@ package com.nanoorm;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
+import com.nanoorm.impl.AsyncManagerImpl;
 import com.nanoorm.impl.DataSourceImpl;
 import com.nanoorm.impl.ManagerImpl;
 
@@ -28,7 +30,13 @@ public class ManagerFactory {
 	public static Manager buildManager (Configuration configuration) throws Exception {
 		DbConnection connection = DbConnectionFactory.getConnection(configuration);
 		
-		DataSource dataSource = new DataSourceImpl(connection, configuration.getDataSourceType());
+		DataSourceImpl dataSource = new DataSourceImpl(connection, configuration.getDataSourceType());
+		dataSource.setBatchSize(configuration.getBatchSize());
+		dataSource.setTypeCodecRegistry(configuration.getTypeCodecRegistry());
+		dataSource.setIdleTimeout(configuration.getIdleTimeout());
+		dataSource.setEntityCache(configuration.getEntityCache());
+		dataSource.setQueryCache(configuration.getQueryCache());
+		dataSource.setClassMapRegistry(configuration.getClassMapRegistry());
 		Manager manager = new ManagerImpl(dataSource); 
 		
 		registeredManagers.put(configuration, manager);
@@ -36,6 +44,28 @@ public class ManagerFactory {
 		return manager;
 	}
 	
+	/**
+	 * Constrói um AsyncManager que executa as operações do Manager informado em
+	 * segundo plano, utilizando threads virtuais quando a JVM as suporta.
+	 * @param manager Manager que executará as operações.
+	 * @return       com.nanoorm.AsyncManager
+	 */
+	public static AsyncManager buildAsyncManager (Manager manager) {
+		return new AsyncManagerImpl(manager);
+	}
+
+	/**
+	 * Constrói um AsyncManager que executa as consultas do Manager informado no
+	 * executor informado. As gravações são executadas por uma única thread do
+	 * AsyncManager.
+	 * @param manager Manager que executará as operações.
+	 * @param executor Executor das consultas.
+	 * @return       com.nanoorm.AsyncManager
+	 */
+	public static AsyncManager buildAsyncManager (Manager manager, ExecutorService executor) {
+		return new AsyncManagerImpl(manager, executor);
+	}
+
 	/**
 	 * Obtém uma instância de Manager resposável por gerenciar os objetos
 	 * da classe informada no parâmetro entityClass.
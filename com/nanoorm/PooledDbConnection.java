@@ -0,0 +1,544 @@
+package com.nanoorm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Class PooledDbConnection
+ * Conexão composta por uma única conexão de escrita e um conjunto limitado de
+ * conexões somente leitura, utilizada com bancos de dados em modo write-ahead
+ * logging (WAL), em que leitores não bloqueiam o escritor nem são bloqueados por ele.
+ * Instruções, instruções compiladas e transações são executadas na conexão de
+ * escrita e serializadas por um bloqueio, que é mantido pela thread que iniciou uma
+ * transação até que ela seja finalizada. Os valores associados a uma instrução
+ * compilada são mantidos na própria instância e aplicados à instrução da conexão
+ * de escrita somente na execução, com o bloqueio obtido, pois essa instrução é
+ * compartilhada pelas threads.
+ * As consultas são executadas em uma conexão de leitura emprestada até que o cursor
+ * seja fechado; as consultas abertas ao mesmo tempo por uma thread utilizam a mesma
+ * conexão, e uma thread aguarda até leaseTimeout milissegundos caso todas estejam
+ * emprestadas, pois um cursor que não é fechado mantém a sua conexão emprestada.
+ * As consultas da thread que possui uma transação aberta são executadas na conexão
+ * de escrita, para que enxerguem as gravações ainda não efetivadas; por isso as leituras
+ * seguidas de gravações que dependem do valor lido, como a das sequências, devem
+ * ser executadas em uma transação.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class PooledDbConnection implements DbConnection {
+
+	private final DbConnection writer;
+	private final DbConnection[] readers;
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private final BlockingQueue<DbConnection> idleReaders;
+	private final ThreadLocal<Lease> leases = new ThreadLocal<Lease>();
+	private volatile long leaseTimeout = DEFAULT_LEASE_TIMEOUT;
+
+	/**
+	 * Tempo máximo padrão, em milissegundos, de espera por uma conexão de leitura.
+	 */
+	public static final long DEFAULT_LEASE_TIMEOUT = 30000;
+
+	/**
+	 * Empréstimo de uma conexão de leitura à thread corrente, com a quantidade de
+	 * cursores ainda abertos.
+	 */
+	private static final class Lease {
+		private final DbConnection reader;
+		private int cursors;
+
+		private Lease(DbConnection reader) {
+			this.reader = reader;
+		}
+	}
+
+	/**
+	 * Constrói a conexão com a conexão de escrita e as conexões de leitura informadas.
+	 * @param writer Conexão utilizada pelas gravações e transações.
+	 * @param readers Conexões somente leitura utilizadas pelas consultas.
+	 */
+	public PooledDbConnection(DbConnection writer, DbConnection... readers) {
+		if (readers.length == 0)
+			throw new IllegalArgumentException("Ao menos uma conexão de leitura deve ser informada.");
+		this.writer = writer;
+		this.readers = readers;
+		this.idleReaders = new ArrayBlockingQueue<DbConnection>(readers.length);
+		for (DbConnection reader : readers)
+			idleReaders.add(reader);
+	}
+
+	/**
+	 * Define o tempo máximo de espera por uma conexão de leitura, tanto por uma
+	 * consulta quanto por close, que aguarda a devolução das conexões emprestadas.
+	 * @param leaseTimeout Tempo de espera em milissegundos.
+	 */
+	public void setLeaseTimeout(long leaseTimeout) {
+		if (leaseTimeout <= 0)
+			throw new IllegalArgumentException("O tempo de espera por uma conexão de leitura deve ser maior que zero.");
+		this.leaseTimeout = leaseTimeout;
+	}
+
+	/**
+	 * Inicia uma transação na conexão de escrita, que permanece reservada para a
+	 * thread corrente até que a transação seja finalizada.
+	 */
+	public void beginTransaction () {
+		writeLock.lock();
+		try {
+			writer.beginTransaction();
+		} catch (RuntimeException e) {
+			writeLock.unlock();
+			throw e;
+		}
+	}
+
+	/**
+	 * Finaliza a transação com o banco de dados com sucesso.
+	 */
+	public void commitTransaction () {
+		if (!writeLock.isHeldByCurrentThread())
+			return;
+		try {
+			writer.commitTransaction();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Finaliza a transação com o banco de dados desfazendo todas as operações
+	 * realizadas.
+	 */
+	public void rollbackTransaction () {
+		if (!writeLock.isHeldByCurrentThread())
+			return;
+		try {
+			writer.rollbackTransaction();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * executa uma instrução sql que não retorna resultados na conexão de escrita.
+	 * @param        sql Instrução sql a ser executada.
+	 */
+	public void executeSql (String sql) {
+		writeLock.lock();
+		try {
+			writer.executeSql(sql);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Executa uma consulta sql que retorna resultados.
+	 * @return       com.nanoorm.DbCursor
+	 * @param        sqlQuery Consulta a ser executada.
+	 */
+	public DbCursor executeSqlQuery (String sqlQuery) {
+		if (writeLock.isHeldByCurrentThread())
+			return writer.executeSqlQuery(sqlQuery);
+		Lease lease = lease();
+		try {
+			return new LeasedCursor(lease.reader.executeSqlQuery(sqlQuery), lease);
+		} catch (RuntimeException e) {
+			release(lease);
+			throw e;
+		}
+	}
+
+	/**
+	 * Executa uma consulta sql parametrizada que retorna resultados.
+	 * @return       com.nanoorm.DbCursor
+	 * @param        sqlQuery Consulta a ser executada.
+	 * @param        args Valores dos parâmetros da consulta, na ordem em que aparecem.
+	 */
+	public DbCursor executeSqlQuery (String sqlQuery, Object... args) {
+		if (writeLock.isHeldByCurrentThread())
+			return writer.executeSqlQuery(sqlQuery, args);
+		Lease lease = lease();
+		try {
+			return new LeasedCursor(lease.reader.executeSqlQuery(sqlQuery, args), lease);
+		} catch (RuntimeException e) {
+			release(lease);
+			throw e;
+		}
+	}
+
+	/**
+	 * Executa uma consulta sql parametrizada cujo resultado será percorrido uma única
+	 * vez, do início ao fim.
+	 * @return       com.nanoorm.DbCursor
+	 * @param        sqlQuery Consulta a ser executada.
+	 * @param        args Valores dos parâmetros da consulta, na ordem em que aparecem.
+	 */
+	public DbCursor executeStreamingQuery (String sqlQuery, Object... args) {
+		if (writeLock.isHeldByCurrentThread())
+			return writer.executeStreamingQuery(sqlQuery, args);
+		Lease lease = lease();
+		try {
+			return new LeasedCursor(lease.reader.executeStreamingQuery(sqlQuery, args), lease);
+		} catch (RuntimeException e) {
+			release(lease);
+			throw e;
+		}
+	}
+
+	/**
+	 * Compila uma instrução sql parametrizada na conexão de escrita. A execução da
+	 * instrução é serializada com as demais gravações.
+	 * @return       com.nanoorm.DbStatement
+	 * @param        sql Instrução sql a ser compilada.
+	 */
+	public DbStatement compileStatement (String sql) {
+		writeLock.lock();
+		try {
+			return new SerializedStatement(writer.compileStatement(sql));
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Empresta uma conexão de leitura para um novo cursor da thread corrente,
+	 * reutilizando a conexão já emprestada à thread caso possua cursores abertos,
+	 * ou aguardando até leaseTimeout milissegundos que uma conexão seja devolvida.
+	 */
+	private Lease lease() {
+		Lease lease = leases.get();
+		if (lease != null) {
+			synchronized (lease) {
+				if (lease.cursors > 0) {
+					lease.cursors++;
+					return lease;
+				}
+			}
+		}
+
+		DbConnection reader;
+		try {
+			reader = idleReaders.poll(leaseTimeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Espera por uma conexão de leitura interrompida.", e);
+		}
+		if (reader == null)
+			throw new RuntimeException("Nenhuma das conexões de leitura (" + readers.length + ") foi devolvida em " + leaseTimeout +
+					" ms. Verifique se os cursores e iterators abertos estão sendo fechados ou percorridos até o fim.");
+		lease = new Lease(reader);
+		lease.cursors = 1;
+		leases.set(lease);
+		return lease;
+	}
+
+	/**
+	 * Finaliza um cursor do empréstimo, devolvendo a conexão de leitura quando não
+	 * restar nenhum cursor aberto. O cursor pode ser fechado por outra thread. Uma
+	 * conexão devolvida após o fechamento desta conexão também é fechada.
+	 */
+	private void release(Lease lease) {
+		synchronized (lease) {
+			if (--lease.cursors > 0)
+				return;
+		}
+		if (leases.get() == lease)
+			leases.remove();
+		if (!writer.isOpen())
+			lease.reader.close();
+		idleReaders.add(lease.reader);
+	}
+
+	@Override
+	public void open() {
+		writer.open();
+		for (DbConnection reader : readers)
+			reader.open();
+	}
+
+	/**
+	 * Fecha as conexões, aguardando até leaseTimeout milissegundos que as conexões
+	 * de leitura emprestadas sejam devolvidas. As conexões ainda emprestadas após a
+	 * espera são fechadas quando devolvidas, e a falha é informada por uma exceção.
+	 */
+	@Override
+	public void close() {
+		writeLock.lock();
+		try {
+			List<DbConnection> returned = new ArrayList<DbConnection>(readers.length);
+			boolean interrupted = false;
+			long deadline = System.currentTimeMillis() + leaseTimeout;
+			try {
+				while (returned.size() < readers.length) {
+					DbConnection reader = idleReaders.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+					if (reader == null)
+						break;
+					returned.add(reader);
+				}
+			} catch (InterruptedException e) {
+				interrupted = true;
+				Thread.currentThread().interrupt();
+			}
+			writer.close();
+			for (DbConnection reader : returned)
+				reader.close();
+			idleReaders.addAll(returned);
+
+			if (returned.size() < readers.length)
+				throw new RuntimeException((readers.length - returned.size()) + " conexões de leitura ainda estavam emprestadas ao fechar a conexão" +
+						(interrupted ? " (espera interrompida)." : " após " + leaseTimeout + " ms.") + " Verifique se os cursores e iterators abertos estão sendo fechados.");
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return writer.isOpen();
+	}
+
+	/**
+	 * Obtém a conexão de escrita.
+	 */
+	public DbConnection getWriter() {
+		return writer;
+	}
+
+	/**
+	 * Instrução compilada na conexão de escrita. Os valores dos parâmetros são
+	 * mantidos nesta instância, em vetores por tipo, e aplicados à instrução compilada, compartilhada
+	 * pelas threads, somente durante a execução, com o bloqueio de escrita obtido.
+	 */
+	private class SerializedStatement implements DbStatement {
+
+		private static final byte NULL = 1;
+		private static final byte LONG = 2;
+		private static final byte DOUBLE = 3;
+		private static final byte STRING = 4;
+		private static final byte BLOB = 5;
+
+		private final DbStatement statement;
+		private byte[] types = new byte[8];
+		private long[] longs = new long[8];
+		private double[] doubles = new double[8];
+		private Object[] objects = new Object[8];
+		private int count;
+
+		private SerializedStatement(DbStatement statement) {
+			this.statement = statement;
+		}
+
+		/**
+		 * Registra o tipo do parâmetro na posição index, ampliando os vetores de
+		 * valores quando necessário.
+		 */
+		private void bind(int index, byte type) {
+			if (index >= types.length) {
+				int length = Math.max(index + 1, types.length * 2);
+				types = Arrays.copyOf(types, length);
+				longs = Arrays.copyOf(longs, length);
+				doubles = Arrays.copyOf(doubles, length);
+				objects = Arrays.copyOf(objects, length);
+			}
+			types[index] = type;
+			if (index > count)
+				count = index;
+		}
+
+		public void bindNull(int index) {
+			bind(index, NULL);
+			objects[index] = null;
+		}
+
+		public void bindLong(int index, long value) {
+			bind(index, LONG);
+			longs[index] = value;
+		}
+
+		public void bindDouble(int index, double value) {
+			bind(index, DOUBLE);
+			doubles[index] = value;
+		}
+
+		public void bindString(int index, String value) {
+			bind(index, STRING);
+			objects[index] = value;
+		}
+
+		public void bindBlob(int index, byte[] value) {
+			bind(index, BLOB);
+			objects[index] = value;
+		}
+
+		public void clearBindings() {
+			Arrays.fill(types, 0, count + 1, (byte) 0);
+			Arrays.fill(objects, 0, count + 1, null);
+			count = 0;
+		}
+
+		/**
+		 * Aplica os valores dos parâmetros à instrução compilada. Deve ser chamado
+		 * com o bloqueio de escrita obtido.
+		 */
+		private void bind() {
+			statement.clearBindings();
+			for (int index = 1; index <= count; index++) {
+				switch (types[index]) {
+				case NULL:
+					statement.bindNull(index);
+					break;
+				case LONG:
+					statement.bindLong(index, longs[index]);
+					break;
+				case DOUBLE:
+					statement.bindDouble(index, doubles[index]);
+					break;
+				case STRING:
+					statement.bindString(index, (String) objects[index]);
+					break;
+				case BLOB:
+					statement.bindBlob(index, (byte[]) objects[index]);
+					break;
+				}
+			}
+		}
+
+		public void execute() {
+			writeLock.lock();
+			try {
+				bind();
+				statement.execute();
+			} finally {
+				writeLock.unlock();
+			}
+		}
+
+		public long executeInsert() {
+			writeLock.lock();
+			try {
+				bind();
+				return statement.executeInsert();
+			} finally {
+				writeLock.unlock();
+			}
+		}
+
+		public int executeUpdateDelete() {
+			writeLock.lock();
+			try {
+				bind();
+				return statement.executeUpdateDelete();
+			} finally {
+				writeLock.unlock();
+			}
+		}
+
+		/**
+		 * Descarta apenas os valores dos parâmetros: a instrução da conexão de escrita
+		 * é mantida em cache e compartilhada, sendo fechada junto com a conexão.
+		 */
+		public void close() {
+			clearBindings();
+		}
+	}
+
+	/**
+	 * Cursor de uma conexão de leitura emprestada, que devolve a conexão quando é
+	 * fechado.
+	 */
+	private class LeasedCursor implements DbCursor {
+
+		private final DbCursor cursor;
+		private Lease lease;
+
+		private LeasedCursor(DbCursor cursor, Lease lease) {
+			this.cursor = cursor;
+			this.lease = lease;
+		}
+
+		public boolean hasRow() {
+			return cursor.hasRow();
+		}
+
+		public boolean next() {
+			return cursor.next();
+		}
+
+		public boolean previous() {
+			return cursor.previous();
+		}
+
+		public void first() {
+			cursor.first();
+		}
+
+		public void last() {
+			cursor.last();
+		}
+
+		public Object getObject(int columnIndex) {
+			return cursor.getObject(columnIndex);
+		}
+
+		public Object getObject(String columnName) {
+			return cursor.getObject(columnName);
+		}
+
+		public <T> T getValue(int columnIndex, Class<T> typeOfValue) {
+			return cursor.getValue(columnIndex, typeOfValue);
+		}
+
+		public <T> T getValue(String columnName, Class<T> typeOfValue) {
+			return cursor.getValue(columnName, typeOfValue);
+		}
+
+		public int getColumnIndex(String columnName) {
+			return cursor.getColumnIndex(columnName);
+		}
+
+		public boolean isNull(int columnIndex) {
+			return cursor.isNull(columnIndex);
+		}
+
+		public int getInt(int columnIndex) {
+			return cursor.getInt(columnIndex);
+		}
+
+		public long getLong(int columnIndex) {
+			return cursor.getLong(columnIndex);
+		}
+
+		public double getDouble(int columnIndex) {
+			return cursor.getDouble(columnIndex);
+		}
+
+		public String getString(int columnIndex) {
+			return cursor.getString(columnIndex);
+		}
+
+		public byte[] getBlob(int columnIndex) {
+			return cursor.getBlob(columnIndex);
+		}
+
+		public int getRowCount() {
+			return cursor.getRowCount();
+		}
+
+		public void close() {
+			try {
+				cursor.close();
+			} finally {
+				if (lease != null) {
+					release(lease);
+					lease = null;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.nanoorm;
+
+import java.io.Serializable;
+
+/**
+ * Class Ref
+ * Referência preguiçosa a uma entidade, utilizada como tipo de atributos @ManyToOne
+ * e @OneToOne (lado dono) no lugar da própria entidade, como em
+ * <code>@ManyToOne Ref&lt;Category&gt; category</code>.
+ * Ao carregar a entidade que possui o atributo, o framework preenche a referência
+ * apenas com o id lido da chave estrangeira, sem instanciar a entidade referenciada.
+ * A entidade é carregada no primeiro acesso a get, através do DataSource que carregou
+ * a referência, passando pelo mapa de identidade da sessão corrente e pelo cache de
+ * segundo nível antes de consultar o banco de dados.
+ * Para associar uma entidade ao atributo utilize Ref.to(entidade), ou o construtor
+ * com a classe e o id quando apenas o id for conhecido. Referências não são
+ * persistidas em cascata.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class Ref<T> {
+
+	private Class<T> entityClass;
+	private Serializable id;
+	private DataSource dataSource;
+	private T entity;
+	private boolean loaded;
+
+	/**
+	 * Constrói uma referência à entidade da classe e id informados.
+	 * @param        entityClass Classe da entidade referenciada.
+	 * @param        id Id da entidade referenciada.
+	 */
+	public Ref (Class<T> entityClass, Serializable id) {
+		this(entityClass, id, null);
+	}
+
+	/**
+	 * Constrói uma referência à entidade da classe e id informados, que será
+	 * carregada através do DataSource informado.
+	 * @param        entityClass Classe da entidade referenciada.
+	 * @param        id Id da entidade referenciada.
+	 * @param        dataSource Fonte de dados da entidade, ou null para utilizar a
+	 * fonte de dados em que a classe foi registrada.
+	 */
+	public Ref (Class<T> entityClass, Serializable id, DataSource dataSource) {
+		if (entityClass == null)
+			throw new IllegalArgumentException("A classe da entidade referenciada deve ser informada.");
+		this.entityClass = entityClass;
+		this.id = id;
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * Constrói uma referência já carregada à entidade informada. O id é obtido da
+	 * entidade no momento em que for solicitado, permitindo referenciar entidades
+	 * que ainda serão persistidas.
+	 * @return       Ref<T> A referência, ou null caso entity seja null.
+	 * @param        entity Entidade referenciada.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Ref<T> to (T entity) {
+		if (entity == null)
+			return null;
+		Ref<T> ref = new Ref<T>((Class<T>) entity.getClass(), null);
+		ref.entity = entity;
+		ref.loaded = true;
+		return ref;
+	}
+
+	private DataSource getDataSource() {
+		if (dataSource == null)
+			dataSource = ManagerFactory.getManagerForClass(entityClass).getDataSource();
+		return dataSource;
+	}
+
+	/**
+	 * Obtém a entidade referenciada, carregando-a no primeiro acesso.
+	 * @return       T A entidade, ou null caso não exista uma entidade com o id da referência.
+	 */
+	public T get () {
+		if (!loaded) {
+			if (id != null) {
+				DataSource source = getDataSource();
+				source.open();
+				try {
+					entity = source.load(entityClass, id);
+				} finally {
+					source.close();
+				}
+			}
+			loaded = true;
+		}
+		return entity;
+	}
+
+	/**
+	 * Obtém o id da entidade referenciada, sem carregá-la.
+	 * @return       Serializable
+	 */
+	public Serializable getId () {
+		if (id == null && entity != null)
+			id = getDataSource().getMappingFor(entityClass).getEntityId(entity);
+		return id;
+	}
+
+	/**
+	 * Indica se a entidade referenciada já foi carregada.
+	 * @return       boolean
+	 */
+	public boolean isLoaded () {
+		return loaded;
+	}
+
+	/**
+	 * Obtém a classe da entidade referenciada.
+	 * @return       Class<T>
+	 */
+	public Class<T> getEntityClass () {
+		return entityClass;
+	}
+
+	@Override
+	public boolean equals (Object other) {
+		if (this == other)
+			return true;
+		if (!(other instanceof Ref))
+			return false;
+		Ref<?> ref = (Ref<?>) other;
+		Serializable thisId = getId();
+		return entityClass == ref.entityClass && thisId != null && thisId.equals(ref.getId());
+	}
+
+	@Override
+	public int hashCode () {
+		Serializable thisId = getId();
+		return 31 * entityClass.hashCode() + (thisId == null ? 0 : thisId.hashCode());
+	}
+
+	@Override
+	public String toString () {
+		return "Ref(" + entityClass.getSimpleName() + ", " + getId() + ")";
+	}
+
+}
@@ -45,13 +45,13 @@ public class SchemaProvider {
 	
 	public SchemaProvider(Configuration configuration) {
 		try {
-			//this.connection = DbConnectionFactory.getConnection(configuration.getDataSourceType(), configuration.getUrl(), configuration.getUserName(), configuration.getPassword());
+			this.connection = DbConnectionFactory.getConnection(configuration);
 		} catch (Exception e) {
 			throw new RuntimeException("Erro durante a obtenção da conexão com o banco de dados.", e);
 		}
 		
 		for (Class<?> entityClass : configuration.getClasses()){
-			TableMap<?> tableMap = TableMapFactory.getTableMap(entityClass, configuration.getDataSourceType());
+			TableMap<?> tableMap = TableMapFactory.getTableMap(entityClass, configuration.getDataSourceType(), configuration.getTypeCodecRegistry());
 			tableMaps.add(tableMap);			
 		}			
 	}
@@ -0,0 +1,39 @@
+package com.nanoorm;
+
+
+/**
+ * Interface Session
+ * Sessão de trabalho obtida através de Manager.openSession, que mantém a conexão
+ * com a fonte de dados aberta desde a sua criação até a chamada a close. Todas as
+ * operações realizadas pela sessão, inclusive as transações iniciadas por ela,
+ * utilizam a mesma conexão, evitando o custo de abrir e fechar a conexão a cada
+ * operação. Toda sessão aberta deve ser fechada, preferencialmente em um bloco
+ * finally.
+ * Enquanto a sessão estiver aberta, cada entidade é instanciada uma única vez por
+ * classe e id: carregamentos repetidos retornam a mesma instância sem acessar a
+ * fonte de dados, e as consultas reutilizam as instâncias já carregadas em vez de
+ * sobrescrevê-las. A sessão deve ser utilizada pela thread que a abriu.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public interface Session extends Manager {
+
+	/**
+	 * Fecha a sessão liberando a conexão com a fonte de dados. Chamadas
+	 * posteriores não têm efeito.
+	 */
+	public void close ();
+
+	/**
+	 * Obtém o mapa de identidade da sessão, que pode ser limpo para que as
+	 * entidades voltem a ser lidas da fonte de dados.
+	 * @return       IdentityMap
+	 */
+	public IdentityMap getIdentityMap ();
+
+	/**
+	 * Indica se a sessão ainda não foi fechada.
+	 * @return       boolean
+	 */
+	public boolean isOpen ();
+
+}
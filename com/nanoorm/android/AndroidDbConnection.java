@@ -1,13 +1,19 @@
 package com.nanoorm.android;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 
 import com.nanoorm.DbConnection;
 import com.nanoorm.DbCursor;
+import com.nanoorm.DbStatement;
 
 /**
  * Class AndroidDbConnection
+ * A conexão pode ser aberta somente para leitura e pode habilitar o write-ahead
+ * logging, para ser utilizada por uma PooledDbConnection.
  * @author Carlos Eduardo Pacheco Menezes
  */
 public class AndroidDbConnection implements DbConnection {
@@ -15,6 +21,9 @@ public class AndroidDbConnection implements DbConnection {
 	private SQLiteDatabase connection;
 	private String databasePath;
 	private Context context;
+	private boolean readOnly;
+	private boolean writeAheadLogging;
+	private Map<String, DbStatement> statements = new HashMap<String, DbStatement>();
 
 	/**
 	 * Instância um AndroidDbConnection para o banco de dados informado no parâmetro databasePath.
@@ -22,10 +31,32 @@ public class AndroidDbConnection implements DbConnection {
 	 * @param context Contexto da aplicação a ser utilizado na abertura da conexão com o banco.
 	 */
 	public AndroidDbConnection(String databasePath, Context context) {
+		this(databasePath, context, false);
+	}
+
+	/**
+	 * Instância um AndroidDbConnection para o banco de dados informado no parâmetro databasePath.
+	 * @param databasePath Caminho para o banco de dados.
+	 * @param context Contexto da aplicação a ser utilizado na abertura da conexão com o banco.
+	 * @param readOnly Indica se a conexão deve ser aberta somente para leitura.
+	 */
+	public AndroidDbConnection(String databasePath, Context context, boolean readOnly) {
 		this.databasePath = databasePath;
 		this.context = context;
+		this.readOnly = readOnly;
 		open();
 	}
+
+	/**
+	 * Habilita o write-ahead logging no banco de dados, permitindo que as conexões
+	 * de leitura executem consultas enquanto esta conexão grava. O modo é mantido ao
+	 * reabrir a conexão.
+	 */
+	public void enableWriteAheadLogging() {
+		writeAheadLogging = true;
+		if (isOpen() && !readOnly)
+			connection.enableWriteAheadLogging();
+	}
 	
 	/**
 	 * Inicia uma transação com o banco de dados.
@@ -78,8 +109,57 @@ public class AndroidDbConnection implements DbConnection {
 		return new AndroidDbCursor(connection.rawQuery(sqlQuery, null));
 	}
 
+	/**
+	 * Executa uma consulta sql parametrizada que retorna resultados.
+	 * @return       com.nanoorm.DbCursor
+	 * @param        sqlQuery Consulta a ser executada.
+	 * @param        args Valores dos parâmetros da consulta, na ordem em que aparecem.
+	 */
+	public DbCursor executeSqlQuery (String sqlQuery, Object... args) {
+		if (!isOpen())
+			throw new IllegalStateException("Para executar uma instrução sql a conexão deve ser aberta antes.");
+		
+		String[] selectionArgs = new String[args.length];
+		for (int i = 0; i < args.length; i++)
+			selectionArgs[i] = args[i] == null ? null : args[i].toString();
+		
+		return new AndroidDbCursor(connection.rawQuery(sqlQuery, selectionArgs));
+	}
+
+	/**
+	 * Executa uma consulta sql parametrizada cujo resultado será percorrido uma única
+	 * vez. No Android os cursores já obtêm as linhas em janelas de tamanho fixo.
+	 * @return       com.nanoorm.DbCursor
+	 * @param        sqlQuery Consulta a ser executada.
+	 * @param        args Valores dos parâmetros da consulta, na ordem em que aparecem.
+	 */
+	public DbCursor executeStreamingQuery (String sqlQuery, Object... args) {
+		return executeSqlQuery(sqlQuery, args);
+	}
+
+	/**
+	 * Compila uma instrução sql parametrizada, reutilizando a instrução já compilada
+	 * para o mesmo texto sql enquanto a conexão estiver aberta.
+	 * @return       com.nanoorm.DbStatement
+	 * @param        sql Instrução sql a ser compilada.
+	 */
+	public DbStatement compileStatement (String sql) {
+		if (!isOpen())
+			throw new IllegalStateException("Para compilar uma instrução sql a conexão deve ser aberta antes.");
+		
+		DbStatement statement = statements.get(sql);
+		if (statement == null) {
+			statement = new AndroidDbStatement(connection.compileStatement(sql));
+			statements.put(sql, statement);
+		}
+		return statement;
+	}
+
 	@Override
 	public void close() {
+		for (DbStatement statement : statements.values())
+			statement.close();
+		statements.clear();
 		connection.close();
 	}
 
@@ -90,11 +170,19 @@ public class AndroidDbConnection implements DbConnection {
 
 	@Override
 	public void open() {
-		if (connection == null || !isOpen())
+		if (connection != null && isOpen())
+			return;
+		if (readOnly) {
+			String path = context != null ? context.getDatabasePath(databasePath).getPath() : databasePath;
+			connection = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY);
+		} else {
 			if (context != null)
 				connection = context.openOrCreateDatabase(databasePath, SQLiteDatabase.OPEN_READWRITE, null);
 			else
 				connection = SQLiteDatabase.openOrCreateDatabase(databasePath, null);
+			if (writeAheadLogging)
+				connection.enableWriteAheadLogging();
+		}
 	}
 
 }
\ No newline at end of file
@@ -1,10 +1,9 @@
 package com.nanoorm.android;
 
-import java.util.Calendar;
-
 import android.database.Cursor;
 
 import com.nanoorm.DbCursor;
+import com.nanoorm.types.TypeCodecRegistry;
 
 
 /**
@@ -23,6 +22,14 @@ public class AndroidDbCursor implements DbCursor {
 		first();
 	}
 
+	/**
+	 * Indica se o cursor está posicionado sobre uma linha.
+	 * @return       boolean
+	 */
+	public boolean hasRow () {
+		return !cursor.isBeforeFirst() && !cursor.isAfterLast();
+	}
+
 	/**
 	 * Move o cursor para a próxima linha.
 	 * @return       boolean
@@ -79,33 +86,7 @@ public class AndroidDbCursor implements DbCursor {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T getValue(int columnIndex, Class<T> typeOfValue) {
-		Object value = null;
-		if ("String".equalsIgnoreCase(typeOfValue.getSimpleName()))
-			value = cursor.getString(columnIndex);
-		else if ("Double".equalsIgnoreCase(typeOfValue.getSimpleName()))
-			value = cursor.getDouble(columnIndex);
-		else if ("Integer".equals(typeOfValue.getSimpleName()) || "int".equals(typeOfValue.getSimpleName()))
-			value = cursor.getInt(columnIndex);
-		else if ("Long".equalsIgnoreCase(typeOfValue.getSimpleName())) 
-			value = cursor.getLong(columnIndex);
-		else if ("Short".equalsIgnoreCase(typeOfValue.getSimpleName()))
-			value = cursor.getShort(columnIndex);
-		else if ("Float".equalsIgnoreCase(typeOfValue.getSimpleName()))
-			value = cursor.getFloat(columnIndex);
-		else if ("Byte[]".equalsIgnoreCase(typeOfValue.getSimpleName()))
-			value = cursor.getBlob(columnIndex);
-		else if ("java.util.Date".equals(typeOfValue.getName()))
-			value = new java.util.Date(cursor.getLong(columnIndex));
-		else if ("java.sql.Date".equals(typeOfValue.getName()))
-			value = new java.sql.Date(cursor.getLong(columnIndex));
-		else if ("Calendar".equals(typeOfValue.getSimpleName())) {
-			Calendar calendar = Calendar.getInstance();
-			calendar.setTimeInMillis(cursor.getLong(columnIndex));
-			value = calendar;
-		} else
-			throw new IllegalArgumentException("O tipo " + typeOfValue + " não é suportado por este banco de dados.");
-		
-		return (T) value;
+		return (T) TypeCodecRegistry.getDefault().getCodec(typeOfValue).read(this, columnIndex);
 	}
 	
 	/**
@@ -118,6 +99,41 @@ public class AndroidDbCursor implements DbCursor {
 		return getValue(cursor.getColumnIndex(columnName), typeOfValue);		
 	}
 
+	@Override
+	public int getColumnIndex(String columnName) {
+		return cursor.getColumnIndex(columnName);
+	}
+
+	@Override
+	public boolean isNull(int columnIndex) {
+		return cursor.isNull(columnIndex);
+	}
+
+	@Override
+	public int getInt(int columnIndex) {
+		return cursor.getInt(columnIndex);
+	}
+
+	@Override
+	public long getLong(int columnIndex) {
+		return cursor.getLong(columnIndex);
+	}
+
+	@Override
+	public double getDouble(int columnIndex) {
+		return cursor.getDouble(columnIndex);
+	}
+
+	@Override
+	public String getString(int columnIndex) {
+		return cursor.getString(columnIndex);
+	}
+
+	@Override
+	public byte[] getBlob(int columnIndex) {
+		return cursor.getBlob(columnIndex);
+	}
+
 	@Override
 	public void close() {
 		cursor.close();
@@ -0,0 +1,73 @@
+package com.nanoorm.android;
+
+import android.database.sqlite.SQLiteStatement;
+
+import com.nanoorm.DbStatement;
+
+/**
+ * Class AndroidDbStatement
+ * Encapsula a classe SQLiteStatement do Android.
+ */
+public class AndroidDbStatement implements DbStatement {
+
+	private SQLiteStatement statement;
+
+	/**
+	 * Instância um AndroidDbStatement com a instrução compilada informada no parâmetro statement.
+	 * @param statement Instrução compilada a ser encapsulada.
+	 */
+	public AndroidDbStatement(SQLiteStatement statement) {
+		this.statement = statement;
+	}
+
+	@Override
+	public void bindNull(int index) {
+		statement.bindNull(index);
+	}
+
+	@Override
+	public void bindLong(int index, long value) {
+		statement.bindLong(index, value);
+	}
+
+	@Override
+	public void bindDouble(int index, double value) {
+		statement.bindDouble(index, value);
+	}
+
+	@Override
+	public void bindString(int index, String value) {
+		statement.bindString(index, value);
+	}
+
+	@Override
+	public void bindBlob(int index, byte[] value) {
+		statement.bindBlob(index, value);
+	}
+
+	@Override
+	public void clearBindings() {
+		statement.clearBindings();
+	}
+
+	@Override
+	public void execute() {
+		statement.execute();
+	}
+
+	@Override
+	public long executeInsert() {
+		return statement.executeInsert();
+	}
+
+	@Override
+	public int executeUpdateDelete() {
+		return statement.executeUpdateDelete();
+	}
+
+	@Override
+	public void close() {
+		statement.close();
+	}
+
+}
@@ -2,47 +2,101 @@ package com.nanoorm.android;
 
 import com.nanoorm.DbConnection;
 import com.nanoorm.DbCursor;
+import com.nanoorm.ids.IdGenerator;
+import com.nanoorm.mappings.ClassMap;
 
 /**
  * Representa uma sequência geradora de chaves primárias para a plataforma Android.
+ * A conexão só é aberta e fechada pela sequência quando não estiver aberta, para
+ * não invalidar as instruções compiladas pela fonte de dados.
+ * A existência da tabela é verificada uma única vez por instância, e novamente
+ * após reset, pois a sua criação é desfeita junto com a transação em alguns bancos
+ * (ex.: SQLite). Cada chave é obtida incrementando a sequência e lendo o novo
+ * valor na mesma transação.
+ * Corresponde à estratégia GenerationType.SEQUENCE.
  */
-public class AndroidSequence {
+public class AndroidSequence implements IdGenerator {
+
+	private static final String INCREMENT = "UPDATE nanoORMSequence SET idSequence = idSequence + 1";
+	private static final String SELECT = "SELECT idSequence FROM nanoORMSequence";
+
+	private volatile boolean sequenceChecked;
 
 	private static boolean sequenceExists(DbConnection connection) {
-		connection.open();
 	 	DbCursor cursor = connection.executeSqlQuery("SELECT NAME FROM SQLITE_MASTER WHERE NAME LIKE \'nanoORMSequence\'");
 	 	int sequenceLength = cursor.getRowCount();
 	 	cursor.close();
-	 	connection.close();
 	 	return sequenceLength > 0;
 	}
 	
 	private static void buildSequence(DbConnection connection) {
-		connection.open();
-		connection.executeSql("CREATE TABLE nanoORMSequence (idSequence INTEGER)");
-		connection.executeSql("INSERT INTO nanoORMSequence (idsequence) VALUES (0)");
-		connection.close();
+		connection.beginTransaction();
+		try {
+			if (!sequenceExists(connection)) {
+				connection.executeSql("CREATE TABLE nanoORMSequence (idSequence INTEGER)");
+				connection.executeSql("INSERT INTO nanoORMSequence (idsequence) VALUES (0)");
+			}
+			connection.commitTransaction();
+		} catch (RuntimeException e) {
+			connection.rollbackTransaction();
+			throw e;
+		}
 	}
 	
 	/**
-	 * Gera uma chave primária do tipo informado no parâmetro typeOfKey,
-	 * o tipo desejado para a chave primária deve estender Number.
-	 * @param connection Conexão a ser utilizada para a criação da chave.
-	 * @param typeOfKey Tipo desejado para a chave primária a ser gerada.
+	 * Incrementa a sequência e lê o novo valor em uma única transação. O update é
+	 * executado antes da consulta para que o banco de dados bloqueie as gravações
+	 * concorrentes até o fim da transação; com uma PooledDbConnection a consulta
+	 * também é executada na conexão de escrita.
 	 */
-	public static <T> T generateKey(DbConnection connection, Class<T> typeOfKey) {	
-		if (!sequenceExists(connection))
-			buildSequence(connection);
-		
-		connection.open();
-		DbCursor cursor = connection.executeSqlQuery("SELECT idSequence + 1 FROM nanoORMSequence");
-		T key = cursor.getValue(0, typeOfKey);
-		connection.executeSql("UPDATE nanoORMSequence SET idSequence = " +
-				key + " WHERE idSequence = " + (((Number)key).longValue() - 1));
-		cursor.close();
-		connection.close();
-		
-		return key;
+	private static <T> T nextKey(DbConnection connection, Class<T> typeOfKey) {
+		connection.beginTransaction();
+		try {
+			connection.compileStatement(INCREMENT).execute();
+			DbCursor cursor = connection.executeSqlQuery(SELECT);
+			T key;
+			try {
+				key = cursor.getValue(0, typeOfKey);
+			} finally {
+				cursor.close();
+			}
+			connection.commitTransaction();
+			return key;
+		} catch (RuntimeException e) {
+			connection.rollbackTransaction();
+			throw e;
+		}
 	}
-	
+
+	@Override
+	public void init(ClassMap<?> classMap) { }
+
+	@Override
+	public boolean isPostInsert() {
+		return false;
+	}
+
+	@Override
+	public Object generate(DbConnection connection) {
+		boolean wasOpen = connection.isOpen();
+		if (!wasOpen)
+			connection.open();
+
+		try {
+			if (!sequenceChecked) {
+				buildSequence(connection);
+				sequenceChecked = true;
+			}
+			return nextKey(connection, Long.class);
+		} finally {
+			if (!wasOpen)
+				connection.close();
+		}
+	}
+
+	@Override
+	public void reset() {
+		sequenceChecked = false;
+	}
+
 }
@@ -3,11 +3,16 @@ package com.nanoorm.android;
 import java.lang.reflect.Field;
 
 import com.nanoorm.mappings.TableMap;
+import com.nanoorm.types.TypeCodecRegistry;
 
 public class AndroidTableMap<T> extends TableMap<T> {
 
 	public AndroidTableMap(Class<T> entityClassType) {
-		super(entityClassType);		
+		this(entityClassType, TypeCodecRegistry.getDefault());
+	}
+
+	public AndroidTableMap(Class<T> entityClassType, TypeCodecRegistry typeCodecs) {
+		super(entityClassType, typeCodecs);		
 		createTableInstruction = "CREATE TABLE :table(:columns)";
 	}
 
@@ -61,21 +66,7 @@ public class AndroidTableMap<T> extends TableMap<T> {
 
 	@Override
 	protected String getSqlType(Class<?> propertyType) {
-		String value = "";
-		if ("String".equalsIgnoreCase(propertyType.getSimpleName()))
-			value = "TEXT";
-		else if ("Double".equalsIgnoreCase(propertyType.getSimpleName()) || "Float".equalsIgnoreCase(propertyType.getSimpleName()))
-			value = "REAL";
-		else if ("Integer".equals(propertyType.getSimpleName()) || "int".equals(propertyType.getSimpleName()) ||
-				"Long".equalsIgnoreCase(propertyType.getSimpleName()) || "Short".equalsIgnoreCase(propertyType.getSimpleName()) ||
-				"java.util.Date".equals(propertyType.getName()) || "java.sql.Date".equals(propertyType.getName()) ||
-				"Calendar".equals(propertyType.getSimpleName()))
-			value = "INTEGER";
-		else if ("Byte[]".equalsIgnoreCase(propertyType.getSimpleName()))
-			value = "BLOB";	
-		else
-			throw new IllegalArgumentException("O tipo " + propertyType + " não é suportado por este banco de dados.");
-		return value;
+		return typeCodecs.getCodec(propertyType).getStorageClass().name();
 	}
 	
 }
\ No newline at end of file
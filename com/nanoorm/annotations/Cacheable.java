@@ -0,0 +1,28 @@
+package com.nanoorm.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Informa que as entidades da classe devem ser mantidas no cache de segundo nível,
+ * compartilhado por todos os Managers construídos a partir da mesma Configuration.
+ * O parâmetro maxEntries limita a quantidade de entidades em cache, sendo removidas
+ * as menos utilizadas recentemente, e ttl define o tempo de validade de cada entidade
+ * em milissegundos, onde zero indica que as entidades não expiram.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+	/**
+	 * Quantidade máxima de entidades da classe mantidas em cache.
+	 */
+	int maxEntries() default 1000;
+
+	/**
+	 * Tempo de validade de cada entidade em cache, em milissegundos.
+	 */
+	long ttl() default 0;
+}
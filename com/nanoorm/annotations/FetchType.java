@@ -0,0 +1,21 @@
+package com.nanoorm.annotations;
+
+/**
+ * Estratégias de carga das entidades referenciadas por atributos @ManyToOne e
+ * @OneToOne, informadas no parâmetro fetch dessas anotações.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public enum FetchType {
+
+	/**
+	 * A entidade referenciada é carregada no primeiro acesso ao atributo, com uma
+	 * consulta adicional.
+	 */
+	LAZY,
+
+	/**
+	 * A entidade referenciada é carregada na mesma consulta da entidade que a
+	 * referencia, através de um LEFT JOIN, nas consultas realizadas com Criteria.
+	 */
+	JOIN
+}
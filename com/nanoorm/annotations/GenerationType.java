@@ -0,0 +1,33 @@
+package com.nanoorm.annotations;
+
+/**
+ * Estratégias de geração de chaves primárias disponíveis na anotação @Id.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public enum GenerationType {
+
+	/**
+	 * Chaves obtidas da tabela nanoORMSequence, compartilhada por todas as entidades.
+	 * Exige consultas ao banco a cada insert e é mantida por compatibilidade.
+	 */
+	SEQUENCE,
+
+	/**
+	 * A chave é atribuída pelo próprio banco de dados durante o insert (coluna
+	 * INTEGER PRIMARY KEY do SQLite) e obtida a partir do rowid da linha inserida.
+	 * Em outros bancos JDBC a coluna deve ser criada como auto incremento.
+	 */
+	ROWID,
+
+	/**
+	 * As chaves são reservadas em blocos de allocationSize valores por tabela,
+	 * com uma única consulta ao banco a cada bloco.
+	 */
+	HILO,
+
+	/**
+	 * Chaves crescentes geradas em memória a partir do horário corrente, sem
+	 * nenhuma consulta ao banco. Exige atributos do tipo Long ou String.
+	 */
+	TIME
+}
@@ -5,11 +5,15 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import com.nanoorm.ids.IdGenerator;
+
 /**
  * Anotação usada para definir um atributo que representa a chave primária da tabela, sendo que apenas
  * atributos do tipo Serializable podem portar esta anotação.
  * O parâmetro autoGenerate é usado para informar que o valor da
  * chave deve ser gerado ou não pelo framework sua declaração é opcional e o valor padrão é true.
+ * O parâmetro strategy define como a chave é gerada, podendo ser substituído por uma
+ * implementação própria de IdGenerator informada no parâmetro generator.
  * @author Carlos Eduardo Pacheco Menezes
  */
 @Target(ElementType.FIELD)
@@ -19,4 +23,20 @@ public @interface Id {
 	 * Define se o valor da chave primária deve ser gerado pelo framework.
 	 */
 	boolean autoGenerate() default true;
+
+	/**
+	 * Define a estratégia de geração da chave primária.
+	 */
+	GenerationType strategy() default GenerationType.SEQUENCE;
+
+	/**
+	 * Quantidade de chaves reservadas por bloco na estratégia HILO.
+	 */
+	int allocationSize() default 100;
+
+	/**
+	 * Gerador de chaves próprio, que quando informado substitui o parâmetro strategy.
+	 * A classe deve possuir um construtor sem parâmetros.
+	 */
+	Class<? extends IdGenerator> generator() default IdGenerator.class;
 }
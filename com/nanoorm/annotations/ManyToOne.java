@@ -12,5 +12,8 @@ import java.lang.annotation.Target;
 @Target(ElementType.FIELD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ManyToOne {
-	
+	/**
+	 * Estratégia de carga da entidade referenciada.
+	 */
+	FetchType fetch() default FetchType.LAZY;
 }
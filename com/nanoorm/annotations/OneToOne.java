@@ -9,4 +9,9 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface OneToOne {
 	String mappedBy() default "";
+	/**
+	 * Estratégia de carga da entidade referenciada, considerada apenas no lado
+	 * dono do relacionamento.
+	 */
+	FetchType fetch() default FetchType.LAZY;
 }
@@ -0,0 +1,45 @@
+package com.nanoorm.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Informa que as gravações das entidades da classe devem ser mantidas em um buffer
+ * em memória e gravadas em segundo plano. Gravações repetidas da mesma entidade são
+ * combinadas em uma única instrução. O buffer é gravado em uma transação a cada
+ * flushInterval milissegundos, ou assim que atingir batchSize entidades. Ao atingir
+ * maxEntries entidades, a gravação que excederia o limite grava o buffer antes de
+ * retornar.
+ * As gravações executadas durante uma transação, e as inserções de entidades cujo
+ * id é gerado pelo banco de dados, não utilizam o buffer.
+ * O buffer é utilizado somente quando a Configuration define conexões de leitura
+ * (setReadConnections), isto é, com uma PooledDbConnection, cuja conexão de escrita
+ * é reservada à thread de gravação em segundo plano durante a sua transação. Com
+ * uma única conexão, que não pode ser compartilhada entre threads, as entidades
+ * são gravadas imediatamente.
+ * As falhas da gravação em segundo plano são registradas no log, mantidas para
+ * serem lançadas pela próxima chamada a DataSource.flush ou shutdown, e suspendem
+ * a gravação em segundo plano após falhas consecutivas.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WriteBehind {
+	/**
+	 * Quantidade máxima de entidades da classe mantidas no buffer.
+	 */
+	int maxEntries() default 1000;
+
+	/**
+	 * Quantidade de entidades no buffer a partir da qual a gravação em segundo plano
+	 * é iniciada, sem aguardar flushInterval.
+	 */
+	int batchSize() default 100;
+
+	/**
+	 * Intervalo, em milissegundos, entre as gravações em segundo plano.
+	 */
+	long flushInterval() default 1000;
+}
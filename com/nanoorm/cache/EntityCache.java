@@ -0,0 +1,91 @@
+package com.nanoorm.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.nanoorm.annotations.Cacheable;
+
+/**
+ * Class EntityCache
+ * Cache de segundo nível de uma Configuration, compartilhado por todos os Managers
+ * construídos a partir dela. Cada classe anotada com @Cacheable possui uma região
+ * própria, criada no primeiro acesso, que associa o id de cada entidade ao seu
+ * estado desidratado (ClassMap.getState). Por armazenar apenas o estado, cada
+ * carregamento a partir do cache obtém uma nova instância da entidade, que pode ser
+ * alterada sem afetar o cache.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class EntityCache {
+
+	private ConcurrentMap<Class<?>, LruCache<Object, Object[]>> regions = new ConcurrentHashMap<Class<?>, LruCache<Object, Object[]>>();
+
+	/**
+	 * Obtém a região de cache da classe informada.
+	 * @return       LruCache A região ou null caso a classe não seja anotada com @Cacheable.
+	 * @param        entityClass Classe das entidades.
+	 */
+	public LruCache<Object, Object[]> getRegion(Class<?> entityClass) {
+		LruCache<Object, Object[]> region = regions.get(entityClass);
+		if (region == null) {
+			Cacheable cacheable = entityClass.getAnnotation(Cacheable.class);
+			if (cacheable == null)
+				return null;
+
+			region = new LruCache<Object, Object[]>(cacheable.maxEntries(), cacheable.ttl());
+			LruCache<Object, Object[]> existing = regions.putIfAbsent(entityClass, region);
+			if (existing != null)
+				region = existing;
+		}
+		return region;
+	}
+
+	/**
+	 * Remove do cache a entidade da classe e id informados.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public void evict(Class<?> entityClass, Object id) {
+		LruCache<Object, Object[]> region = regions.get(entityClass);
+		if (region != null && id != null)
+			region.remove(id);
+	}
+
+	/**
+	 * Remove do cache todas as entidades da classe informada.
+	 * @param        entityClass Classe das entidades.
+	 */
+	public void evictAll(Class<?> entityClass) {
+		LruCache<Object, Object[]> region = regions.get(entityClass);
+		if (region != null)
+			region.clear();
+	}
+
+	/**
+	 * Remove todas as entidades do cache.
+	 */
+	public void clear() {
+		for (LruCache<Object, Object[]> region : regions.values())
+			region.clear();
+	}
+
+	/**
+	 * Obtém a quantidade de entidades encontradas no cache, somando todas as regiões.
+	 */
+	public long getHitCount() {
+		long hits = 0;
+		for (LruCache<Object, Object[]> region : regions.values())
+			hits += region.getHitCount();
+		return hits;
+	}
+
+	/**
+	 * Obtém a quantidade de entidades não encontradas no cache, somando todas as regiões.
+	 */
+	public long getMissCount() {
+		long misses = 0;
+		for (LruCache<Object, Object[]> region : regions.values())
+			misses += region.getMissCount();
+		return misses;
+	}
+
+}
@@ -0,0 +1,237 @@
+package com.nanoorm.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class LruCache
+ * Cache limitado por quantidade de entradas, com remoção das entradas menos
+ * utilizadas recentemente (LRU) e validade opcional por entrada. As entradas são
+ * distribuídas entre segmentos de acordo com o hash da chave, cada um com o seu
+ * próprio bloqueio, de forma que threads que acessam segmentos diferentes não
+ * concorram entre si.
+ * Cada segmento mantém um contador de invalidações utilizado por putFromLoad, que
+ * descarta os valores lidos da fonte de dados antes de uma invalidação concorrente
+ * no mesmo segmento; invalidações de chaves de outros segmentos não descartam a
+ * leitura.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class LruCache<K, V> {
+
+	private static final int MAX_SEGMENTS = 16;
+
+	private static final class CacheEntry<V> {
+		private V value;
+		private long expiresAt;
+
+		private CacheEntry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private static final class Segment<K, V> extends LinkedHashMap<K, CacheEntry<V>> {
+
+		private static final long serialVersionUID = 1L;
+		private int capacity;
+		private long invalidations;
+
+		private Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	private Segment<K, V>[] segments;
+	private long ttl;
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constrói um cache com a capacidade e a validade informadas.
+	 * @param        maxEntries Quantidade máxima de entradas, deve ser maior que zero.
+	 * @param        ttl Validade das entradas em milissegundos, ou zero para entradas
+	 * que não expiram.
+	 */
+	@SuppressWarnings("unchecked")
+	public LruCache(int maxEntries, long ttl) {
+		if (maxEntries <= 0)
+			throw new IllegalArgumentException("A quantidade máxima de entradas do cache deve ser maior que zero.");
+		if (ttl < 0)
+			throw new IllegalArgumentException("A validade das entradas do cache não pode ser negativa.");
+
+		int segmentCount = 1;
+		while (segmentCount < MAX_SEGMENTS && segmentCount * 2 <= maxEntries)
+			segmentCount <<= 1;
+
+		segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+			segments[i] = new Segment<K, V>((maxEntries + segmentCount - 1 - i) / segmentCount);
+		this.ttl = ttl;
+	}
+
+	private int indexFor(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return hash & (segments.length - 1);
+	}
+
+	private Segment<K, V> segmentFor(Object key) {
+		return segments[indexFor(key)];
+	}
+
+	/**
+	 * Obtém o valor associado à chave, ou null caso não exista ou tenha expirado.
+	 * @param        key Chave do valor.
+	 */
+	public V get(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		V value = null;
+
+		synchronized (segment) {
+			CacheEntry<V> entry = segment.get(key);
+			if (entry != null) {
+				if (entry.expiresAt != 0 && entry.expiresAt < System.currentTimeMillis())
+					segment.remove(key);
+				else
+					value = entry.value;
+			}
+		}
+
+		if (value == null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+		return value;
+	}
+
+	/**
+	 * Associa o valor à chave, removendo a entrada menos utilizada do segmento caso
+	 * a capacidade seja excedida.
+	 * @param        key Chave do valor.
+	 * @param        value Valor a ser armazenado.
+	 */
+	public void put(K key, V value) {
+		Segment<K, V> segment = segmentFor(key);
+		CacheEntry<V> entry = new CacheEntry<V>(value, ttl == 0 ? 0 : System.currentTimeMillis() + ttl);
+		synchronized (segment) {
+			segment.put(key, entry);
+		}
+	}
+
+	/**
+	 * Associa à chave um valor lido da fonte de dados, desde que não tenha ocorrido
+	 * nenhuma invalidação no segmento da chave desde a obtenção de stamp.
+	 * @return       boolean Indica se o valor foi armazenado.
+	 * @param        key Chave do valor.
+	 * @param        value Valor lido da fonte de dados.
+	 * @param        stamp Valor de getInvalidationStamp(key) obtido antes da leitura.
+	 */
+	public boolean putFromLoad(K key, V value, long stamp) {
+		Segment<K, V> segment = segmentFor(key);
+		CacheEntry<V> entry = new CacheEntry<V>(value, ttl == 0 ? 0 : System.currentTimeMillis() + ttl);
+		synchronized (segment) {
+			if (segment.invalidations != stamp)
+				return false;
+			segment.put(key, entry);
+			return true;
+		}
+	}
+
+	/**
+	 * Associa à chave um valor lido por uma consulta de várias chaves, desde que não
+	 * tenha ocorrido nenhuma invalidação no segmento da chave desde a obtenção de stamps.
+	 * @return       boolean Indica se o valor foi armazenado.
+	 * @param        key Chave do valor.
+	 * @param        value Valor lido da fonte de dados.
+	 * @param        stamps Valor de getInvalidationStamps obtido antes da leitura.
+	 */
+	public boolean putFromLoad(K key, V value, long[] stamps) {
+		return putFromLoad(key, value, stamps[indexFor(key)]);
+	}
+
+	/**
+	 * Obtém o contador de invalidações do segmento da chave, a ser informado em
+	 * putFromLoad.
+	 * @param        key Chave que será lida da fonte de dados.
+	 */
+	public long getInvalidationStamp(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			return segment.invalidations;
+		}
+	}
+
+	/**
+	 * Obtém os contadores de invalidações de todos os segmentos, a serem informados
+	 * em putFromLoad quando as chaves lidas não são conhecidas antes da leitura.
+	 */
+	public long[] getInvalidationStamps() {
+		long[] stamps = new long[segments.length];
+		for (int i = 0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				stamps[i] = segments[i].invalidations;
+			}
+		}
+		return stamps;
+	}
+
+	/**
+	 * Remove o valor associado à chave.
+	 * @param        key Chave do valor.
+	 */
+	public void remove(K key) {
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment) {
+			segment.invalidations++;
+			segment.remove(key);
+		}
+	}
+
+	/**
+	 * Remove todos os valores do cache.
+	 */
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.invalidations++;
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * Obtém a quantidade de entradas armazenadas, incluindo as expiradas que ainda
+	 * não foram removidas.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Obtém a quantidade de chamadas a get que encontraram um valor.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Obtém a quantidade de chamadas a get que não encontraram um valor.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+}
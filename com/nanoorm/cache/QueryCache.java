@@ -0,0 +1,279 @@
+package com.nanoorm.cache;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class QueryCache
+ * Cache de resultados de consultas, indexado pela instrução sql e pelos valores dos
+ * seus parâmetros. Cada tabela possui um contador de versão, incrementado por
+ * invalidate sempre que a tabela é alterada; os resultados guardam a versão das
+ * tabelas consultadas no momento em que a consulta foi executada e são descartados
+ * quando alguma delas muda, sem que seja necessário percorrer o cache.
+ * O cache é limitado pela quantidade de resultados e pelo tamanho aproximado, em
+ * bytes, dos valores armazenados, sendo removidos os resultados menos utilizados
+ * recentemente.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class QueryCache {
+
+	/**
+	 * Quantidade padrão de resultados mantidos em cache.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 256;
+
+	/**
+	 * Tamanho aproximado padrão, em bytes, dos resultados mantidos em cache.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+	private static final class Key {
+		private String sql;
+		private Object[] args;
+		private int hash;
+
+		private Key(String sql, Object[] args) {
+			this.sql = sql;
+			this.args = args;
+			this.hash = 31 * sql.hashCode() + Arrays.deepHashCode(args);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key))
+				return false;
+			Key key = (Key) other;
+			return hash == key.hash && sql.equals(key.sql) && Arrays.deepEquals(args, key.args);
+		}
+	}
+
+	private static final class Result {
+		private Object value;
+		private String[] tables;
+		private long[] versions;
+		private long size;
+
+		private Result(Object value, String[] tables, long[] versions, long size) {
+			this.value = value;
+			this.tables = tables;
+			this.versions = versions;
+			this.size = size;
+		}
+	}
+
+	private LinkedHashMap<Key, Result> results = new LinkedHashMap<Key, Result>(16, 0.75f, true);
+	private ConcurrentMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<String, AtomicLong>();
+	private int maxEntries;
+	private long maxBytes;
+	private long bytes;
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constrói um cache com os limites padrão.
+	 */
+	public QueryCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Constrói um cache com os limites informados.
+	 * @param        maxEntries Quantidade máxima de resultados, deve ser maior que zero.
+	 * @param        maxBytes Tamanho aproximado máximo dos resultados, em bytes.
+	 */
+	public QueryCache(int maxEntries, long maxBytes) {
+		setLimits(maxEntries, maxBytes);
+	}
+
+	/**
+	 * Redefine os limites do cache, removendo os resultados excedentes.
+	 * @param        maxEntries Quantidade máxima de resultados, deve ser maior que zero.
+	 * @param        maxBytes Tamanho aproximado máximo dos resultados, em bytes.
+	 */
+	public synchronized void setLimits(int maxEntries, long maxBytes) {
+		if (maxEntries <= 0 || maxBytes <= 0)
+			throw new IllegalArgumentException("Os limites do cache de consultas devem ser maiores que zero.");
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		evict();
+	}
+
+	private AtomicLong versionOf(String table) {
+		String name = table.toLowerCase();
+		AtomicLong version = tableVersions.get(name);
+		if (version == null) {
+			version = new AtomicLong();
+			AtomicLong existing = tableVersions.putIfAbsent(name, version);
+			if (existing != null)
+				version = existing;
+		}
+		return version;
+	}
+
+	/**
+	 * Obtém a versão corrente das tabelas informadas, que deve ser obtida antes da
+	 * execução da consulta e informada em put.
+	 * @param        tables Tabelas consultadas.
+	 */
+	public long[] getVersions(String... tables) {
+		long[] versions = new long[tables.length];
+		for (int i = 0; i < tables.length; i++)
+			versions[i] = versionOf(tables[i]).get();
+		return versions;
+	}
+
+	/**
+	 * Obtém o resultado da consulta informada, ou null caso não esteja em cache ou
+	 * alguma das tabelas consultadas tenha sido alterada.
+	 * @param        sql Instrução sql da consulta.
+	 * @param        args Valores dos parâmetros da consulta.
+	 */
+	public Object get(String sql, Object... args) {
+		Key key = new Key(sql, args);
+		Object value = null;
+
+		synchronized (this) {
+			Result result = results.get(key);
+			if (result != null) {
+				if (isCurrent(result))
+					value = result.value;
+				else
+					remove(key);
+			}
+		}
+
+		if (value == null)
+			misses.incrementAndGet();
+		else
+			hits.incrementAndGet();
+		return value;
+	}
+
+	/**
+	 * Armazena o resultado da consulta informada. O resultado é descartado caso
+	 * alguma das tabelas tenha sido alterada desde a obtenção de versions, ou caso
+	 * o seu tamanho exceda o limite do cache.
+	 * @param        sql Instrução sql da consulta.
+	 * @param        args Valores dos parâmetros da consulta.
+	 * @param        value Resultado da consulta, que não deve ser alterado após armazenado.
+	 * @param        tables Tabelas consultadas.
+	 * @param        versions Versões das tabelas obtidas por getVersions antes da consulta.
+	 */
+	public void put(String sql, Object[] args, Object value, String[] tables, long[] versions) {
+		Result result = new Result(value, tables, versions, estimateSize(sql) + estimateSize(args) + estimateSize(value));
+		if (!isCurrent(result))
+			return;
+
+		synchronized (this) {
+			if (result.size > maxBytes)
+				return;
+			Key key = new Key(sql, args);
+			remove(key);
+			results.put(key, result);
+			bytes += result.size;
+			evict();
+		}
+	}
+
+	/**
+	 * Invalida todos os resultados que consultaram a tabela informada.
+	 * @param        table Nome da tabela alterada.
+	 */
+	public void invalidate(String table) {
+		versionOf(table).incrementAndGet();
+	}
+
+	/**
+	 * Remove todos os resultados do cache.
+	 */
+	public synchronized void clear() {
+		results.clear();
+		bytes = 0;
+	}
+
+	private boolean isCurrent(Result result) {
+		for (int i = 0; i < result.tables.length; i++)
+			if (versionOf(result.tables[i]).get() != result.versions[i])
+				return false;
+		return true;
+	}
+
+	private void remove(Key key) {
+		Result removed = results.remove(key);
+		if (removed != null)
+			bytes -= removed.size;
+	}
+
+	private void evict() {
+		Iterator<Result> eldest = results.values().iterator();
+		while ((results.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+			bytes -= eldest.next().size;
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Estima o tamanho em memória do valor informado, considerando os tipos
+	 * utilizados pelos estados das entidades e pelos parâmetros das consultas.
+	 */
+	private static long estimateSize(Object value) {
+		if (value == null)
+			return 8;
+		if (value instanceof String)
+			return 40 + 2L * ((String) value).length();
+		if (value instanceof byte[])
+			return 16 + ((byte[]) value).length;
+		if (value instanceof Object[]) {
+			long size = 16;
+			for (Object element : (Object[]) value)
+				size += 8 + estimateSize(element);
+			return size;
+		}
+		if (value instanceof List) {
+			long size = 40;
+			for (Object element : (List<?>) value)
+				size += 8 + estimateSize(element);
+			return size;
+		}
+		return 24;
+	}
+
+	/**
+	 * Obtém a quantidade de resultados armazenados.
+	 */
+	public synchronized int size() {
+		return results.size();
+	}
+
+	/**
+	 * Obtém o tamanho aproximado, em bytes, dos resultados armazenados.
+	 */
+	public synchronized long getEstimatedSize() {
+		return bytes;
+	}
+
+	/**
+	 * Obtém a quantidade de consultas cujo resultado foi encontrado no cache.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Obtém a quantidade de consultas cujo resultado não foi encontrado no cache.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+}
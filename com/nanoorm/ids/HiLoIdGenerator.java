@@ -0,0 +1,115 @@
+package com.nanoorm.ids;
+
+import com.nanoorm.DbConnection;
+import com.nanoorm.DbCursor;
+import com.nanoorm.DbStatement;
+import com.nanoorm.mappings.ClassMap;
+
+/**
+ * Class HiLoIdGenerator
+ * Reserva as chaves em blocos de allocationSize valores por tabela. O valor "hi"
+ * de cada tabela é mantido na tabela nanoORMHiLo e incrementado uma vez por bloco;
+ * as chaves do bloco são entregues em memória, sem acesso ao banco.
+ * Os blocos reservados e não utilizados até o fim da aplicação são descartados.
+ * A reserva é gravada em uma transação aninhada à transação da conexão, caso
+ * exista, e é desfeita junto com ela: o bloco em memória é então descartado por
+ * reset, e um valor "hi" já utilizado por este gerador nunca é reutilizado, mesmo
+ * que o banco de dados o devolva novamente. A criação da tabela nanoORMHiLo,
+ * desfeita junto com a transação em alguns bancos (ex.: SQLite), é verificada
+ * novamente após reset.
+ */
+public class HiLoIdGenerator implements IdGenerator {
+
+	private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS nanoORMHiLo (tableName VARCHAR(255) PRIMARY KEY, nextHi BIGINT)";
+	private static final String UPDATE_HI = "UPDATE nanoORMHiLo SET nextHi = nextHi + 1 WHERE tableName = ?";
+	private static final String INSERT_HI = "INSERT INTO nanoORMHiLo (tableName, nextHi) VALUES (?, 1)";
+	private static final String SELECT_HI = "SELECT nextHi FROM nanoORMHiLo WHERE tableName = ?";
+	private static final String SET_HI = "UPDATE nanoORMHiLo SET nextHi = ? WHERE tableName = ?";
+
+	private int allocationSize;
+	private String tableName;
+	private volatile boolean tableChecked;
+	private long next = 1;
+	private long max = 0;
+	private long lastHi = -1;
+
+	/**
+	 * @param allocationSize Quantidade de chaves reservadas por bloco.
+	 */
+	public HiLoIdGenerator(int allocationSize) {
+		if (allocationSize <= 0)
+			throw new IllegalArgumentException("O tamanho do bloco de chaves deve ser maior que zero.");
+		this.allocationSize = allocationSize;
+	}
+
+	@Override
+	public void init(ClassMap<?> classMap) {
+		this.tableName = classMap.getTableName();
+	}
+
+	@Override
+	public boolean isPostInsert() {
+		return false;
+	}
+
+	@Override
+	public synchronized Object generate(DbConnection connection) {
+		if (next > max)
+			allocate(connection);
+		return Long.valueOf(next++);
+	}
+
+	/**
+	 * Reserva o próximo bloco de chaves da tabela.
+	 */
+	private void allocate(DbConnection connection) {
+		if (!tableChecked) {
+			connection.executeSql(CREATE_TABLE);
+			tableChecked = true;
+		}
+
+		long hi;
+		connection.beginTransaction();
+		try {
+			DbStatement update = connection.compileStatement(UPDATE_HI);
+			update.bindString(1, tableName);
+			if (update.executeUpdateDelete() == 0) {
+				DbStatement insert = connection.compileStatement(INSERT_HI);
+				insert.bindString(1, tableName);
+				insert.executeInsert();
+				hi = 0;
+			} else {
+				DbCursor cursor = connection.executeSqlQuery(SELECT_HI, tableName);
+				try {
+					hi = cursor.getLong(0) - 1;
+				} finally {
+					cursor.close();
+				}
+			}
+			if (hi <= lastHi) {
+				// A reserva de um bloco já utilizado foi desfeita junto com a transação externa.
+				hi = lastHi + 1;
+				DbStatement set = connection.compileStatement(SET_HI);
+				set.bindLong(1, hi + 1);
+				set.bindString(2, tableName);
+				set.executeUpdateDelete();
+			}
+			connection.commitTransaction();
+		} catch (RuntimeException e) {
+			connection.rollbackTransaction();
+			throw e;
+		}
+
+		lastHi = hi;
+		next = hi * allocationSize + 1;
+		max = (hi + 1) * allocationSize;
+	}
+
+	@Override
+	public synchronized void reset() {
+		next = 1;
+		max = 0;
+		tableChecked = false;
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.nanoorm.ids;
+
+import com.nanoorm.DbConnection;
+import com.nanoorm.mappings.ClassMap;
+
+/**
+ * Interface IdGenerator
+ * Gerador de chaves primárias das entidades cujo atributo @Id possui autoGenerate
+ * habilitado. Cada ClassMap possui a sua própria instância, que pode manter
+ * estado entre os inserts da entidade (ex.: blocos de chaves reservados).
+ */
+public interface IdGenerator {
+
+	/**
+	 * Inicializa o gerador para o mapeamento informado. É chamado uma única vez,
+	 * após o mapeamento da classe estar concluído.
+	 * @param classMap Mapeamento da entidade cujas chaves serão geradas.
+	 */
+	public void init(ClassMap<?> classMap);
+
+	/**
+	 * Indica se a chave é atribuída pelo banco de dados durante o insert. Neste caso
+	 * a coluna da chave não faz parte da instrução insert e o valor é obtido a partir
+	 * do retorno de DbStatement.executeInsert.
+	 */
+	public boolean isPostInsert();
+
+	/**
+	 * Gera a chave primária de uma nova entidade. Não é chamado quando isPostInsert
+	 * retorna true.
+	 * @param connection Conexão aberta da fonte de dados, para geradores que consultam o banco.
+	 * @return Object A chave gerada, que será convertida para o tipo do atributo @Id.
+	 */
+	public Object generate(DbConnection connection);
+
+	/**
+	 * Descarta as chaves reservadas em memória pelo gerador. É chamado ao fim da
+	 * transação mais externa da fonte de dados, quando ela é desfeita após utilizar
+	 * o gerador, pois a reserva e as tabelas criadas pelo gerador durante essa
+	 * transação também podem ter sido desfeitas.
+	 */
+	public void reset();
+}
@@ -0,0 +1,34 @@
+package com.nanoorm.ids;
+
+import com.nanoorm.DbConnection;
+import com.nanoorm.mappings.ClassMap;
+
+/**
+ * Class RowIdGenerator
+ * Deixa a atribuição da chave a cargo do banco de dados (rowid do SQLite ou coluna
+ * auto incremento), obtendo-a do retorno do insert, sem nenhuma instrução adicional.
+ */
+public class RowIdGenerator implements IdGenerator {
+
+	@Override
+	public void init(ClassMap<?> classMap) {
+		Class<?> type = classMap.getIdProperty().getType();
+		if (type != Long.class && type != long.class && type != Integer.class && type != int.class)
+			throw new IllegalArgumentException("A estratégia ROWID exige um atributo @Id inteiro, porém " +
+					classMap.getIdProperty().getName() + " é do tipo " + type.getName() + ".");
+	}
+
+	@Override
+	public boolean isPostInsert() {
+		return true;
+	}
+
+	@Override
+	public Object generate(DbConnection connection) {
+		throw new UnsupportedOperationException("A chave é atribuída pelo banco de dados durante o insert.");
+	}
+
+	@Override
+	public void reset() { }
+
+}
@@ -0,0 +1,48 @@
+package com.nanoorm.ids;
+
+import com.nanoorm.DbConnection;
+import com.nanoorm.mappings.ClassMap;
+
+/**
+ * Class TimeOrderedIdGenerator
+ * Gera chaves crescentes em memória compostas pelos milissegundos decorridos desde
+ * 01/01/2020 (bits superiores) e por um contador (22 bits inferiores), sem acesso
+ * ao banco de dados. As chaves são únicas por processo; aplicações com mais de um
+ * processo gravando na mesma base devem utilizar outra estratégia.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+	/** 2020-01-01T00:00:00Z em milissegundos. */
+	private static final long EPOCH = 1577836800000L;
+	private static final int COUNTER_BITS = 22;
+
+	private static long last;
+
+	@Override
+	public void init(ClassMap<?> classMap) {
+		Class<?> type = classMap.getIdProperty().getType();
+		if (type != Long.class && type != long.class && type != String.class)
+			throw new IllegalArgumentException("A estratégia TIME exige um atributo @Id do tipo Long ou String, porém " +
+					classMap.getIdProperty().getName() + " é do tipo " + type.getName() + ".");
+	}
+
+	@Override
+	public boolean isPostInsert() {
+		return false;
+	}
+
+	@Override
+	public Object generate(DbConnection connection) {
+		return Long.valueOf(nextKey());
+	}
+
+	private static synchronized long nextKey() {
+		long candidate = (System.currentTimeMillis() - EPOCH) << COUNTER_BITS;
+		last = candidate > last ? candidate : last + 1;
+		return last;
+	}
+
+	@Override
+	public void reset() { }
+
+}
@@ -0,0 +1,224 @@
+package com.nanoorm.impl;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.nanoorm.AsyncManager;
+import com.nanoorm.AsyncResult;
+import com.nanoorm.Manager;
+
+/**
+ * Class AsyncManagerImpl
+ * Executa as operações de um Manager em segundo plano. As consultas são submetidas
+ * ao executor informado na construção ou, na sua ausência, a um executor de threads
+ * virtuais quando a JVM as suporta e a um executor com uma thread por processador
+ * nos demais casos. As gravações são submetidas a um executor de uma única thread,
+ * que as executa na ordem em que foram solicitadas.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class AsyncManagerImpl implements AsyncManager {
+
+	private Manager manager;
+	private ExecutorService readExecutor;
+	private ExecutorService writeExecutor;
+	private boolean ownsReadExecutor;
+
+	/**
+	 * Constrói um AsyncManager sobre o Manager informado, utilizando o executor padrão.
+	 * @param        manager Manager que executará as operações.
+	 */
+	public AsyncManagerImpl (Manager manager) {
+		this(manager, newDefaultExecutor());
+		ownsReadExecutor = true;
+	}
+
+	/**
+	 * Constrói um AsyncManager sobre o Manager informado.
+	 * @param        manager Manager que executará as operações.
+	 * @param        executor Executor das consultas, que não é finalizado por shutdown.
+	 */
+	public AsyncManagerImpl (Manager manager, ExecutorService executor) {
+		this.manager = manager;
+		this.readExecutor = executor;
+		this.writeExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "nanoorm-async-writer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Cria o executor de threads virtuais, obtido por reflexão para que o framework
+	 * continue compatível com JVMs que não as possuem, ou um executor com uma thread
+	 * por processador.
+	 */
+	private static ExecutorService newDefaultExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (NoSuchMethodException e) {
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "nanoorm-async");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Erro ao criar o executor de threads virtuais.", e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException("Erro ao criar o executor de threads virtuais.", e.getCause());
+		}
+	}
+
+	private <V> AsyncResult<V> read(Callable<V> operation) {
+		AsyncResult<V> result = new AsyncResult<V>(operation);
+		readExecutor.execute(result);
+		return result;
+	}
+
+	private <V> AsyncResult<V> write(Callable<V> operation) {
+		AsyncResult<V> result = new AsyncResult<V>(operation);
+		writeExecutor.execute(result);
+		return result;
+	}
+
+	public <T> AsyncResult<Void> saveAsync (final T entity) {
+		return write(new Callable<Void>() {
+			public Void call() {
+				manager.save(entity);
+				return null;
+			}
+		});
+	}
+
+	public <T> AsyncResult<T> loadAsync (final Class<T> entityClass, final Serializable id) {
+		return read(new Callable<T>() {
+			public T call() {
+				return manager.load(entityClass, id);
+			}
+		});
+	}
+
+	public <T> AsyncResult<Void> deleteAsync (final T entity) {
+		return write(new Callable<Void>() {
+			public Void call() {
+				manager.delete(entity);
+				return null;
+			}
+		});
+	}
+
+	public <T> AsyncResult<Void> updateAsync (final T entity) {
+		return write(new Callable<Void>() {
+			public Void call() {
+				manager.update(entity);
+				return null;
+			}
+		});
+	}
+
+	public <T> AsyncResult<Void> saveAllAsync (final Collection<T> entities) {
+		return write(new Callable<Void>() {
+			public Void call() {
+				manager.saveAll(entities);
+				return null;
+			}
+		});
+	}
+
+	public <T> AsyncResult<Void> updateAllAsync (final Collection<T> entities) {
+		return write(new Callable<Void>() {
+			public Void call() {
+				manager.updateAll(entities);
+				return null;
+			}
+		});
+	}
+
+	public <T> AsyncResult<Void> deleteAllAsync (final Collection<T> entities) {
+		return write(new Callable<Void>() {
+			public Void call() {
+				manager.deleteAll(entities);
+				return null;
+			}
+		});
+	}
+
+	public <T> AsyncResult<List<T>> listAsync (final Class<T> entityClass) {
+		return read(new Callable<List<T>>() {
+			public List<T> call() {
+				return manager.list(entityClass);
+			}
+		});
+	}
+
+	public <T> AsyncResult<List<T>> listAsync (final Class<T> entityClass, final int pageSize, final Serializable afterId) {
+		return read(new Callable<List<T>>() {
+			public List<T> call() {
+				return manager.list(entityClass, pageSize, afterId);
+			}
+		});
+	}
+
+	public <T> AsyncResult<List<T>> listPageAsync (final Class<T> entityClass, final int firstResult, final int maxResults) {
+		return read(new Callable<List<T>>() {
+			public List<T> call() {
+				return manager.listPage(entityClass, firstResult, maxResults);
+			}
+		});
+	}
+
+	public <T> AsyncResult<List<T>> fetchAsync (final List<T> entities, final String... properties) {
+		return read(new Callable<List<T>>() {
+			public List<T> call() {
+				manager.fetch(entities, properties);
+				return entities;
+			}
+		});
+	}
+
+	public AsyncResult<Long> countAsync (final Class<?> entityClass) {
+		return read(new Callable<Long>() {
+			public Long call() {
+				return Long.valueOf(manager.count(entityClass));
+			}
+		});
+	}
+
+	public AsyncResult<Boolean> existsAsync (final Class<?> entityClass, final Serializable id) {
+		return read(new Callable<Boolean>() {
+			public Boolean call() {
+				return Boolean.valueOf(manager.exists(entityClass, id));
+			}
+		});
+	}
+
+	public <V> AsyncResult<V> submitRead (Callable<V> query) {
+		return read(query);
+	}
+
+	public <V> AsyncResult<V> submitWrite (Callable<V> work) {
+		return write(work);
+	}
+
+	public Manager getManager () {
+		return manager;
+	}
+
+	public void shutdown () {
+		writeExecutor.shutdown();
+		if (ownsReadExecutor)
+			readExecutor.shutdown();
+	}
+
+}
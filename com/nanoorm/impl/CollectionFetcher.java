@@ -0,0 +1,192 @@
+package com.nanoorm.impl;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.nanoorm.DataSource;
+import com.nanoorm.DbCursor;
+import com.nanoorm.FetchedList;
+import com.nanoorm.annotations.Column;
+import com.nanoorm.annotations.ManyToMany;
+import com.nanoorm.annotations.OneToMany;
+import com.nanoorm.mappings.ClassMap;
+import com.nanoorm.mappings.PropertyMap;
+
+/**
+ * Class CollectionFetcher
+ * Carrega em lote os atributos @OneToMany e @ManyToMany de uma lista de entidades.
+ * Em vez de uma consulta por entidade, os elementos das coleções de todas as
+ * entidades são obtidos com uma consulta WHERE chave IN (...) sobre a tabela dos
+ * elementos (ou sobre a tabela de junção), dividida em blocos de no máximo
+ * MAX_PARAMETERS ids, e associados às entidades em memória através da coluna
+ * adicional OWNER_COLUMN.
+ * Os blocos são completados até a próxima potência de dois repetindo o último id,
+ * para que a quantidade de instruções distintas, mantidas no cache de instruções
+ * do ClassMap, seja pequena.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+class CollectionFetcher {
+
+	/**
+	 * Quantidade máxima de parâmetros de uma instrução, limitada pelo SQLite.
+	 */
+	static final int MAX_PARAMETERS = 999;
+
+	/**
+	 * Coluna adicional que contém o id da entidade dona de cada elemento.
+	 */
+	static final String OWNER_COLUMN = "nanoorm_owner";
+
+	private DataSource dataSource;
+
+	CollectionFetcher(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * Carrega o atributo informado de todas as entidades da lista. A conexão deve
+	 * estar aberta.
+	 * @param        entities Entidades da mesma classe cujas coleções serão carregadas.
+	 * @param        property Nome do atributo @OneToMany ou @ManyToMany.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> void fetch(List<T> entities, String property) {
+		if (entities.isEmpty())
+			return;
+		Class<T> entityClass = (Class<T>) entities.get(0).getClass();
+		ClassMap<T> classMapA = dataSource.getMappingFor(entityClass);
+		Field field = getCollectionField(entityClass, property);
+		Class<?> elementClass = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+		ClassMap<?> classMapB = dataSource.getMappingFor(elementClass);
+		dataSource.flush(elementClass);
+		PropertyMap idProperty = classMapA.getIdPropertyMap();
+
+		Map<Object, List<Object>> collections = new LinkedHashMap<Object, List<Object>>();
+		for (T entity : entities) {
+			Serializable id = classMapA.getEntityId(entity);
+			if (id != null && !collections.containsKey(id))
+				collections.put(id, new FetchedList<Object>());
+		}
+
+		List<Object> ids = new ArrayList<Object>(collections.keySet());
+		for (int start = 0; start < ids.size(); start += MAX_PARAMETERS) {
+			List<Object> chunk = ids.subList(start, Math.min(start + MAX_PARAMETERS, ids.size()));
+			int parameters = 1;
+			while (parameters < chunk.size())
+				parameters <<= 1;
+			parameters = Math.min(parameters, MAX_PARAMETERS);
+
+			Object[] args = new Object[parameters];
+			for (int i = 0; i < parameters; i++)
+				args[i] = idProperty.getCodec().toSql(chunk.get(Math.min(i, chunk.size() - 1)));
+
+			String shape = "fetch " + property + " " + parameters;
+			String sql = classMapA.getCachedInstruction(shape);
+			if (sql == null) {
+				sql = buildInstruction(classMapA, classMapB, field, parameters);
+				classMapA.cacheInstruction(shape, sql);
+			}
+
+			List<Object> owners = new ArrayList<Object>();
+			DbCursor cursor = dataSource.getConnection().executeSqlQuery(sql, args);
+			List<?> elements = classMapB.buildList(cursor, OWNER_COLUMN, idProperty, owners, dataSource);
+			for (int i = 0; i < elements.size(); i++) {
+				List<Object> collection = collections.get(owners.get(i));
+				if (collection != null)
+					collection.add(elements.get(i));
+			}
+		}
+
+		for (T entity : entities) {
+			Serializable id = classMapA.getEntityId(entity);
+			if (id != null) {
+				try {
+					field.set(entity, collections.get(id));
+				} catch (IllegalAccessException e) {
+					throw new RuntimeException("Erro ao inicializar o atributo " + property + ".", e);
+				}
+			}
+		}
+	}
+
+	private Field getCollectionField(Class<?> entityClass, String property) {
+		Field field;
+		try {
+			field = entityClass.getDeclaredField(property);
+		} catch (NoSuchFieldException e) {
+			throw new IllegalArgumentException("O atributo " + property + " não pertence à classe " + entityClass.getName() + ".", e);
+		}
+		if (!field.isAnnotationPresent(OneToMany.class) && !field.isAnnotationPresent(ManyToMany.class))
+			throw new IllegalArgumentException("O atributo " + property + " não é anotado com @OneToMany ou @ManyToMany.");
+		if (!(field.getGenericType() instanceof ParameterizedType))
+			throw new IllegalArgumentException("O atributo " + property + " deve informar a classe dos elementos da coleção.");
+		field.setAccessible(true);
+		return field;
+	}
+
+	/**
+	 * Gera a instrução que obtém os elementos das coleções das entidades cujos ids
+	 * forem informados nos parâmetros, utilizando a mesma convenção de nomes de
+	 * colunas e tabelas de junção do aspecto LazyLoad.
+	 */
+	private String buildInstruction(ClassMap<?> classMapA, ClassMap<?> classMapB, Field field, int parameters) {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		String ownerColumn;
+
+		if (field.isAnnotationPresent(OneToMany.class)) {
+			String mappedBy = field.getAnnotation(OneToMany.class).mappedBy();
+			ownerColumn = classMapA.getTableName() + "_id";
+			if (!mappedBy.equals("")) {
+				Field fieldB = getDeclaredField(field, mappedBy);
+				if (fieldB.isAnnotationPresent(Column.class))
+					ownerColumn = fieldB.getAnnotation(Column.class).name();
+			}
+
+			for (String column : classMapB.getColumns())
+				sql.append(column).append(", ");
+			sql.append(ownerColumn).append(" AS ").append(OWNER_COLUMN);
+			sql.append(" FROM ").append(classMapB.getTableName());
+			sql.append(" WHERE ").append(ownerColumn).append(" IN (");
+		} else {
+			ManyToMany manyToMany = field.getAnnotation(ManyToMany.class);
+			String joinTable;
+			String inverseJoinColumn;
+			if (manyToMany.mappedBy().equals("")) {
+				joinTable = !manyToMany.joinTable().equals("") ? manyToMany.joinTable() : classMapA.getTableName() + "_" + classMapB.getTableName();
+				ownerColumn = !manyToMany.joinColumn().name().equals("") ? manyToMany.joinColumn().name() : classMapA.getTableName() + "_id";
+				inverseJoinColumn = !manyToMany.inverseJoinColumn().name().equals("") ? manyToMany.inverseJoinColumn().name() : classMapB.getTableName() + "_id";
+			} else {
+				ManyToMany owner = getDeclaredField(field, manyToMany.mappedBy()).getAnnotation(ManyToMany.class);
+				joinTable = !owner.joinTable().equals("") ? owner.joinTable() : classMapB.getTableName() + "_" + classMapA.getTableName();
+				ownerColumn = !owner.inverseJoinColumn().name().equals("") ? owner.inverseJoinColumn().name() : classMapA.getTableName() + "_id";
+				inverseJoinColumn = !owner.joinColumn().name().equals("") ? owner.joinColumn().name() : classMapB.getTableName() + "_id";
+			}
+
+			for (String column : classMapB.getColumns())
+				sql.append("b.").append(column).append(", ");
+			sql.append("j.").append(ownerColumn).append(" AS ").append(OWNER_COLUMN);
+			sql.append(" FROM ").append(classMapB.getTableName()).append(" b INNER JOIN ").append(joinTable).append(" j ON (b.");
+			sql.append(classMapB.getIdColumn()).append(" = j.").append(inverseJoinColumn).append(")");
+			sql.append(" WHERE j.").append(ownerColumn).append(" IN (");
+		}
+
+		for (int i = 0; i < parameters; i++)
+			sql.append(i == 0 ? "?" : ", ?");
+		return sql.append(")").toString();
+	}
+
+	private Field getDeclaredField(Field field, String mappedBy) {
+		Class<?> elementClass = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+		try {
+			return elementClass.getDeclaredField(mappedBy);
+		} catch (NoSuchFieldException e) {
+			throw new IllegalArgumentException("O atributo " + mappedBy + " informado em mappedBy não pertence à classe " + elementClass.getName() + ".", e);
+		}
+	}
+
+}
@@ -0,0 +1,783 @@
+package com.nanoorm.impl;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.nanoorm.Criteria;
+import com.nanoorm.Criteria.Aggregate;
+import com.nanoorm.DataSource;
+import com.nanoorm.DbCursor;
+import com.nanoorm.DbStatement;
+import com.nanoorm.Ref;
+import com.nanoorm.mappings.ClassMap;
+import com.nanoorm.mappings.PropertyMap;
+
+/**
+ * Class CriteriaImpl
+ * Implementação padrão da interface Criteria. A cada execução é montada uma chave
+ * com o formato da consulta (atributos, operadores, quantidade de valores dos
+ * operadores IN, ordenação e paginação); a instrução sql correspondente é gerada
+ * a partir do ClassMap apenas na primeira vez em que o formato é utilizado e
+ * armazenada no próprio ClassMap. As listas do operador IN são completadas até a
+ * próxima potência de dois, repetindo o último valor, para limitar a quantidade
+ * de formatos distintos.
+ * As referências carregadas por LEFT JOIN (atributos informados em fetch ou anotados
+ * com FetchType.JOIN) fazem parte do formato; nessas consultas as colunas da
+ * entidade são qualificadas com o alias t e o cache de consultas não é utilizado.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class CriteriaImpl<T> implements Criteria<T> {
+
+	private static final int MAX_PADDED_IN_SIZE = 512;
+
+	private enum Operator {
+		EQ("="), NE("<>"), GT(">"), GE(">="), LT("<"), LE("<="), LIKE("LIKE"),
+		BETWEEN(null), IN(null), IS_NULL(null), IS_NOT_NULL(null);
+
+		private String sql;
+
+		private Operator(String sql) {
+			this.sql = sql;
+		}
+	}
+
+	private static class Restriction {
+		private String property;
+		private Operator operator;
+		private Object[] values;
+
+		private Restriction(String property, Operator operator, Object... values) {
+			this.property = property;
+			this.operator = operator;
+			this.values = values;
+		}
+	}
+
+	private static class Order {
+		private String property;
+		private boolean descending;
+
+		private Order(String property, boolean descending) {
+			this.property = property;
+			this.descending = descending;
+		}
+	}
+
+	private Class<T> entityClass;
+	private DataSource dataSource;
+	private List<Restriction> restrictions = new ArrayList<Restriction>();
+	private List<Order> orders = new ArrayList<Order>();
+	private String[] projection;
+	private int firstResult;
+	private int maxResults = -1;
+	private boolean cacheable;
+	private String[] fetches = new String[0];
+
+	/**
+	 * Constrói um critério para a classe informada no parâmetro entityClass.
+	 * @param        entityClass Classe das entidades consultadas.
+	 * @param        dataSource Fonte de dados na qual a consulta será executada.
+	 */
+	public CriteriaImpl (Class<T> entityClass, DataSource dataSource) {
+		this.entityClass = entityClass;
+		this.dataSource = dataSource;
+	}
+
+	private Criteria<T> add(String property, Operator operator, Object... values) {
+		if (property == null)
+			throw new IllegalArgumentException("O nome do atributo deve ser informado.");
+		restrictions.add(new Restriction(property, operator, values));
+		return this;
+	}
+
+	@Override
+	public Criteria<T> eq(String property, Object value) {
+		return value == null ? isNull(property) : add(property, Operator.EQ, value);
+	}
+
+	@Override
+	public Criteria<T> ne(String property, Object value) {
+		return value == null ? isNotNull(property) : add(property, Operator.NE, value);
+	}
+
+	@Override
+	public Criteria<T> gt(String property, Object value) {
+		return add(property, Operator.GT, value);
+	}
+
+	@Override
+	public Criteria<T> ge(String property, Object value) {
+		return add(property, Operator.GE, value);
+	}
+
+	@Override
+	public Criteria<T> lt(String property, Object value) {
+		return add(property, Operator.LT, value);
+	}
+
+	@Override
+	public Criteria<T> le(String property, Object value) {
+		return add(property, Operator.LE, value);
+	}
+
+	@Override
+	public Criteria<T> between(String property, Object low, Object high) {
+		return add(property, Operator.BETWEEN, low, high);
+	}
+
+	@Override
+	public Criteria<T> in(String property, Collection<?> values) {
+		return add(property, Operator.IN, values.toArray());
+	}
+
+	@Override
+	public Criteria<T> in(String property, Object... values) {
+		return add(property, Operator.IN, values);
+	}
+
+	@Override
+	public Criteria<T> like(String property, String pattern) {
+		return add(property, Operator.LIKE, pattern);
+	}
+
+	@Override
+	public Criteria<T> isNull(String property) {
+		return add(property, Operator.IS_NULL);
+	}
+
+	@Override
+	public Criteria<T> isNotNull(String property) {
+		return add(property, Operator.IS_NOT_NULL);
+	}
+
+	@Override
+	public Criteria<T> orderBy(String property) {
+		orders.add(new Order(property, false));
+		return this;
+	}
+
+	@Override
+	public Criteria<T> orderByDesc(String property) {
+		orders.add(new Order(property, true));
+		return this;
+	}
+
+	@Override
+	public Criteria<T> setFirstResult(int firstResult) {
+		if (firstResult < 0)
+			throw new IllegalArgumentException("A posição inicial não pode ser negativa.");
+		this.firstResult = firstResult;
+		return this;
+	}
+
+	@Override
+	public Criteria<T> setMaxResults(int maxResults) {
+		if (maxResults <= 0)
+			throw new IllegalArgumentException("A quantidade máxima de resultados deve ser maior que zero.");
+		this.maxResults = maxResults;
+		return this;
+	}
+
+	@Override
+	public Criteria<T> setProjection(String... properties) {
+		this.projection = properties == null || properties.length == 0 ? null : properties;
+		return this;
+	}
+
+	@Override
+	public Criteria<T> setCacheable(boolean cacheable) {
+		this.cacheable = cacheable;
+		return this;
+	}
+
+	@Override
+	public Criteria<T> fetch(String... properties) {
+		this.fetches = properties;
+		return this;
+	}
+
+	@Override
+	public List<T> list() {
+		return list(maxResults);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> listTuples() {
+		return (List<Object[]>) (List<?>) project(null, false);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V> List<V> listValues() {
+		if (projection == null || projection.length != 1)
+			throw new IllegalStateException("A projeção deve possuir exatamente um atributo para a obtenção de valores.");
+		return (List<V>) project(null, true);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <D> List<D> listAs(Class<D> resultClass) {
+		return (List<D>) project(resultClass, false);
+	}
+
+	/**
+	 * Executa a consulta com projeção e lê as colunas selecionadas com os codecs dos
+	 * atributos, retornando os valores de cada linha como tupla, como valor simples
+	 * (scalar) ou como argumentos do construtor de resultClass.
+	 */
+	private List<Object> project(Class<?> resultClass, boolean scalar) {
+		if (projection == null)
+			throw new IllegalStateException("Os atributos da projeção devem ser informados em setProjection.");
+		ClassMap<T> classMap = dataSource.getMappingFor(entityClass);
+
+		PropertyMap[] readers = new PropertyMap[projection.length];
+		Class<?>[] types = new Class<?>[projection.length];
+		for (int i = 0; i < projection.length; i++) {
+			readers[i] = getReader(classMap, projection[i]);
+			types[i] = readers[i].getType();
+		}
+		Constructor<?> constructor = resultClass == null ? null : findConstructor(resultClass, types);
+
+		List<Object> args = new ArrayList<Object>();
+		String sql = compileSelect(classMap, args, maxResults, new String[0]);
+		List<Object> results = new ArrayList<Object>();
+
+		dataSource.flush(entityClass);
+		dataSource.open();
+		try {
+			DbCursor cursor = dataSource.getConnection().executeSqlQuery(sql, args.toArray());
+			try {
+				if (cursor.hasRow()) {
+					do {
+						if (scalar) {
+							results.add(readers[0].read(cursor, 0));
+							continue;
+						}
+						Object[] row = new Object[readers.length];
+						for (int i = 0; i < readers.length; i++)
+							row[i] = readers[i].read(cursor, i);
+						results.add(constructor == null ? row : newResult(constructor, row));
+					} while (cursor.next());
+				}
+			} finally {
+				cursor.close();
+			}
+		} finally {
+			dataSource.close();
+		}
+		return results;
+	}
+
+	/**
+	 * Obtém o mapeamento utilizado para ler a coluna do atributo: o do próprio
+	 * atributo, ou o do id da entidade referenciada para atributos REFERENCE.
+	 */
+	private PropertyMap getReader(ClassMap<T> classMap, String property) {
+		PropertyMap propertyMap = classMap.getPropertyMap(property);
+		if (propertyMap.getKind() == PropertyMap.Kind.REFERENCE)
+			return propertyMap.getReferencedIdPropertyMap();
+		return propertyMap;
+	}
+
+	@Override
+	public long count() {
+		return ((Long) aggregate(null, Aggregate.COUNT, null).get(null)).longValue();
+	}
+
+	@Override
+	public boolean exists() {
+		ClassMap<T> classMap = dataSource.getMappingFor(entityClass);
+		StringBuilder shape = new StringBuilder("exists:");
+		appendWhereShape(shape);
+
+		String sql = classMap.getCachedInstruction(shape.toString());
+		if (sql == null) {
+			StringBuilder select = new StringBuilder("SELECT 1 FROM ").append(classMap.getTableName());
+			appendWhere(classMap, select, "");
+			sql = select.append(" LIMIT 1").toString();
+			classMap.cacheInstruction(shape.toString(), sql);
+		}
+		List<Object> args = new ArrayList<Object>();
+		appendWhereArguments(classMap, args);
+
+		dataSource.flush(entityClass);
+		dataSource.open();
+		try {
+			DbCursor cursor = dataSource.getConnection().executeSqlQuery(sql, args.toArray());
+			try {
+				return cursor.hasRow();
+			} finally {
+				cursor.close();
+			}
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	@Override
+	public Number sum(String property) {
+		return (Number) aggregate(null, Aggregate.SUM, property).get(null);
+	}
+
+	@Override
+	public Double avg(String property) {
+		return (Double) aggregate(null, Aggregate.AVG, property).get(null);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V> V min(String property) {
+		return (V) aggregate(null, Aggregate.MIN, property).get(null);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V> V max(String property) {
+		return (V) aggregate(null, Aggregate.MAX, property).get(null);
+	}
+
+	@Override
+	public <K> Map<K, Long> countBy(String groupProperty) {
+		return groupBy(groupProperty, Aggregate.COUNT, null);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <K, V> Map<K, V> groupBy(String groupProperty, Aggregate function, String property) {
+		if (groupProperty == null)
+			throw new IllegalArgumentException("O atributo de agrupamento deve ser informado.");
+		return (Map<K, V>) aggregate(groupProperty, function, property);
+	}
+
+	/**
+	 * Executa a função de agregação sobre as entidades que atendem aos critérios,
+	 * retornando o resultado de cada grupo indexado pelo valor do atributo de
+	 * agrupamento, ou um único resultado com chave null quando não há agrupamento.
+	 */
+	private Map<Object, Object> aggregate(String groupProperty, Aggregate function, String property) {
+		if (property == null && function != Aggregate.COUNT)
+			throw new IllegalArgumentException("O atributo da função " + function + " deve ser informado.");
+		ClassMap<T> classMap = dataSource.getMappingFor(entityClass);
+		PropertyMap reader = property == null ? null : getReader(classMap, property);
+		PropertyMap groupReader = groupProperty == null ? null : getReader(classMap, groupProperty);
+
+		StringBuilder shape = new StringBuilder("aggregate:").append(function).append('(').append(property).append(")|group:").append(groupProperty);
+		appendWhereShape(shape);
+
+		String sql = classMap.getCachedInstruction(shape.toString());
+		if (sql == null) {
+			String groupColumn = groupProperty == null ? null : classMap.getPropertyMap(groupProperty).getColumn();
+			StringBuilder select = new StringBuilder("SELECT ");
+			if (groupColumn != null)
+				select.append(groupColumn).append(", ");
+			select.append(function).append('(').append(property == null ? "*" : classMap.getPropertyMap(property).getColumn());
+			// Alguns bancos calculam a média de colunas inteiras como inteiro.
+			select.append(function == Aggregate.AVG ? " * 1.0)" : ")");
+			select.append(" FROM ").append(classMap.getTableName());
+			appendWhere(classMap, select, "");
+			if (groupColumn != null)
+				select.append(" GROUP BY ").append(groupColumn).append(" ORDER BY ").append(groupColumn);
+			sql = select.toString();
+			classMap.cacheInstruction(shape.toString(), sql);
+		}
+		List<Object> args = new ArrayList<Object>();
+		appendWhereArguments(classMap, args);
+
+		Map<Object, Object> results = new LinkedHashMap<Object, Object>();
+		dataSource.flush(entityClass);
+		dataSource.open();
+		try {
+			DbCursor cursor = dataSource.getConnection().executeSqlQuery(sql, args.toArray());
+			try {
+				if (cursor.hasRow()) {
+					int column = groupReader == null ? 0 : 1;
+					do {
+						Object key = groupReader == null ? null : groupReader.read(cursor, 0);
+						results.put(key, readAggregate(cursor, column, function, reader));
+					} while (cursor.next());
+				}
+			} finally {
+				cursor.close();
+			}
+		} finally {
+			dataSource.close();
+		}
+		return results;
+	}
+
+	private static Object readAggregate(DbCursor cursor, int column, Aggregate function, PropertyMap reader) {
+		if (cursor.isNull(column))
+			return function == Aggregate.COUNT ? Long.valueOf(0) : null;
+
+		switch (function) {
+		case COUNT:
+			return Long.valueOf(cursor.getLong(column));
+		case AVG:
+			return Double.valueOf(cursor.getDouble(column));
+		case SUM:
+			Class<?> type = wrap(reader.getType());
+			if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class)
+				return Long.valueOf(cursor.getLong(column));
+			return Double.valueOf(cursor.getDouble(column));
+		default:
+			return reader.read(cursor, column);
+		}
+	}
+
+	@Override
+	public int delete() {
+		ClassMap<T> classMap = dataSource.getMappingFor(entityClass);
+		StringBuilder shape = new StringBuilder("delete:");
+		appendWhereShape(shape);
+
+		String sql = classMap.getCachedInstruction(shape.toString());
+		if (sql == null) {
+			StringBuilder delete = new StringBuilder("DELETE FROM ").append(classMap.getTableName());
+			appendWhere(classMap, delete, "");
+			sql = delete.toString();
+			classMap.cacheInstruction(shape.toString(), sql);
+		}
+		List<Object> args = new ArrayList<Object>();
+		appendWhereArguments(classMap, args);
+		return executeBulk(sql, args);
+	}
+
+	@Override
+	public int update(Map<String, ?> assignments) {
+		if (assignments == null || assignments.isEmpty())
+			throw new IllegalArgumentException("Os atributos a serem alterados devem ser informados.");
+		ClassMap<T> classMap = dataSource.getMappingFor(entityClass);
+		StringBuilder shape = new StringBuilder("update:");
+		List<Object> args = new ArrayList<Object>();
+		for (Map.Entry<String, ?> assignment : assignments.entrySet()) {
+			PropertyMap property = classMap.getPropertyMap(assignment.getKey());
+			if (property.getKind() == PropertyMap.Kind.ID)
+				throw new IllegalArgumentException("O id das entidades não pode ser alterado.");
+			shape.append(assignment.getKey()).append(',');
+			args.add(toSqlArgument(property, assignment.getValue()));
+		}
+		appendWhereShape(shape);
+
+		String sql = classMap.getCachedInstruction(shape.toString());
+		if (sql == null) {
+			StringBuilder update = new StringBuilder("UPDATE ").append(classMap.getTableName()).append(" SET ");
+			int i = 0;
+			for (String property : assignments.keySet())
+				update.append(i++ == 0 ? "" : ", ").append(classMap.getPropertyMap(property).getColumn()).append(" = ?");
+			appendWhere(classMap, update, "");
+			sql = update.toString();
+			classMap.cacheInstruction(shape.toString(), sql);
+		}
+		appendWhereArguments(classMap, args);
+		return executeBulk(sql, args);
+	}
+
+	/**
+	 * Executa uma instrução delete ou update em massa e descarta as instâncias e os
+	 * resultados em cache da classe, cujas linhas alteradas não são conhecidas.
+	 */
+	private int executeBulk(String sql, List<Object> args) {
+		int count;
+		dataSource.flush(entityClass);
+		dataSource.open();
+		try {
+			DbStatement statement = dataSource.getConnection().compileStatement(sql);
+			for (int i = 0; i < args.size(); i++)
+				bindArgument(statement, i + 1, args.get(i));
+			count = statement.executeUpdateDelete();
+		} finally {
+			dataSource.close();
+		}
+
+		dataSource.evictAll(entityClass);
+		return count;
+	}
+
+	private static void bindArgument(DbStatement statement, int index, Object value) {
+		if (value == null)
+			statement.bindNull(index);
+		else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+			statement.bindLong(index, ((Number) value).longValue());
+		else if (value instanceof Number)
+			statement.bindDouble(index, ((Number) value).doubleValue());
+		else if (value instanceof Boolean)
+			statement.bindLong(index, ((Boolean) value).booleanValue() ? 1 : 0);
+		else if (value instanceof byte[])
+			statement.bindBlob(index, (byte[]) value);
+		else
+			statement.bindString(index, value.toString());
+	}
+
+	private static Constructor<?> findConstructor(Class<?> resultClass, Class<?>[] types) {
+		for (Constructor<?> constructor : resultClass.getConstructors()) {
+			Class<?>[] parameters = constructor.getParameterTypes();
+			if (parameters.length != types.length)
+				continue;
+			boolean compatible = true;
+			for (int i = 0; i < parameters.length && compatible; i++)
+				compatible = wrap(parameters[i]).isAssignableFrom(wrap(types[i]));
+			if (compatible)
+				return constructor;
+		}
+		throw new IllegalArgumentException("A classe " + resultClass.getName() + " não possui um construtor público compatível com os atributos " + Arrays.toString(types) + ".");
+	}
+
+	private static Object newResult(Constructor<?> constructor, Object[] row) {
+		try {
+			return constructor.newInstance(row);
+		} catch (Exception e) {
+			throw new RuntimeException("Erro ao instanciar a classe " + constructor.getDeclaringClass().getName() + ".", e);
+		}
+	}
+
+	private static Class<?> wrap(Class<?> type) {
+		if (!type.isPrimitive())
+			return type;
+		if (type == int.class)
+			return Integer.class;
+		if (type == long.class)
+			return Long.class;
+		if (type == double.class)
+			return Double.class;
+		if (type == float.class)
+			return Float.class;
+		if (type == boolean.class)
+			return Boolean.class;
+		if (type == short.class)
+			return Short.class;
+		if (type == byte.class)
+			return Byte.class;
+		return Character.class;
+	}
+
+	@Override
+	public T uniqueResult() {
+		List<T> entities = list(maxResults < 0 ? 2 : Math.min(maxResults, 2));
+		if (entities.size() > 1)
+			throw new IllegalStateException("A consulta retornou mais de uma entidade da classe " + entityClass.getName() + ".");
+		return entities.isEmpty() ? null : entities.get(0);
+	}
+
+	private List<T> list(int limit) {
+		ClassMap<T> classMap = dataSource.getMappingFor(entityClass);
+		List<String> joins = new ArrayList<String>();
+		List<String> collections = new ArrayList<String>();
+		if (projection == null)
+			joins.addAll(Arrays.asList(classMap.getJoinFetchedProperties()));
+		for (String property : fetches) {
+			if (!isReference(classMap, property))
+				collections.add(property);
+			else if (projection == null && !joins.contains(property))
+				joins.add(property);
+		}
+		String[] joined = joins.toArray(new String[joins.size()]);
+		List<Object> args = new ArrayList<Object>();
+		String sql = compileSelect(classMap, args, limit, joined);
+
+		dataSource.flush(entityClass);
+		dataSource.open();
+		try {
+			List<T> entities;
+			if (joined.length > 0)
+				entities = classMap.buildList(dataSource.getConnection().executeSqlQuery(sql, args.toArray()), joined, dataSource);
+			else if (projection == null)
+				entities = dataSource.query(entityClass, sql, cacheable, args.toArray());
+			else
+				entities = classMap.buildList(dataSource.getConnection().executeSqlQuery(sql, args.toArray()), dataSource);
+
+			dataSource.fetch(entities, collections.toArray(new String[collections.size()]));
+			return entities;
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	private static boolean isReference(ClassMap<?> classMap, String property) {
+		for (PropertyMap propertyMap : classMap.getPropertyMaps())
+			if (propertyMap.getField().getName().equals(property))
+				return propertyMap.getKind() == PropertyMap.Kind.REFERENCE;
+		return false;
+	}
+
+	/**
+	 * Obtém a instrução select do critério, gerando-a caso o formato da consulta
+	 * ainda não tenha sido utilizado, e adiciona os valores dos parâmetros em args.
+	 * @param joined Referências a serem carregadas por LEFT JOIN.
+	 */
+	private String compileSelect(ClassMap<T> classMap, List<Object> args, int limit, String[] joined) {
+		boolean paged = limit > 0 || firstResult > 0;
+		String qualifier = joined.length > 0 ? "t." : "";
+		StringBuilder shape = new StringBuilder("select:");
+		if (projection != null)
+			shape.append(Arrays.toString(projection));
+		if (joined.length > 0)
+			shape.append("|join:").append(Arrays.toString(joined));
+		appendWhereShape(shape);
+		shape.append("|order:");
+		for (Order order : orders)
+			shape.append(order.property).append(order.descending ? " desc," : " asc,");
+		if (paged)
+			shape.append("|limit");
+
+		String sql = classMap.getCachedInstruction(shape.toString());
+		if (sql == null) {
+			StringBuilder select = new StringBuilder();
+			if (joined.length > 0)
+				select.append(classMap.buildJoinedSelect(joined, dataSource));
+			else {
+				select.append("SELECT ");
+				if (projection == null)
+					appendColumns(select, classMap.getColumns());
+				else {
+					List<String> columns = new ArrayList<String>(projection.length);
+					for (String property : projection)
+						columns.add(classMap.getPropertyMap(property).getColumn());
+					appendColumns(select, columns);
+				}
+				select.append(" FROM ").append(classMap.getTableName());
+			}
+			appendWhere(classMap, select, qualifier);
+
+			if (!orders.isEmpty()) {
+				select.append(" ORDER BY ");
+				for (int i = 0; i < orders.size(); i++) {
+					Order order = orders.get(i);
+					if (i > 0)
+						select.append(", ");
+					select.append(qualifier).append(classMap.getPropertyMap(order.property).getColumn());
+					if (order.descending)
+						select.append(" DESC");
+				}
+			}
+			if (paged)
+				select.append(" LIMIT ? OFFSET ?");
+
+			sql = select.toString();
+			classMap.cacheInstruction(shape.toString(), sql);
+		}
+
+		appendWhereArguments(classMap, args);
+		if (paged) {
+			args.add(limit > 0 ? limit : Integer.MAX_VALUE);
+			args.add(firstResult);
+		}
+		return sql;
+	}
+
+	private void appendColumns(StringBuilder sql, List<String> columns) {
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0)
+				sql.append(", ");
+			sql.append(columns.get(i));
+		}
+	}
+
+	/**
+	 * Adiciona à chave do formato da consulta os atributos e operadores das restrições.
+	 */
+	protected void appendWhereShape(StringBuilder shape) {
+		shape.append("|where:");
+		for (Restriction restriction : restrictions) {
+			shape.append(restriction.property).append(' ').append(restriction.operator);
+			if (restriction.operator == Operator.IN)
+				shape.append(paddedSize(restriction.values.length));
+			shape.append(',');
+		}
+	}
+
+	/**
+	 * Adiciona à instrução sql a cláusula WHERE correspondente às restrições.
+	 * @param qualifier Alias da tabela seguido de ponto, ou vazio.
+	 */
+	protected void appendWhere(ClassMap<T> classMap, StringBuilder sql, String qualifier) {
+		for (int i = 0; i < restrictions.size(); i++) {
+			Restriction restriction = restrictions.get(i);
+			String column = qualifier + classMap.getPropertyMap(restriction.property).getColumn();
+			sql.append(i == 0 ? " WHERE " : " AND ");
+
+			switch (restriction.operator) {
+			case BETWEEN:
+				sql.append(column).append(" BETWEEN ? AND ?");
+				break;
+			case IN:
+				int size = paddedSize(restriction.values.length);
+				if (size == 0)
+					sql.append("1 = 0");
+				else {
+					sql.append(column).append(" IN (");
+					for (int j = 0; j < size; j++)
+						sql.append(j == 0 ? "?" : ", ?");
+					sql.append(')');
+				}
+				break;
+			case IS_NULL:
+				sql.append(column).append(" IS NULL");
+				break;
+			case IS_NOT_NULL:
+				sql.append(column).append(" IS NOT NULL");
+				break;
+			default:
+				sql.append(column).append(' ').append(restriction.operator.sql).append(" ?");
+			}
+		}
+	}
+
+	/**
+	 * Adiciona em args os valores dos parâmetros das restrições, na ordem em que
+	 * aparecem na cláusula WHERE.
+	 */
+	protected void appendWhereArguments(ClassMap<T> classMap, List<Object> args) {
+		for (Restriction restriction : restrictions) {
+			PropertyMap property = classMap.getPropertyMap(restriction.property);
+			for (Object value : restriction.values)
+				args.add(restriction.operator == Operator.LIKE ? value : toSqlArgument(property, value));
+
+			if (restriction.operator == Operator.IN)
+				for (int i = restriction.values.length; i < paddedSize(restriction.values.length); i++)
+					args.add(args.get(args.size() - 1));
+		}
+	}
+
+	/**
+	 * Converte o valor informado para a representação do atributo no banco de dados.
+	 * Para atributos REFERENCE é aceita a entidade referenciada, uma Ref ou o id.
+	 */
+	private Object toSqlArgument(PropertyMap property, Object value) {
+		if (value == null)
+			return null;
+
+		if (property.getKind() == PropertyMap.Kind.REFERENCE) {
+			PropertyMap referencedId = property.getReferencedIdPropertyMap();
+			if (value instanceof Ref)
+				value = ((Ref<?>) value).getId();
+			else if (property.getReferencedType().isInstance(value))
+				value = referencedId.get(value);
+			property = referencedId;
+		}
+		return property.getCodec().toSql(property.convert(value));
+	}
+
+	private static int paddedSize(int size) {
+		if (size == 0 || size > MAX_PADDED_IN_SIZE)
+			return size;
+		int padded = 1;
+		while (padded < size)
+			padded <<= 1;
+		return padded;
+	}
+
+	protected Class<T> getEntityClass() {
+		return entityClass;
+	}
+
+	protected DataSource getDataSource() {
+		return dataSource;
+	}
+
+}
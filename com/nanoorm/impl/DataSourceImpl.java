@@ -1,26 +1,106 @@
 package com.nanoorm.impl;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import com.nanoorm.CloseableIterator;
+import com.nanoorm.Configuration;
 import com.nanoorm.DataSource;
 import com.nanoorm.DataSourceType;
 import com.nanoorm.DbConnection;
 import com.nanoorm.DbCursor;
+import com.nanoorm.DbStatement;
+import com.nanoorm.IdentityMap;
+import com.nanoorm.PooledDbConnection;
+import com.nanoorm.annotations.WriteBehind;
+import com.nanoorm.cache.EntityCache;
+import com.nanoorm.cache.LruCache;
+import com.nanoorm.cache.QueryCache;
 import com.nanoorm.mappings.ClassMap;
-import com.nanoorm.mappings.ClassMapFactory;
+import com.nanoorm.mappings.ClassMapRegistry;
+import com.nanoorm.types.TypeCodecRegistry;
 
 /**
  * Class DataSourceImpl Implementação padrão da interface DataSource.
+ * As chamadas a open e close são contadas: a conexão é aberta na primeira chamada
+ * a open e só é liberada quando todas as chamadas tiverem sido finalizadas por
+ * close, permitindo que uma Session mantenha a conexão aberta entre operações.
+ * Quando idleTimeout é maior que zero a conexão liberada permanece aberta por
+ * esse período e é fechada por uma thread auxiliar caso não seja reutilizada.
  * @author Carlos Eduardo Pacheco Menezes
  */
 public class DataSourceImpl implements DataSource {
 
-	private Map<Class<?>, ClassMap<?>> classMappings;
+	private static final Logger LOGGER = Logger.getLogger(DataSourceImpl.class.getName());
+
+	private ClassMapRegistry classMapRegistry = new ClassMapRegistry();
 	private DbConnection connection;
 	private DataSourceType dataSourceType;
+	private int batchSize = Configuration.DEFAULT_BATCH_SIZE;
+	private TypeCodecRegistry typeCodecRegistry = TypeCodecRegistry.getDefault();
+	private int openCount;
+	private long idleTimeout;
+	private ScheduledFuture<?> idleClose;
+	private EntityCache entityCache = new EntityCache();
+	private QueryCache queryCache = new QueryCache();
+	private final ThreadLocal<Transaction> transactions = new ThreadLocal<Transaction>();
+	private final ConcurrentMap<Class<?>, WriteBehindBuffer> writeBehindBuffers = new ConcurrentHashMap<Class<?>, WriteBehindBuffer>();
+	private final boolean writeBehindEnabled;
+	private volatile boolean writeBehindShutdown;
+
+	private static ScheduledExecutorService idleCloser;
+	private static ScheduledExecutorService writeBehindFlusher;
+
+	enum BatchOperation { INSERT, UPDATE, DELETE }
+
+	/**
+	 * Transação aberta pela thread corrente através desta fonte de dados, com a
+	 * quantidade de níveis aninhados ainda não finalizados e as entidades e tabelas
+	 * gravadas, cujas entradas nos caches são descartadas novamente após o fim da
+	 * transação: até lá, outras threads ainda leem os valores anteriores do banco
+	 * de dados e podem armazená-los nos caches.
+	 */
+	private static final class Transaction {
+		private int depth;
+		private Map<Class<?>, Set<Object>> writtenIds = new HashMap<Class<?>, Set<Object>>();
+		private Set<Class<?>> bulkWritten = new HashSet<Class<?>>();
+		private Set<String> writtenTables = new HashSet<String>();
+		private Set<ClassMap<?>> generatedIds = new HashSet<ClassMap<?>>();
+		private boolean rolledBack;
+
+		private void written(Class<?> entityClass, Object id, String table) {
+			Set<Object> ids = writtenIds.get(entityClass);
+			if (ids == null) {
+				ids = new HashSet<Object>();
+				writtenIds.put(entityClass, ids);
+			}
+			ids.add(id);
+			writtenTables.add(table);
+		}
+
+		private boolean isWritten(Class<?> entityClass, Object id) {
+			if (bulkWritten.contains(entityClass))
+				return true;
+			Set<Object> ids = writtenIds.get(entityClass);
+			return ids != null && ids.contains(id);
+		}
+	}
 
 	/**
 	 * Constrói uma instância de AndroidDataSource com uma conexão.
@@ -34,21 +114,77 @@ public class DataSourceImpl implements DataSource {
 	public DataSourceImpl(DbConnection connection, DataSourceType dataSourceType) {
 		this.connection = connection;
 		this.dataSourceType = dataSourceType;
-		this.classMappings = new HashMap<Class<?>, ClassMap<?>>();
+		// A gravação em segundo plano precisa de uma conexão de escrita que possa ser reservada à sua thread.
+		this.writeBehindEnabled = connection instanceof PooledDbConnection;
 	}
 
 	/**
-	 * Abre uma conexão com a fonte de dados desejada.
+	 * Abre uma conexão com a fonte de dados desejada, ou reutiliza a conexão já
+	 * aberta, cancelando o seu fechamento por inatividade.
 	 */
-	public void open() {
+	public synchronized void open() {
+		if (idleClose != null) {
+			idleClose.cancel(false);
+			idleClose = null;
+		}
 		connection.open();
+		openCount++;
 	}
 
 	/**
-	 * Fecha uma conexão ativa com a fonte de dados.
+	 * Libera a conexão obtida pela última chamada a open. A conexão é fechada
+	 * quando não houver mais chamadas a open pendentes, imediatamente ou após
+	 * idleTimeout milissegundos.
 	 */
-	public void close() {
-		connection.close();
+	public synchronized void close() {
+		if (openCount > 0 && --openCount > 0)
+			return;
+
+		if (idleTimeout <= 0 || !connection.isOpen())
+			connection.close();
+		else if (idleClose == null)
+			idleClose = getIdleCloser().schedule(new Runnable() {
+				public void run() {
+					closeIdle();
+				}
+			}, idleTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized void closeIdle() {
+		idleClose = null;
+		if (openCount == 0)
+			connection.close();
+	}
+
+	private static synchronized ScheduledExecutorService getIdleCloser() {
+		if (idleCloser == null)
+			idleCloser = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "nanoorm-idle-close");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		return idleCloser;
+	}
+
+	/**
+	 * Obtém o tempo, em milissegundos, que a conexão permanece aberta após ser
+	 * liberada por todos os seus usuários.
+	 */
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Define o tempo, em milissegundos, que a conexão permanece aberta após ser
+	 * liberada por todos os seus usuários. Zero fecha a conexão imediatamente.
+	 * @param idleTimeout Tempo de inatividade em milissegundos.
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		if (idleTimeout < 0)
+			throw new IllegalArgumentException("O tempo de inatividade não pode ser negativo.");
+		this.idleTimeout = idleTimeout;
 	}
 
 	/**
@@ -69,10 +205,21 @@ public class DataSourceImpl implements DataSource {
 	@SuppressWarnings("unchecked")
 	public <T> void save(T entity) {
 		ClassMap<T> classMap = (ClassMap<T>) getMappingFor(entity.getClass());
-		String sql = classMap.buildInsertFor(entity);
-		if (!isOpen())
-			open();
-		connection.executeSql(sql);
+		open();
+		try {
+			WriteBehindBuffer buffer = getWriteBehindBuffer(entity.getClass());
+			if (buffer != null && !classMap.isPostInsertId()) {
+				writeBehind(buffer, classMap, entity, BatchOperation.INSERT);
+				return;
+			}
+			DbStatement statement = connection.compileStatement(classMap.getInsertInstruction());
+			generatingIds(classMap);
+			classMap.bindInsert(statement, entity, connection);
+			classMap.afterInsert(entity, statement.executeInsert());
+			afterWrite(classMap, entity, false);
+		} finally {
+			close();
+		}
 	}
 
 	/**
@@ -88,13 +235,40 @@ public class DataSourceImpl implements DataSource {
 	 * @throws InstantiationException
 	 * @throws Exception
 	 */
+	@SuppressWarnings("unchecked")
 	public <T> T load(Class<T> entityClass, Serializable id) {
 		ClassMap<T> classMap = getMappingFor(entityClass);
+		Object key = classMap.getIdPropertyMap().convert(id);
 		T entity = null;
 
-		DbCursor cursor = connection.executeSqlQuery(classMap.buildSelectFor(id));		
-		entity = classMap.buildObject(cursor);
+		IdentityMap identityMap = classMapRegistry.getIdentityMap();
+		if (identityMap != null) {
+			entity = (T) identityMap.get(entityClass, key);
+			if (entity != null)
+				return entity;
+		}
+
+		WriteBehindBuffer buffer = writeBehindBuffers.get(entityClass);
+		if (buffer != null) {
+			WriteBehindBuffer.Entry pending = buffer.get(key);
+			if (pending != null)
+				return pending.operation == BatchOperation.DELETE ? null : classMap.buildObject(pending.state, this);
+		}
+
+		LruCache<Object, Object[]> region = isWritten(entityClass, key) ? null : entityCache.getRegion(entityClass);
+		long stamp = 0;
+		if (region != null) {
+			Object[] state = region.get(key);
+			if (state != null)
+				return classMap.buildObject(state, this);
+			stamp = region.getInvalidationStamp(key);
+		}
 
+		DbCursor cursor = connection.executeSqlQuery(classMap.getSelectInstruction(), id);		
+		entity = classMap.buildObject(cursor, this);
+
+		if (region != null && entity != null && !inTransaction())
+			region.putFromLoad(key, classMap.getState(entity), stamp);
 		return entity;
 	}
 
@@ -108,11 +282,22 @@ public class DataSourceImpl implements DataSource {
 	@SuppressWarnings("unchecked")
 	public <T> void delete(T entity) {
 		ClassMap<T> classMap = (ClassMap<T>) getMappingFor(entity.getClass());
-		connection.executeSql(classMap.buildDeleteFor(entity));
+		WriteBehindBuffer buffer = getWriteBehindBuffer(entity.getClass());
+		if (buffer != null) {
+			writeBehind(buffer, classMap, entity, BatchOperation.DELETE);
+			return;
+		}
+		DbStatement statement = connection.compileStatement(classMap.getDeleteInstruction());
+		classMap.bindDelete(statement, entity);
+		statement.executeUpdateDelete();
+		afterWrite(classMap, entity, true);
 	}
 
 	/**
-	 * Atualiza a entidade informada no parâmetro entity.
+	 * Atualiza a entidade informada no parâmetro entity. Entidades carregadas na
+	 * sessão corrente têm atualizadas somente as colunas alteradas desde a carga ou
+	 * a última gravação, e nenhuma instrução é executada caso nada tenha sido
+	 * alterado.
 	 * 
 	 * @param <T>
 	 * @param entity
@@ -121,7 +306,519 @@ public class DataSourceImpl implements DataSource {
 	@SuppressWarnings("unchecked")
 	public <T> void update(T entity) {
 		ClassMap<T> classMap = (ClassMap<T>) getMappingFor(entity.getClass());
-		connection.executeSql(classMap.buildUpdateFor(entity));
+		WriteBehindBuffer buffer = getWriteBehindBuffer(entity.getClass());
+		if (buffer != null) {
+			writeBehind(buffer, classMap, entity, BatchOperation.UPDATE);
+			return;
+		}
+		int[] dirtyProperties = getDirtyProperties(classMap, entity);
+		if (dirtyProperties != null && dirtyProperties.length == 0)
+			return;
+		String sql = classMap.getUpdateInstruction(dirtyProperties);
+		if (sql == null)
+			return;
+
+		DbStatement statement = connection.compileStatement(sql);
+		classMap.bindUpdate(statement, entity, dirtyProperties);
+		statement.executeUpdateDelete();
+		afterWrite(classMap, entity, false);
+	}
+
+	/**
+	 * Obtém as posições dos atributos da entidade alterados desde que foi carregada
+	 * ou gravada na sessão corrente.
+	 * 
+	 * @return int[] As posições dos atributos alterados, ou null caso não exista
+	 *         uma sessão ou a entidade não tenha sido carregada nela, quando todos
+	 *         os atributos devem ser gravados.
+	 */
+	private <T> int[] getDirtyProperties(ClassMap<T> classMap, T entity) {
+		IdentityMap identityMap = classMapRegistry.getIdentityMap();
+		if (identityMap == null)
+			return null;
+		Object[] snapshot = identityMap.getSnapshot(entity);
+		if (snapshot == null)
+			return null;
+		return classMap.getDirtyProperties(snapshot, classMap.getState(entity));
+	}
+
+	/**
+	 * Persiste as entidades informadas na fonte de dados em lote.
+	 * 
+	 * @param entities
+	 *            Entidades a serem persistidas na fonte de dados.
+	 */
+	public <T> void saveAll(Collection<T> entities) {
+		executeBatch(writeBehind(entities, BatchOperation.INSERT), BatchOperation.INSERT, true);
+	}
+
+	/**
+	 * Atualiza as entidades informadas em lote.
+	 * 
+	 * @param entities
+	 *            Entidades a serem atualizadas.
+	 */
+	public <T> void updateAll(Collection<T> entities) {
+		executeBatch(writeBehind(entities, BatchOperation.UPDATE), BatchOperation.UPDATE, true);
+	}
+
+	/**
+	 * Remove as entidades informadas da fonte de dados em lote.
+	 * 
+	 * @param entities
+	 *            Entidades a serem removidas da fonte de dados.
+	 */
+	public <T> void deleteAll(Collection<T> entities) {
+		executeBatch(writeBehind(entities, BatchOperation.DELETE), BatchOperation.DELETE, true);
+	}
+
+	/**
+	 * Agrupa as entidades por ClassMap e executa a operação informada em
+	 * transações de no máximo batchSize entidades, reutilizando a mesma
+	 * instrução compilada para todas as entidades de um grupo. Quando generateIds
+	 * for false, as entidades inseridas mantêm o id já atribuído.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> void executeBatch(Collection<T> entities, BatchOperation operation, boolean generateIds) {
+		if (entities == null || entities.isEmpty())
+			return;
+
+		Map<ClassMap<Object>, List<Object>> groups = new LinkedHashMap<ClassMap<Object>, List<Object>>();
+		for (T entity : entities) {
+			ClassMap<Object> classMap = (ClassMap<Object>) getMappingFor(entity.getClass());
+			List<Object> group = groups.get(classMap);
+			if (group == null) {
+				group = new ArrayList<Object>();
+				groups.put(classMap, group);
+			}
+			group.add(entity);
+		}
+
+		open();
+		try {
+			for (Map.Entry<ClassMap<Object>, List<Object>> group : groups.entrySet()) {
+				ClassMap<Object> classMap = group.getKey();
+				List<Object> groupEntities = group.getValue();
+
+				for (int start = 0; start < groupEntities.size(); start += batchSize) {
+					int end = Math.min(start + batchSize, groupEntities.size());
+
+					begin();
+					try {
+						DbStatement statement;
+						switch (operation) {
+						case INSERT:
+							statement = connection.compileStatement(classMap.getInsertInstruction());
+							if (generateIds)
+								generatingIds(classMap);
+							for (Object entity : groupEntities.subList(start, end)) {
+								classMap.bindInsert(statement, entity, generateIds ? connection : null);
+								classMap.afterInsert(entity, statement.executeInsert());
+								afterWrite(classMap, entity, false);
+							}
+							break;
+						case UPDATE:
+							// Uma instrução compilada por conjunto de colunas alteradas.
+							Map<String, DbStatement> statements = new HashMap<String, DbStatement>();
+							for (Object entity : groupEntities.subList(start, end)) {
+								int[] dirtyProperties = getDirtyProperties(classMap, entity);
+								if (dirtyProperties != null && dirtyProperties.length == 0)
+									continue;
+								String sql = classMap.getUpdateInstruction(dirtyProperties);
+								if (sql == null)
+									continue;
+								statement = statements.get(sql);
+								if (statement == null) {
+									statement = connection.compileStatement(sql);
+									statements.put(sql, statement);
+								}
+								classMap.bindUpdate(statement, entity, dirtyProperties);
+								statement.executeUpdateDelete();
+								afterWrite(classMap, entity, false);
+							}
+							break;
+						case DELETE:
+							statement = connection.compileStatement(classMap.getDeleteInstruction());
+							for (Object entity : groupEntities.subList(start, end)) {
+								classMap.bindDelete(statement, entity);
+								statement.executeUpdateDelete();
+								afterWrite(classMap, entity, true);
+							}
+							break;
+						}
+						commit();
+					} catch (RuntimeException e) {
+						rollback();
+						throw e;
+					}
+				}
+			}
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Obtém o buffer de gravações da classe informada, criando-o e agendando a sua
+	 * gravação periódica na primeira gravação de uma classe anotada com @WriteBehind.
+	 * 
+	 * @return WriteBehindBuffer O buffer, ou null caso as gravações da classe devam
+	 *         ser executadas imediatamente: classes sem @WriteBehind, conexões que
+	 *         não são uma PooledDbConnection, gravações durante uma transação ou
+	 *         após shutdown.
+	 */
+	private WriteBehindBuffer getWriteBehindBuffer(final Class<?> entityClass) {
+		if (!writeBehindEnabled || writeBehindShutdown || inTransaction())
+			return null;
+		WriteBehindBuffer buffer = writeBehindBuffers.get(entityClass);
+		if (buffer != null)
+			return buffer;
+
+		WriteBehind writeBehind = entityClass.getAnnotation(WriteBehind.class);
+		if (writeBehind == null)
+			return null;
+		synchronized (writeBehindBuffers) {
+			buffer = writeBehindBuffers.get(entityClass);
+			if (buffer == null && !writeBehindShutdown) {
+				buffer = new WriteBehindBuffer(writeBehind);
+				buffer.setFlushTask(getWriteBehindFlusher().scheduleWithFixedDelay(new Runnable() {
+					public void run() {
+						flushInBackground(entityClass);
+					}
+				}, buffer.getFlushInterval(), buffer.getFlushInterval(), TimeUnit.MILLISECONDS));
+				writeBehindBuffers.put(entityClass, buffer);
+			}
+		}
+		return buffer;
+	}
+
+	private static synchronized ScheduledExecutorService getWriteBehindFlusher() {
+		if (writeBehindFlusher == null)
+			writeBehindFlusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "nanoorm-write-behind");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		return writeBehindFlusher;
+	}
+
+	/**
+	 * Registra a gravação da entidade no buffer informado. A gravação é executada
+	 * imediatamente, junto com as demais gravações pendentes, quando o buffer atinge
+	 * maxEntries entidades, e em segundo plano quando atinge batchSize entidades.
+	 */
+	private <T> void writeBehind(WriteBehindBuffer buffer, ClassMap<T> classMap, T entity, BatchOperation operation) {
+		if (operation == BatchOperation.UPDATE) {
+			int[] dirtyProperties = getDirtyProperties(classMap, entity);
+			if (dirtyProperties != null && dirtyProperties.length == 0)
+				return;
+		} else if (operation == BatchOperation.INSERT) {
+			open();
+			try {
+				classMap.generateId(entity, connection);
+			} finally {
+				close();
+			}
+		}
+
+		Object key = classMap.getIdPropertyMap().convert(classMap.getEntityId(entity));
+		int size = buffer.put(key, operation, operation == BatchOperation.DELETE ? null : classMap.getState(entity));
+		afterWrite(classMap, entity, operation == BatchOperation.DELETE);
+
+		final Class<?> entityClass = entity.getClass();
+		if (size >= buffer.getMaxEntries())
+			flush(entityClass);
+		else if (buffer.requestFlush(size))
+			getWriteBehindFlusher().execute(new Runnable() {
+				public void run() {
+					flushInBackground(entityClass);
+				}
+			});
+	}
+
+	/**
+	 * Registra no buffer as gravações das entidades de classes anotadas com
+	 * @WriteBehind.
+	 * 
+	 * @return Collection<T> As entidades cujas gravações devem ser executadas
+	 *         imediatamente.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> Collection<T> writeBehind(Collection<T> entities, BatchOperation operation) {
+		if (entities == null || !writeBehindEnabled || writeBehindShutdown || inTransaction())
+			return entities;
+		List<T> remaining = new ArrayList<T>(entities.size());
+		for (T entity : entities) {
+			ClassMap<T> classMap = (ClassMap<T>) getMappingFor(entity.getClass());
+			WriteBehindBuffer buffer = getWriteBehindBuffer(entity.getClass());
+			if (buffer == null || (operation == BatchOperation.INSERT && classMap.isPostInsertId()))
+				remaining.add(entity);
+			else
+				writeBehind(buffer, classMap, entity, operation);
+		}
+		return remaining;
+	}
+
+	/**
+	 * Grava o buffer da classe informada a partir da thread de gravação em segundo
+	 * plano. Em caso de erro as gravações permanecem no buffer para a próxima
+	 * tentativa, e o erro é registrado no log e mantido no buffer para ser lançado
+	 * pela próxima chamada a flush ou shutdown. Após WriteBehindBuffer.MAX_FAILURES
+	 * falhas consecutivas a gravação em segundo plano é suspensa, e as gravações
+	 * passam a ser executadas somente por flush ou ao atingir maxEntries.
+	 */
+	private void flushInBackground(Class<?> entityClass) {
+		WriteBehindBuffer buffer = writeBehindBuffers.get(entityClass);
+		if (buffer == null || buffer.isSuspended())
+			return;
+		try {
+			flush(entityClass);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Erro na gravação em segundo plano das entidades da classe " + entityClass.getName() + ".", e);
+			if (buffer.failed(e))
+				LOGGER.log(Level.SEVERE, "Gravação em segundo plano das entidades da classe " + entityClass.getName() + " suspensa após " + WriteBehindBuffer.MAX_FAILURES + " falhas consecutivas.");
+		}
+	}
+
+	/**
+	 * Grava as gravações pendentes de todas as classes e lança a primeira falha de
+	 * gravação em segundo plano ocorrida desde a última chamada, após gravar as
+	 * demais classes.
+	 */
+	@Override
+	public void flush() {
+		RuntimeException failure = null;
+		for (Map.Entry<Class<?>, WriteBehindBuffer> entry : writeBehindBuffers.entrySet()) {
+			flush(entry.getKey());
+			RuntimeException backgroundFailure = entry.getValue().takeFailure();
+			if (failure == null && backgroundFailure != null)
+				failure = new RuntimeException("Erro na gravação em segundo plano das entidades da classe " + entry.getKey().getName() + ".", backgroundFailure);
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Grava em uma transação as gravações pendentes da classe informada. A transação
+	 * é iniciada antes de retirar as gravações do buffer, de forma que, com uma
+	 * PooledDbConnection, a conexão de escrita seja sempre obtida antes do bloqueio do
+	 * buffer. Caso outra thread esteja gravando o buffer, aguarda o fim dessa gravação.
+	 * As entidades são gravadas a partir dos estados mantidos no buffer, sem o mapa
+	 * de identidade da thread corrente, que é removido somente desta thread durante a
+	 * gravação e restaurado ao final.
+	 * Nada é gravado quando a thread corrente possui uma transação aberta, pois as
+	 * gravações pendentes, inclusive as de outras threads, seriam desfeitas junto com
+	 * ela; as pendentes desta thread já foram gravadas por beginTransaction.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void flush(Class<?> entityClass) {
+		WriteBehindBuffer buffer = writeBehindBuffers.get(entityClass);
+		if (buffer == null || buffer.isEmpty() || inTransaction())
+			return;
+		ClassMap<Object> classMap = (ClassMap<Object>) getMappingFor(entityClass);
+
+		IdentityMap identityMap = classMapRegistry.getIdentityMap();
+		classMapRegistry.setIdentityMap(null);
+		open();
+		try {
+			begin();
+			try {
+				synchronized (buffer.getFlushLock()) {
+					Map<Object, WriteBehindBuffer.Entry> entries = buffer.drain();
+					try {
+						List<Object> inserts = new ArrayList<Object>();
+						List<Object> updates = new ArrayList<Object>();
+						List<Object> deletes = new ArrayList<Object>();
+						for (Map.Entry<Object, WriteBehindBuffer.Entry> entry : entries.entrySet()) {
+							WriteBehindBuffer.Entry pending = entry.getValue();
+							if (pending.operation == BatchOperation.DELETE) {
+								Object entity = classMap.newInstance();
+								classMap.setEntityId(entity, entry.getKey());
+								deletes.add(entity);
+							} else if (pending.operation == BatchOperation.INSERT)
+								inserts.add(classMap.buildObject(pending.state, this));
+							else
+								updates.add(classMap.buildObject(pending.state, this));
+						}
+						executeBatch(inserts, BatchOperation.INSERT, false);
+						executeBatch(updates, BatchOperation.UPDATE, false);
+						executeBatch(deletes, BatchOperation.DELETE, false);
+						commit();
+						buffer.flushed();
+					} catch (RuntimeException e) {
+						buffer.restore();
+						throw e;
+					}
+				}
+			} catch (RuntimeException e) {
+				rollback();
+				throw e;
+			}
+		} finally {
+			close();
+			classMapRegistry.setIdentityMap(identityMap);
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		synchronized (writeBehindBuffers) {
+			writeBehindShutdown = true;
+		}
+		for (WriteBehindBuffer buffer : writeBehindBuffers.values())
+			buffer.getFlushTask().cancel(false);
+		try {
+			flush();
+		} finally {
+			for (Map.Entry<Class<?>, WriteBehindBuffer> entry : writeBehindBuffers.entrySet())
+				if (entry.getValue().isEmpty())
+					writeBehindBuffers.remove(entry.getKey());
+		}
+	}
+
+	/**
+	 * Atualiza o mapa de identidade da thread corrente, caso exista, com a entidade
+	 * gravada ou excluída e o seu estado, remove a entidade do cache de segundo nível
+	 * e invalida os resultados do cache de consultas que utilizam a sua tabela. Em
+	 * uma transação, a remoção e a invalidação são repetidas após o seu fim.
+	 */
+	@SuppressWarnings("unchecked")
+	private void afterWrite(ClassMap<?> classMap, Object entity, boolean deleted) {
+		Object id = classMap.getEntityId(entity);
+		IdentityMap identityMap = classMapRegistry.getIdentityMap();
+		if (identityMap != null) {
+			if (deleted)
+				identityMap.remove(entity.getClass(), id);
+			else {
+				identityMap.put(entity.getClass(), id, entity);
+				identityMap.setSnapshot(entity, ((ClassMap<Object>) classMap).getState(entity));
+			}
+		}
+		entityCache.evict(entity.getClass(), id);
+		queryCache.invalidate(classMap.getTableName());
+		Transaction transaction = transactions.get();
+		if (transaction != null)
+			transaction.written(entity.getClass(), id, classMap.getTableName());
+	}
+
+	@Override
+	public void evictAll(Class<?> entityClass) {
+		String table = getMappingFor(entityClass).getTableName();
+		IdentityMap identityMap = classMapRegistry.getIdentityMap();
+		if (identityMap != null)
+			identityMap.clear(entityClass);
+		entityCache.evictAll(entityClass);
+		queryCache.invalidate(table);
+		Transaction transaction = transactions.get();
+		if (transaction != null) {
+			transaction.bulkWritten.add(entityClass);
+			transaction.writtenTables.add(table);
+		}
+	}
+
+	/**
+	 * Registra na transação da thread corrente que o gerador de ids da classe
+	 * informada foi utilizado, para que as chaves reservadas sejam descartadas caso
+	 * a transação seja desfeita.
+	 */
+	private void generatingIds(ClassMap<?> classMap) {
+		Transaction transaction = transactions.get();
+		if (transaction != null)
+			transaction.generatedIds.add(classMap);
+	}
+
+	/**
+	 * Indica se a entidade informada foi gravada ou excluída na transação da thread
+	 * corrente, quando o cache de segundo nível pode conter o seu valor anterior.
+	 */
+	private boolean isWritten(Class<?> entityClass, Object id) {
+		Transaction transaction = transactions.get();
+		return transaction != null && transaction.isWritten(entityClass, id);
+	}
+
+	/**
+	 * Indica se a tabela informada foi alterada na transação da thread corrente,
+	 * quando o cache de consultas pode conter resultados anteriores à alteração.
+	 */
+	private boolean isWritten(String table) {
+		Transaction transaction = transactions.get();
+		return transaction != null && transaction.writtenTables.contains(table);
+	}
+
+	@Override
+	public IdentityMap getIdentityMap() {
+		return classMapRegistry.getIdentityMap();
+	}
+
+	@Override
+	public void setIdentityMap(IdentityMap identityMap) {
+		classMapRegistry.setIdentityMap(identityMap);
+	}
+
+	@Override
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@Override
+	public void setBatchSize(int batchSize) {
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("O tamanho do lote deve ser maior que zero.");
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public TypeCodecRegistry getTypeCodecRegistry() {
+		return typeCodecRegistry;
+	}
+
+	/**
+	 * Define o registro de codecs utilizado pelos mapeamentos deste DataSource.
+	 * Deve ser definido antes da obtenção do primeiro mapeamento.
+	 * @param typeCodecRegistry Registro de codecs a ser utilizado.
+	 */
+	public void setTypeCodecRegistry(TypeCodecRegistry typeCodecRegistry) {
+		this.typeCodecRegistry = typeCodecRegistry;
+	}
+
+	@Override
+	public EntityCache getEntityCache() {
+		return entityCache;
+	}
+
+	/**
+	 * Define o cache de segundo nível utilizado por este DataSource, que pode ser
+	 * compartilhado com outros DataSources da mesma configuração.
+	 * @param entityCache Cache de segundo nível a ser utilizado.
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	@Override
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	/**
+	 * Define o cache de consultas utilizado por este DataSource, que pode ser
+	 * compartilhado com outros DataSources da mesma configuração.
+	 * @param queryCache Cache de consultas a ser utilizado.
+	 */
+	public void setQueryCache(QueryCache queryCache) {
+		this.queryCache = queryCache;
+	}
+
+	/**
+	 * Define o registro de ClassMaps utilizado por este DataSource, que pode ser
+	 * compartilhado com outros DataSources da mesma configuração.
+	 * @param classMapRegistry Registro de ClassMaps a ser utilizado.
+	 */
+	public void setClassMapRegistry(ClassMapRegistry classMapRegistry) {
+		this.classMapRegistry = classMapRegistry;
 	}
 
 	/**
@@ -134,14 +831,276 @@ public class DataSourceImpl implements DataSource {
 	 */
 	public <T> List<T> list(Class<T> entityClass) {
 		ClassMap<T> classMap = getMappingFor(entityClass);
-		List<T> objects = null;
+		return query(entityClass, classMap.buildSelectForAll(), isCacheable(entityClass));
+	}
 
-		DbCursor cursor = connection.executeSqlQuery(classMap.buildSelectForAll());		
-		objects = classMap.buildList(cursor);
+	/**
+	 * Indica se as consultas das entidades da classe informada utilizam o cache de
+	 * consultas, o que ocorre para as classes anotadas com @Cacheable.
+	 */
+	private boolean isCacheable(Class<?> entityClass) {
+		return entityCache.getRegion(entityClass) != null;
+	}
 
+	/**
+	 * Executa a instrução select informada e instancia as entidades da classe
+	 * informada. Quando cacheable, o resultado é obtido do cache de consultas caso
+	 * nenhuma escrita na tabela tenha ocorrido desde a última execução. As entidades
+	 * lidas do banco de dados também alimentam o cache de segundo nível. Os caches
+	 * não são alimentados durante transações nem enquanto houver uma sessão aberta,
+	 * pois as instâncias do mapa de identidade podem conter alterações não gravadas.
+	 * 
+	 * @param entityClass
+	 *            Classe das entidades consultadas.
+	 * @param sql
+	 *            Instrução select que retorna todas as colunas mapeadas da classe.
+	 * @param cacheable
+	 *            Indica se o cache de consultas deve ser utilizado.
+	 * @param args
+	 *            Valores dos parâmetros da instrução.
+	 */
+	public <T> List<T> query(Class<T> entityClass, String sql, boolean cacheable, Object... args) {
+		flush(entityClass);
+		ClassMap<T> classMap = getMappingFor(entityClass);
+		LruCache<Object, Object[]> region = entityCache.getRegion(entityClass);
+		String[] tables = { classMap.getTableName() };
+		long[] versions = null;
+
+		if (cacheable && !isWritten(classMap.getTableName())) {
+			Object[][] states = (Object[][]) queryCache.get(sql, args);
+			if (states != null) {
+				List<T> objects = new ArrayList<T>(states.length);
+				for (Object[] state : states)
+					objects.add(classMap.buildObject(state, this));
+				return objects;
+			}
+			versions = queryCache.getVersions(tables);
+		}
+		long[] stamps = region == null ? null : region.getInvalidationStamps();
+
+		DbCursor cursor = connection.executeSqlQuery(sql, args);
+		List<T> objects = classMap.buildList(cursor, this);
+
+		if ((versions != null || region != null) && !inTransaction() && classMapRegistry.getIdentityMap() == null) {
+			Object[][] states = new Object[objects.size()][];
+			for (int i = 0; i < states.length; i++)
+				states[i] = classMap.getState(objects.get(i));
+
+			if (versions != null)
+				queryCache.put(sql, args, states, tables, versions);
+			if (region != null)
+				for (int i = 0; i < states.length; i++)
+					region.putFromLoad(classMap.getEntityId(objects.get(i)), states[i], stamps);
+		}
 		return objects;
 	}
 
+	/**
+	 * Carrega em lote os atributos @OneToMany e @ManyToMany informados de todas as
+	 * entidades da lista. As coleções carregadas são instâncias de FetchedList, que
+	 * não são recarregadas pelo aspecto LazyLoad.
+	 * 
+	 * @param entities
+	 *            Entidades da mesma classe cujas coleções serão carregadas.
+	 * @param properties
+	 *            Nomes dos atributos a serem carregados.
+	 */
+	public <T> void fetch(List<T> entities, String... properties) {
+		CollectionFetcher fetcher = new CollectionFetcher(this);
+		for (String property : properties)
+			fetcher.fetch(entities, property);
+	}
+
+	/**
+	 * Obtém uma página de entidades em ordem de id, iniciando após o id informado
+	 * no parâmetro afterId.
+	 * 
+	 * @param <T>
+	 * @param entityClass
+	 *            Classe das entidades a serem listadas.
+	 * @param pageSize
+	 *            Quantidade máxima de entidades da página.
+	 * @param afterId
+	 *            Id da última entidade da página anterior, ou null para a
+	 *            primeira página.
+	 */
+	public <T> List<T> list(Class<T> entityClass, int pageSize, Serializable afterId) {
+		if (pageSize <= 0)
+			throw new IllegalArgumentException("O tamanho da página deve ser maior que zero.");
+		ClassMap<T> classMap = getMappingFor(entityClass);
+
+		if (afterId == null)
+			return query(entityClass, classMap.getFirstPageInstruction(), isCacheable(entityClass), pageSize);
+		else
+			return query(entityClass, classMap.getNextPageInstruction(), isCacheable(entityClass), afterId, pageSize);
+	}
+
+	/**
+	 * Obtém uma página de entidades em ordem de id, ignorando as firstResult
+	 * primeiras entidades.
+	 * 
+	 * @param <T>
+	 * @param entityClass
+	 *            Classe das entidades a serem listadas.
+	 * @param firstResult
+	 *            Quantidade de entidades a serem ignoradas.
+	 * @param maxResults
+	 *            Quantidade máxima de entidades da página.
+	 */
+	public <T> List<T> listPage(Class<T> entityClass, int firstResult, int maxResults) {
+		if (maxResults <= 0)
+			throw new IllegalArgumentException("O tamanho da página deve ser maior que zero.");
+		if (firstResult < 0)
+			throw new IllegalArgumentException("A posição inicial da página não pode ser negativa.");
+		ClassMap<T> classMap = getMappingFor(entityClass);
+
+		return query(entityClass, classMap.getOffsetPageInstruction(), isCacheable(entityClass), maxResults, firstResult);
+	}
+
+	/**
+	 * Obtém a quantidade de entidades gravadas da classe informada.
+	 * 
+	 * @param entityClass
+	 *            Classe das entidades a serem contadas.
+	 */
+	public long count(Class<?> entityClass) {
+		flush(entityClass);
+		ClassMap<?> classMap = getMappingFor(entityClass);
+		boolean cacheable = isCacheable(entityClass) && !isWritten(classMap.getTableName());
+		long[] versions = null;
+
+		if (cacheable) {
+			Long count = (Long) queryCache.get(classMap.getCountInstruction());
+			if (count != null)
+				return count.longValue();
+			versions = queryCache.getVersions(classMap.getTableName());
+		}
+
+		DbCursor cursor = connection.executeSqlQuery(classMap.getCountInstruction());
+		long count;
+		try {
+			count = cursor.getLong(0);
+		} finally {
+			cursor.close();
+		}
+
+		if (cacheable && !inTransaction())
+			queryCache.put(classMap.getCountInstruction(), new Object[0], Long.valueOf(count), new String[] { classMap.getTableName() }, versions);
+		return count;
+	}
+
+	/**
+	 * Indica se existe uma entidade da classe informada com o id informado. A
+	 * entidade é procurada no mapa de identidade da sessão corrente e no cache de
+	 * segundo nível antes de consultar apenas a chave primária no banco de dados.
+	 * 
+	 * @param entityClass
+	 *            Classe da entidade.
+	 * @param id
+	 *            Id da entidade.
+	 */
+	public boolean exists(Class<?> entityClass, Serializable id) {
+		if (id == null)
+			return false;
+		ClassMap<?> classMap = getMappingFor(entityClass);
+		Object key = classMap.getIdPropertyMap().convert(id);
+
+		IdentityMap identityMap = classMapRegistry.getIdentityMap();
+		if (identityMap != null && identityMap.get(entityClass, key) != null)
+			return true;
+		WriteBehindBuffer buffer = writeBehindBuffers.get(entityClass);
+		if (buffer != null) {
+			WriteBehindBuffer.Entry pending = buffer.get(key);
+			if (pending != null)
+				return pending.operation != BatchOperation.DELETE;
+		}
+		LruCache<Object, Object[]> region = entityCache.getRegion(entityClass);
+		if (region != null && !isWritten(entityClass, key) && region.get(key) != null)
+			return true;
+
+		String sql = classMap.getCachedInstruction("exists:id");
+		if (sql == null) {
+			sql = "SELECT 1 FROM " + classMap.getTableName() + " WHERE " + classMap.getIdColumn() + " = ?";
+			classMap.cacheInstruction("exists:id", sql);
+		}
+		DbCursor cursor = connection.executeSqlQuery(sql, id);
+		try {
+			return cursor.hasRow();
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Obtém um iterator sobre todas as entidades da classe informada, executado
+	 * com um cursor de leitura sequencial. A conexão é obtida através de open e
+	 * liberada quando o iterator é esgotado ou fechado.
+	 * 
+	 * @param <T>
+	 * @param entityClass
+	 *            Classe cujas entidades serão percorridas.
+	 */
+	public <T> CloseableIterator<T> iterate(Class<T> entityClass) {
+		flush(entityClass);
+		ClassMap<T> classMap = getMappingFor(entityClass);
+
+		open();
+		try {
+			DbCursor cursor = connection.executeStreamingQuery(classMap.buildSelectForAll());
+			return new ConnectionIterator<T>(classMap.buildIterator(cursor, this));
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Iterator que libera a conexão da fonte de dados quando o iterator
+	 * encapsulado é esgotado ou fechado.
+	 */
+	private class ConnectionIterator<T> implements CloseableIterator<T> {
+
+		private CloseableIterator<T> iterator;
+		private boolean released;
+
+		ConnectionIterator(CloseableIterator<T> iterator) {
+			this.iterator = iterator;
+			if (!iterator.hasNext())
+				release();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return iterator.hasNext();
+		}
+
+		@Override
+		public T next() {
+			T object = iterator.next();
+			if (!iterator.hasNext())
+				release();
+			return object;
+		}
+
+		@Override
+		public void remove() {
+			iterator.remove();
+		}
+
+		@Override
+		public void close() {
+			iterator.close();
+			release();
+		}
+
+		private void release() {
+			if (!released) {
+				released = true;
+				DataSourceImpl.this.close();
+			}
+		}
+	}
+
 	/**
 	 * Obtém uma instância de ClassMap para a entidade informada no
 	 * parâmetro entityClass.
@@ -151,17 +1110,8 @@ public class DataSourceImpl implements DataSource {
 	 * @param entityClass
 	 *            Classe da entidade que se deseja obter o mapeamento.
 	 */
-	@SuppressWarnings("unchecked")
 	public <T> ClassMap<T> getMappingFor(Class<T> entityClass) {
-		ClassMap<T> classMap;
-		if (classMappings.containsKey(entityClass))
-			classMap = (ClassMap<T>) classMappings.get(entityClass);
-		else {
-			classMap = ClassMapFactory.getClassMap(entityClass, this);
-			classMappings.put(entityClass, classMap);
-		}
-
-		return classMap;
+		return classMapRegistry.getClassMap(entityClass, this);
 	}
 
 	@Override
@@ -169,19 +1119,108 @@ public class DataSourceImpl implements DataSource {
 		return dataSourceType;
 	}
 
+	/**
+	 * Inicia uma transação, gravando antes as gravações pendentes das classes
+	 * anotadas com @WriteBehind, que não participam da transação.
+	 */
 	@Override
 	public void beginTransaction() {
-		connection.beginTransaction();
+		if (!inTransaction())
+			for (Class<?> entityClass : writeBehindBuffers.keySet())
+				flush(entityClass);
+		begin();
 	}
 
 	@Override
 	public void commitTransaction() {
-		connection.commitTransaction();
+		commit();
 	}
 
 	@Override
 	public void rollbackTransaction() {
-		connection.rollbackTransaction();
+		rollback();
+		// As instâncias do mapa de identidade podem refletir alterações desfeitas.
+		IdentityMap identityMap = classMapRegistry.getIdentityMap();
+		if (identityMap != null)
+			identityMap.clear();
+	}
+
+	/**
+	 * Indica se a thread corrente possui uma transação aberta através desta fonte
+	 * de dados. As transações de outras threads não são consideradas.
+	 */
+	private boolean inTransaction() {
+		return transactions.get() != null;
+	}
+
+	/**
+	 * Inicia uma transação na conexão, aninhada à transação da thread corrente
+	 * caso exista.
+	 */
+	private void begin() {
+		connection.beginTransaction();
+		Transaction transaction = transactions.get();
+		if (transaction == null) {
+			transaction = new Transaction();
+			transactions.set(transaction);
+		}
+		transaction.depth++;
+	}
+
+	private void commit() {
+		try {
+			connection.commitTransaction();
+		} catch (RuntimeException e) {
+			rolledBack();
+			throw e;
+		} finally {
+			end();
+		}
+	}
+
+	/**
+	 * Desfaz a transação da thread corrente, ou marca a transação externa para ser
+	 * desfeita.
+	 */
+	private void rollback() {
+		rolledBack();
+		try {
+			connection.rollbackTransaction();
+		} finally {
+			end();
+		}
+	}
+
+	private void rolledBack() {
+		Transaction transaction = transactions.get();
+		if (transaction != null)
+			transaction.rolledBack = true;
+	}
+
+	/**
+	 * Finaliza o nível mais interno da transação da thread corrente, que deixa de
+	 * existir quando o nível mais externo é finalizado. Nesse momento as entidades
+	 * e tabelas gravadas na transação são descartadas novamente dos caches, pois
+	 * podem ter sido armazenadas por outras threads antes da efetivação, e, caso a
+	 * transação tenha sido desfeita, são descartadas as chaves reservadas pelos
+	 * geradores de ids das classes inseridas nela.
+	 */
+	private void end() {
+		Transaction transaction = transactions.get();
+		if (transaction == null || --transaction.depth > 0)
+			return;
+		transactions.remove();
+		for (Class<?> entityClass : transaction.bulkWritten)
+			entityCache.evictAll(entityClass);
+		for (Map.Entry<Class<?>, Set<Object>> entry : transaction.writtenIds.entrySet())
+			if (!transaction.bulkWritten.contains(entry.getKey()))
+				for (Object id : entry.getValue())
+					entityCache.evict(entry.getKey(), id);
+		for (String table : transaction.writtenTables)
+			queryCache.invalidate(table);
+		if (transaction.rolledBack)
+			for (ClassMap<?> classMap : transaction.generatedIds)
+				classMap.resetIdGenerator();
 	}
 
 	@Override
@@ -1,10 +1,14 @@
 package com.nanoorm.impl;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
+import com.nanoorm.CloseableIterator;
+import com.nanoorm.Criteria;
 import com.nanoorm.DataSource;
 import com.nanoorm.Manager;
+import com.nanoorm.Session;
 
 /**
  * Class ManagerImpl
@@ -30,8 +34,11 @@ public class ManagerImpl implements Manager {
 	 */
 	public <T> void save (T entity) {
 		dataSource.open();
-		dataSource.save(entity);
-		dataSource.close();
+		try {
+			dataSource.save(entity);
+		} finally {
+			dataSource.close();
+		}
 	}
 
 	/**
@@ -44,9 +51,11 @@ public class ManagerImpl implements Manager {
 	 */
 	public <T> T load (Class<T> entityClass, Serializable id) {
 		dataSource.open();
-		T entity = dataSource.load(entityClass, id);
-		dataSource.close();
-		return entity;
+		try {
+			return dataSource.load(entityClass, id);
+		} finally {
+			dataSource.close();
+		}
 	}
 
 	/**
@@ -56,8 +65,11 @@ public class ManagerImpl implements Manager {
 	 */
 	public <T> void delete (T entity) {
 		dataSource.open();
-		dataSource.delete(entity);
-		dataSource.close();
+		try {
+			dataSource.delete(entity);
+		} finally {
+			dataSource.close();
+		}
 	}
 
 	/**
@@ -67,8 +79,53 @@ public class ManagerImpl implements Manager {
 	 */
 	public <T> void update (T entity) {
 		dataSource.open();
-		dataSource.update(entity);
-		dataSource.close();
+		try {
+			dataSource.update(entity);
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	/**
+	 * Persiste as entidades informadas na fonte de dados em lote.
+	 * @param <T>
+	 * @param        entities Entidades a serem persistidas na fonte de dados.
+	 */
+	public <T> void saveAll (Collection<T> entities) {
+		dataSource.open();
+		try {
+			dataSource.saveAll(entities);
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	/**
+	 * Atualiza as entidades informadas em lote.
+	 * @param <T>
+	 * @param        entities Entidades a serem atualizadas.
+	 */
+	public <T> void updateAll (Collection<T> entities) {
+		dataSource.open();
+		try {
+			dataSource.updateAll(entities);
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	/**
+	 * Remove as entidades informadas da fonte de dados em lote.
+	 * @param <T>
+	 * @param        entities Entidades a serem removidas da fonte de dados.
+	 */
+	public <T> void deleteAll (Collection<T> entities) {
+		dataSource.open();
+		try {
+			dataSource.deleteAll(entities);
+		} finally {
+			dataSource.close();
+		}
 	}
 
 	/**
@@ -79,17 +136,109 @@ public class ManagerImpl implements Manager {
 	 */
 	public <T> List<T> list (Class<T> entityClass)	{
 		dataSource.open();
-		List<T> entities = dataSource.list(entityClass);
-		dataSource.close();
-		return entities;
+		try {
+			return dataSource.list(entityClass);
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	/**
+	 * Obtém uma página de entidades em ordem de id, iniciando após o id informado
+	 * no parâmetro afterId.
+	 * @param        entityClass Classe das entidades a serem listadas.
+	 * @param        pageSize Quantidade máxima de entidades da página.
+	 * @param        afterId Id da última entidade da página anterior, ou null para a
+	 * primeira página.
+	 */
+	public <T> List<T> list (Class<T> entityClass, int pageSize, Serializable afterId) {
+		dataSource.open();
+		try {
+			return dataSource.list(entityClass, pageSize, afterId);
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	/**
+	 * Obtém uma página de entidades em ordem de id, ignorando as firstResult
+	 * primeiras entidades.
+	 * @param        entityClass Classe das entidades a serem listadas.
+	 * @param        firstResult Quantidade de entidades a serem ignoradas.
+	 * @param        maxResults Quantidade máxima de entidades da página.
+	 */
+	public <T> List<T> listPage (Class<T> entityClass, int firstResult, int maxResults) {
+		dataSource.open();
+		try {
+			return dataSource.listPage(entityClass, firstResult, maxResults);
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	/**
+	 * Carrega em lote os atributos @OneToMany e @ManyToMany informados de todas as
+	 * entidades da lista.
+	 * @param        entities Entidades da mesma classe cujas coleções serão carregadas.
+	 * @param        properties Nomes dos atributos a serem carregados.
+	 */
+	public <T> void fetch (List<T> entities, String... properties) {
+		dataSource.open();
+		try {
+			dataSource.fetch(entities, properties);
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	/**
+	 * Obtém a quantidade de entidades gravadas da classe informada.
+	 * @param        entityClass Classe das entidades a serem contadas.
+	 */
+	public long count (Class<?> entityClass) {
+		dataSource.open();
+		try {
+			return dataSource.count(entityClass);
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	/**
+	 * Indica se existe uma entidade da classe informada com o id informado.
+	 * @param        entityClass Classe da entidade.
+	 * @param        id Id da entidade.
+	 */
+	public boolean exists (Class<?> entityClass, Serializable id) {
+		dataSource.open();
+		try {
+			return dataSource.exists(entityClass, id);
+		} finally {
+			dataSource.close();
+		}
+	}
+
+	/**
+	 * Obtém um iterator sobre todas as entidades da classe informada. A conexão
+	 * é mantida aberta pela fonte de dados até que o iterator seja esgotado ou
+	 * fechado.
+	 * @param        entityClass Classe cujas entidades serão percorridas.
+	 */
+	public <T> CloseableIterator<T> iterate (Class<T> entityClass) {
+		return dataSource.iterate(entityClass);
 	}
 
 	/**
 	 * Cria um critério para o tipo informado no parâmetro entityClass.
 	 * @param        entityClass Classe da entidade para qual será gerado o critério.
 	 */
-	public <T> void createCriteria (Class<T> entityClass) {
-		throw new UnsupportedOperationException("Método não implementado.");		
+	public <T> Criteria<T> createCriteria (Class<T> entityClass) {
+		return new CriteriaImpl<T>(entityClass, dataSource);
+	}
+
+	@Override
+	public Session openSession() {
+		return new SessionImpl(dataSource);
 	}
 
 	@Override
@@ -107,6 +256,16 @@ public class ManagerImpl implements Manager {
 		dataSource.rollbackTransaction();
 	}
 
+	@Override
+	public void flush() {
+		dataSource.flush();
+	}
+
+	@Override
+	public void shutdown() {
+		dataSource.shutdown();
+	}
+
 	@Override
 	public DataSource getDataSource() {
 		return dataSource;
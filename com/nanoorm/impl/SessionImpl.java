@@ -0,0 +1,57 @@
+package com.nanoorm.impl;
+
+import com.nanoorm.DataSource;
+import com.nanoorm.IdentityMap;
+import com.nanoorm.Session;
+
+/**
+ * Class SessionImpl
+ * Implementação padrão da interface Session. Mantém uma referência à conexão da
+ * fonte de dados enquanto estiver aberta, de forma que as chamadas a open e close
+ * realizadas por cada operação de ManagerImpl não fechem a conexão.
+ * A sessão possui um mapa de identidade, associado à thread que a abriu, que
+ * garante uma única instância por entidade carregada enquanto a sessão estiver aberta.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class SessionImpl extends ManagerImpl implements Session {
+
+	private DataSource dataSource;
+	private IdentityMap identityMap = new IdentityMap();
+	private IdentityMap previousIdentityMap;
+	private boolean open;
+
+	/**
+	 * Abre uma sessão sobre a fonte de dados informada.
+	 * @param        dataSource Fonte de dados a ser utilizada pela sessão.
+	 */
+	public SessionImpl (DataSource dataSource) {
+		super(dataSource);
+		this.dataSource = dataSource;
+		dataSource.open();
+		previousIdentityMap = dataSource.getIdentityMap();
+		dataSource.setIdentityMap(identityMap);
+		open = true;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!open)
+			return;
+		open = false;
+		if (dataSource.getIdentityMap() == identityMap)
+			dataSource.setIdentityMap(previousIdentityMap);
+		identityMap.clear();
+		dataSource.close();
+	}
+
+	@Override
+	public IdentityMap getIdentityMap() {
+		return identityMap;
+	}
+
+	@Override
+	public synchronized boolean isOpen() {
+		return open;
+	}
+
+}
@@ -0,0 +1,196 @@
+package com.nanoorm.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.nanoorm.annotations.WriteBehind;
+import com.nanoorm.impl.DataSourceImpl.BatchOperation;
+
+/**
+ * Class WriteBehindBuffer
+ * Buffer das gravações pendentes de uma classe anotada com @WriteBehind, indexado
+ * pelo id das entidades. Cada entidade possui no máximo uma gravação pendente, com
+ * o estado obtido na última gravação solicitada: uma atualização após uma inserção
+ * mantém a inserção com o novo estado, uma exclusão após uma inserção descarta
+ * ambas, e uma inserção após uma exclusão se torna uma atualização.
+ * As gravações retiradas do buffer por drain continuam visíveis por get até que
+ * flushed seja chamado, ou retornam ao buffer através de restore caso a gravação
+ * falhe. O buffer mantém a última falha da gravação em segundo plano, até que seja
+ * obtida por takeFailure, e suspende a gravação em segundo plano após MAX_FAILURES
+ * falhas consecutivas.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+class WriteBehindBuffer {
+
+	/**
+	 * Quantidade de falhas consecutivas da gravação em segundo plano após a qual ela
+	 * é suspensa, até que uma gravação solicitada pela aplicação seja bem-sucedida.
+	 */
+	static final int MAX_FAILURES = 3;
+
+	/**
+	 * Gravação pendente de uma entidade.
+	 */
+	static final class Entry {
+		final BatchOperation operation;
+		final Object[] state;
+
+		Entry(BatchOperation operation, Object[] state) {
+			this.operation = operation;
+			this.state = state;
+		}
+	}
+
+	private final int maxEntries;
+	private final int batchSize;
+	private final long flushInterval;
+	private final Object flushLock = new Object();
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+	private LinkedHashMap<Object, Entry> entries = new LinkedHashMap<Object, Entry>();
+	private Map<Object, Entry> flushing = Collections.emptyMap();
+	private ScheduledFuture<?> flushTask;
+	private RuntimeException lastFailure;
+	private int failures;
+
+	WriteBehindBuffer(WriteBehind writeBehind) {
+		if (writeBehind.maxEntries() <= 0 || writeBehind.batchSize() <= 0 || writeBehind.flushInterval() <= 0)
+			throw new IllegalArgumentException("Os parâmetros de @WriteBehind devem ser maiores que zero.");
+		this.maxEntries = writeBehind.maxEntries();
+		this.batchSize = writeBehind.batchSize();
+		this.flushInterval = writeBehind.flushInterval();
+	}
+
+	/**
+	 * Registra a gravação da entidade de id informado, combinando-a com a gravação
+	 * pendente da mesma entidade.
+	 * @return       int A quantidade de entidades no buffer.
+	 * @param        id Id da entidade.
+	 * @param        operation Operação solicitada.
+	 * @param        state Estado da entidade, ou null para exclusões.
+	 */
+	synchronized int put(Object id, BatchOperation operation, Object[] state) {
+		merge(entries, id, new Entry(operation, state));
+		return entries.size();
+	}
+
+	private static void merge(LinkedHashMap<Object, Entry> entries, Object id, Entry entry) {
+		Entry pending = entries.remove(id);
+		if (pending != null) {
+			if (pending.operation == BatchOperation.INSERT) {
+				if (entry.operation == BatchOperation.DELETE)
+					return;
+				entry = new Entry(BatchOperation.INSERT, entry.state);
+			} else if (pending.operation == BatchOperation.DELETE && entry.operation == BatchOperation.INSERT)
+				entry = new Entry(BatchOperation.UPDATE, entry.state);
+		}
+		entries.put(id, entry);
+	}
+
+	/**
+	 * Obtém a gravação pendente da entidade de id informado, ou null caso não exista.
+	 * @param        id Id da entidade.
+	 */
+	synchronized Entry get(Object id) {
+		Entry entry = entries.get(id);
+		return entry != null ? entry : flushing.get(id);
+	}
+
+	/**
+	 * Retira do buffer todas as gravações pendentes, que devem ser gravadas por
+	 * uma única thread de cada vez, através de getFlushLock.
+	 */
+	synchronized Map<Object, Entry> drain() {
+		flushRequested.set(false);
+		flushing = entries;
+		entries = new LinkedHashMap<Object, Entry>();
+		return flushing;
+	}
+
+	/**
+	 * Descarta as gravações retiradas por drain, após serem gravadas, e reinicia a
+	 * contagem de falhas consecutivas.
+	 */
+	synchronized void flushed() {
+		flushing = Collections.emptyMap();
+		failures = 0;
+	}
+
+	/**
+	 * Devolve ao buffer as gravações retiradas por drain, combinando-as com as
+	 * gravações solicitadas desde então.
+	 */
+	synchronized void restore() {
+		LinkedHashMap<Object, Entry> newer = entries;
+		entries = new LinkedHashMap<Object, Entry>(flushing);
+		flushing = Collections.emptyMap();
+		for (Map.Entry<Object, Entry> entry : newer.entrySet())
+			merge(entries, entry.getKey(), entry.getValue());
+	}
+
+	/**
+	 * Indica se não existem gravações pendentes, nem gravações retiradas por drain
+	 * e ainda não gravadas.
+	 */
+	synchronized boolean isEmpty() {
+		return entries.isEmpty() && flushing.isEmpty();
+	}
+
+	/**
+	 * Registra a falha de uma gravação em segundo plano.
+	 * @return       boolean Indica se a gravação em segundo plano foi suspensa por
+	 * esta falha.
+	 */
+	synchronized boolean failed(RuntimeException failure) {
+		lastFailure = failure;
+		return ++failures == MAX_FAILURES;
+	}
+
+	/**
+	 * Obtém e descarta a última falha da gravação em segundo plano, ou null caso
+	 * nenhuma tenha ocorrido desde a última chamada.
+	 */
+	synchronized RuntimeException takeFailure() {
+		RuntimeException failure = lastFailure;
+		lastFailure = null;
+		return failure;
+	}
+
+	/**
+	 * Indica se a gravação em segundo plano foi suspensa por falhas consecutivas.
+	 */
+	synchronized boolean isSuspended() {
+		return failures >= MAX_FAILURES;
+	}
+
+	/**
+	 * Indica se a quantidade informada atingiu batchSize e nenhuma gravação em
+	 * segundo plano foi solicitada desde o último drain.
+	 */
+	boolean requestFlush(int size) {
+		return size >= batchSize && flushRequested.compareAndSet(false, true);
+	}
+
+	int getMaxEntries() {
+		return maxEntries;
+	}
+
+	long getFlushInterval() {
+		return flushInterval;
+	}
+
+	Object getFlushLock() {
+		return flushLock;
+	}
+
+	ScheduledFuture<?> getFlushTask() {
+		return flushTask;
+	}
+
+	void setFlushTask(ScheduledFuture<?> flushTask) {
+		this.flushTask = flushTask;
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.nanoorm.jdbc;
+
+import com.nanoorm.android.AndroidAssociationMap;
+
+/**
+ * Class JdbcAssociationMap
+ * As instruções de associação geradas para o Android utilizam apenas sql padrão,
+ * por isso são reaproveitadas pelas fontes de dados JDBC.
+ */
+public class JdbcAssociationMap extends AndroidAssociationMap {
+
+}
@@ -0,0 +1,29 @@
+package com.nanoorm.jdbc;
+
+import com.nanoorm.DataSource;
+import com.nanoorm.ids.IdGenerator;
+import com.nanoorm.mappings.AbstractClassMap;
+
+/**
+ * Class JdbcClassMap
+ * Classe reponsável por obter os mapementos entre uma classe e uma fonte de
+ * dados JDBC.
+ */
+public class JdbcClassMap <T> extends AbstractClassMap<T> {
+
+	/**
+	 * Constrói uma instância de JdbcClassMap para a classe informada no
+	 * parâmetro entityClass.
+	 * @param        entityClass Classe a qual se deseja obter os mapeamentos.
+	 * @param        dataSource Fonte de dados a qual a instância de JdbcClassMap
+	 * irá pertencer.
+	 */
+	public JdbcClassMap (Class<T> entityClass, DataSource dataSource) {
+		super(entityClass, dataSource);
+	}
+
+	@Override
+	protected IdGenerator createSequenceGenerator() {
+		return new JdbcSequence();
+	}
+}
@@ -0,0 +1,22 @@
+package com.nanoorm.jdbc;
+
+import com.nanoorm.Configuration;
+import com.nanoorm.DataSourceType;
+
+/**
+ * Especialização da classe Configuration criada para facilitar o processo de
+ * configuração do framework com fontes de dados JDBC.
+ */
+public class JdbcConfiguration extends Configuration {
+
+	/**
+	 * Adiciona os parâmetros necessários para a conexão com o banco de dados.
+	 * @param        url Url JDBC do banco de dados (ex.: jdbc:sqlite:/tmp/teste.db).
+	 * @param        userName Nome de usuário a ser utilizado no login com o banco.
+	 * @param        password Senha a ser utilizada no login com o banco de dados.
+	 */
+	public Configuration addDataSourceConfig(String url, String userName, String password) {
+		return super.addDataSourceConfig(DataSourceType.JDBC, url, userName, password);
+	}
+
+}
@@ -0,0 +1,342 @@
+package com.nanoorm.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.nanoorm.DbConnection;
+import com.nanoorm.DbCursor;
+import com.nanoorm.DbStatement;
+
+/**
+ * Class JdbcDbConnection
+ * Implementação de DbConnection sobre uma conexão JDBC. As instruções compiladas
+ * através de compileStatement e as consultas executadas são mantidas em cache por
+ * texto sql enquanto a conexão estiver aberta; uma consulta cujo cursor ainda está
+ * aberto é compilada novamente, sem cache, quando executada outra vez. As transações podem ser aninhadas, sendo efetivadas
+ * apenas quando a transação mais externa for finalizada com sucesso.
+ * A conexão pode ser aberta somente para leitura, e no SQLite pode habilitar o
+ * write-ahead logging, para ser utilizada por uma PooledDbConnection.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class JdbcDbConnection implements DbConnection {
+
+	private Connection connection;
+	private String url;
+	private String userName;
+	private String password;
+	private boolean scrollableCursors;
+	private boolean readOnly;
+	private boolean writeAheadLogging;
+	private int transactionLevel;
+	private boolean rollbackOnly;
+	private Map<String, DbStatement> statements = new HashMap<String, DbStatement>();
+	private Map<String, PreparedStatement> queries = new HashMap<String, PreparedStatement>();
+	private Map<String, PreparedStatement> streamingQueries = new HashMap<String, PreparedStatement>();
+	private Set<PreparedStatement> openQueries = Collections.newSetFromMap(new IdentityHashMap<PreparedStatement, Boolean>());
+
+	/**
+	 * Quantidade de linhas solicitadas ao driver por vez nas consultas executadas
+	 * por executeStreamingQuery.
+	 */
+	public static final int STREAMING_FETCH_SIZE = 100;
+
+	private static final String SQLITE = "SQLite";
+
+	/**
+	 * Instância um JdbcDbConnection para o banco de dados informado no parâmetro url.
+	 * @param url Url JDBC do banco de dados.
+	 * @param userName Nome de usuário a ser utilizado no login com o banco.
+	 * @param password Senha a ser utilizada no login com o banco de dados.
+	 */
+	public JdbcDbConnection(String url, String userName, String password) {
+		this(url, userName, password, false);
+	}
+
+	/**
+	 * Instância um JdbcDbConnection para o banco de dados informado no parâmetro url.
+	 * @param url Url JDBC do banco de dados.
+	 * @param userName Nome de usuário a ser utilizado no login com o banco.
+	 * @param password Senha a ser utilizada no login com o banco de dados.
+	 * @param readOnly Indica se a conexão deve ser aberta somente para leitura.
+	 */
+	public JdbcDbConnection(String url, String userName, String password, boolean readOnly) {
+		this.url = url;
+		this.userName = userName;
+		this.password = password;
+		this.readOnly = readOnly;
+		open();
+	}
+
+	/**
+	 * Habilita o write-ahead logging no banco de dados, permitindo que as conexões
+	 * de leitura executem consultas enquanto esta conexão grava. O modo é mantido ao
+	 * reabrir a conexão. Não possui efeito em bancos de dados diferentes do SQLite.
+	 */
+	public void enableWriteAheadLogging() {
+		writeAheadLogging = true;
+		if (isOpen())
+			applyConnectionMode();
+	}
+
+	private void applyConnectionMode() {
+		try {
+			boolean sqlite = SQLITE.equals(connection.getMetaData().getDatabaseProductName());
+			if (writeAheadLogging && !readOnly && sqlite)
+				executeSql("PRAGMA journal_mode = WAL");
+			if (readOnly) {
+				if (sqlite)
+					executeSql("PRAGMA query_only = 1");
+				else
+					connection.setReadOnly(true);
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao configurar a conexão com o banco de dados " + url + ".", e);
+		}
+	}
+
+	/**
+	 * Inicia uma transação com o banco de dados.
+	 */
+	public void beginTransaction () {
+		if (!isOpen())
+			throw new IllegalStateException("Para iniciar uma transação a conexão deve ser aberta antes.");
+		try {
+			if (transactionLevel++ == 0)
+				connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao iniciar a transação.", e);
+		}
+	}
+
+	/**
+	 * Finaliza a transação com o banco de dados com sucesso.
+	 */
+	public void commitTransaction () {
+		if (!isOpen())
+			throw new IllegalStateException("Para finalizar uma transação a conexão deve ser aberta antes.");
+		if (transactionLevel == 0)
+			return;
+		if (--transactionLevel == 0)
+			endTransaction(!rollbackOnly);
+	}
+
+	/**
+	 * Finaliza a transação com o banco de dados desfazendo todas as operações
+	 * realizadas.
+	 */
+	public void rollbackTransaction () {
+		if (!isOpen())
+			throw new IllegalStateException("Para finalizar uma transação a conexão deve ser aberta antes.");
+		if (transactionLevel == 0)
+			return;
+		rollbackOnly = true;
+		if (--transactionLevel == 0)
+			endTransaction(false);
+	}
+
+	private void endTransaction(boolean commit) {
+		try {
+			if (commit)
+				connection.commit();
+			else
+				connection.rollback();
+			connection.setAutoCommit(true);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao finalizar a transação.", e);
+		} finally {
+			rollbackOnly = false;
+		}
+	}
+
+	/**
+	 * executa uma instrução sql que não retorna resultados.
+	 * @param        sql Instrução sql a ser executada.
+	 */
+	public void executeSql (String sql) {
+		if (!isOpen())
+			throw new IllegalStateException("Para executar uma instrução sql a conexão deve ser aberta antes.");
+		try {
+			Statement statement = connection.createStatement();
+			try {
+				statement.execute(sql);
+			} finally {
+				statement.close();
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao executar a instrução sql: " + sql, e);
+		}
+	}
+
+	/**
+	 * Executa uma consulta sql que retorna resultados.
+	 * @return       com.nanoorm.DbCursor
+	 * @param        sqlQuery Consulta a ser executada.
+	 */
+	public DbCursor executeSqlQuery (String sqlQuery) {
+		return executeSqlQuery(sqlQuery, new Object[0]);
+	}
+
+	/**
+	 * Executa uma consulta sql parametrizada que retorna resultados.
+	 * @return       com.nanoorm.DbCursor
+	 * @param        sqlQuery Consulta a ser executada.
+	 * @param        args Valores dos parâmetros da consulta, na ordem em que aparecem.
+	 */
+	public DbCursor executeSqlQuery (String sqlQuery, Object... args) {
+		return executeQuery(sqlQuery, args, scrollableCursors ? ResultSet.TYPE_SCROLL_INSENSITIVE : ResultSet.TYPE_FORWARD_ONLY, 0);
+	}
+
+	/**
+	 * Executa uma consulta sql parametrizada com um cursor TYPE_FORWARD_ONLY, que
+	 * obtém as linhas do driver em blocos de STREAMING_FETCH_SIZE.
+	 * @return       com.nanoorm.DbCursor
+	 * @param        sqlQuery Consulta a ser executada.
+	 * @param        args Valores dos parâmetros da consulta, na ordem em que aparecem.
+	 */
+	public DbCursor executeStreamingQuery (String sqlQuery, Object... args) {
+		return executeQuery(sqlQuery, args, ResultSet.TYPE_FORWARD_ONLY, STREAMING_FETCH_SIZE);
+	}
+
+	private DbCursor executeQuery (String sqlQuery, Object[] args, int resultSetType, int fetchSize) {
+		if (!isOpen())
+			throw new IllegalStateException("Para executar uma instrução sql a conexão deve ser aberta antes.");
+		try {
+			PreparedStatement statement = prepareQuery(sqlQuery, resultSetType, fetchSize);
+			boolean executed = false;
+			try {
+				for (int i = 0; i < args.length; i++)
+					statement.setObject(i + 1, args[i]);
+
+				DbCursor cursor = new JdbcDbCursor(statement.executeQuery(), this, sqlQuery, args);
+				executed = true;
+				return cursor;
+			} finally {
+				if (!executed)
+					releaseQuery(statement);
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao executar a consulta sql: " + sqlQuery, e);
+		}
+	}
+
+	/**
+	 * Obtém a consulta compilada em cache para o texto sql informado, com os
+	 * parâmetros limpos, ou a compila e a mantém em cache. Caso a consulta em cache
+	 * possua um cursor aberto, é compilada uma nova consulta, fechada junto com o
+	 * seu cursor.
+	 */
+	private PreparedStatement prepareQuery (String sqlQuery, int resultSetType, int fetchSize) throws SQLException {
+		Map<String, PreparedStatement> cache = fetchSize > 0 ? streamingQueries : queries;
+		PreparedStatement statement = cache.get(sqlQuery);
+		if (statement != null && openQueries.add(statement)) {
+			statement.clearParameters();
+			return statement;
+		}
+
+		PreparedStatement prepared = connection.prepareStatement(sqlQuery, resultSetType, ResultSet.CONCUR_READ_ONLY);
+		if (fetchSize > 0)
+			prepared.setFetchSize(fetchSize);
+		if (statement == null) {
+			cache.put(sqlQuery, prepared);
+			openQueries.add(prepared);
+		}
+		return prepared;
+	}
+
+	/**
+	 * Libera a consulta de um cursor fechado: consultas em cache ficam disponíveis
+	 * para a próxima execução, e as demais são fechadas.
+	 * @param statement Consulta que originou o cursor.
+	 */
+	void releaseQuery (PreparedStatement statement) throws SQLException {
+		if (!openQueries.remove(statement))
+			statement.close();
+	}
+
+	/**
+	 * Compila uma instrução sql parametrizada, reutilizando o PreparedStatement já
+	 * compilado para o mesmo texto sql enquanto a conexão estiver aberta.
+	 * @return       com.nanoorm.DbStatement
+	 * @param        sql Instrução sql a ser compilada.
+	 */
+	public DbStatement compileStatement (String sql) {
+		if (!isOpen())
+			throw new IllegalStateException("Para compilar uma instrução sql a conexão deve ser aberta antes.");
+
+		DbStatement statement = statements.get(sql);
+		if (statement == null) {
+			try {
+				if (sql.trim().toUpperCase().startsWith("INSERT"))
+					statement = new JdbcDbStatement(connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS));
+				else
+					statement = new JdbcDbStatement(connection.prepareStatement(sql));
+			} catch (SQLException e) {
+				throw new RuntimeException("Erro ao compilar a instrução sql: " + sql, e);
+			}
+			statements.put(sql, statement);
+		}
+		return statement;
+	}
+
+	@Override
+	public void close() {
+		if (!isOpen())
+			return;
+		try {
+			for (DbStatement statement : statements.values())
+				statement.close();
+			statements.clear();
+			for (PreparedStatement query : queries.values())
+				query.close();
+			queries.clear();
+			for (PreparedStatement query : streamingQueries.values())
+				query.close();
+			streamingQueries.clear();
+			openQueries.clear();
+			transactionLevel = 0;
+			rollbackOnly = false;
+			connection.close();
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao fechar a conexão com o banco de dados.", e);
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		try {
+			return connection != null && !connection.isClosed();
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void open() {
+		if (isOpen())
+			return;
+		try {
+			connection = DriverManager.getConnection(url, userName, password);
+			scrollableCursors = connection.getMetaData().supportsResultSetType(ResultSet.TYPE_SCROLL_INSENSITIVE);
+			applyConnectionMode();
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao abrir a conexão com o banco de dados " + url + ".", e);
+		}
+	}
+
+	/**
+	 * Obtém a conexão JDBC encapsulada.
+	 */
+	public Connection getJdbcConnection() {
+		return connection;
+	}
+
+}
@@ -0,0 +1,277 @@
+package com.nanoorm.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.nanoorm.DbCursor;
+import com.nanoorm.types.TypeCodecRegistry;
+
+/**
+ * Class JdbcDbCursor
+ * Encapsula um ResultSet do JDBC. Assim como no Android o cursor é posicionado
+ * na primeira linha durante a sua construção e os índices das colunas iniciam em 0.
+ * Para drivers que suportam apenas cursores TYPE_FORWARD_ONLY (ex.: SQLite) as
+ * operações previous e last não são suportadas e getRowCount é obtido através de
+ * uma consulta de contagem sobre a consulta original.
+ * isNull utiliza ResultSet.wasNull quando a coluna acabou de ser lida, evitando
+ * obter o valor da coluna como objeto.
+ */
+public class JdbcDbCursor implements DbCursor {
+
+	private ResultSet resultSet;
+	private JdbcDbConnection connection;
+	private String sqlQuery;
+	private Object[] args;
+	private boolean scrollable;
+	private boolean started;
+	private boolean onRow;
+	private int rowCount = -1;
+	private boolean closed;
+	private int lastRead = -1;
+
+	/**
+	 * Instância um JdbcDbCursor com o ResultSet informado no parâmetro resultSet.
+	 * @param resultSet ResultSet a ser encapsulado.
+	 * @param connection Conexão que originou o ResultSet.
+	 * @param sqlQuery Consulta que originou o ResultSet.
+	 * @param args Valores dos parâmetros da consulta.
+	 */
+	public JdbcDbCursor(ResultSet resultSet, JdbcDbConnection connection, String sqlQuery, Object[] args) {
+		this.resultSet = resultSet;
+		this.connection = connection;
+		this.sqlQuery = sqlQuery;
+		this.args = args;
+		try {
+			this.scrollable = resultSet.getType() != ResultSet.TYPE_FORWARD_ONLY;
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao obter o tipo do cursor.", e);
+		}
+		first();
+	}
+
+	/**
+	 * Indica se o cursor está posicionado sobre uma linha.
+	 * @return       boolean
+	 */
+	public boolean hasRow () {
+		return onRow;
+	}
+
+	/**
+	 * Move o cursor para a próxima linha.
+	 * @return       boolean
+	 */
+	public boolean next () {
+		try {
+			started = true;
+			lastRead = -1;
+			return onRow = resultSet.next();
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao mover o cursor.", e);
+		}
+	}
+
+	/**
+	 * Move o cursor para a linha anterior.
+	 * @return       boolean
+	 */
+	public boolean previous () {
+		if (!scrollable)
+			throw new UnsupportedOperationException("O cursor não permite retornar à linha anterior.");
+		try {
+			lastRead = -1;
+			return onRow = resultSet.previous();
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao mover o cursor.", e);
+		}
+	}
+
+	/**
+	 * Move o cursor para a primeira linha.
+	 */
+	public void first () {
+		try {
+			lastRead = -1;
+			if (scrollable)
+				onRow = resultSet.first();
+			else if (!started)
+				next();
+			else
+				throw new UnsupportedOperationException("O cursor não permite retornar à primeira linha.");
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao mover o cursor.", e);
+		}
+	}
+
+	/**
+	 * Move o cursor para a ultima linha.
+	 */
+	public void last () {
+		if (!scrollable)
+			throw new UnsupportedOperationException("O cursor não permite avançar para a última linha.");
+		try {
+			lastRead = -1;
+			onRow = resultSet.last();
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao mover o cursor.", e);
+		}
+	}
+
+	/**
+	 * Retorna um objeto da coluna informada no parâmetro columnIndex.
+	 * @return       Object
+	 * @param        columnIndex Índice da coluna que se deseja obter o objeto.
+	 */
+	public Object getObject (int columnIndex) {
+		try {
+			lastRead = columnIndex;
+			return resultSet.getObject(columnIndex + 1);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao obter o valor da coluna " + columnIndex + ".", e);
+		}
+	}
+
+	/**
+	 * Retorna um objeto da coluna informada no parâmetro columnName.
+	 * @return       Object
+	 * @param        columnName Nome da coluna que se deseja obter o objeto.
+	 */
+	public Object getObject (String columnName) {
+		return getObject(getColumnIndex(columnName));
+	}
+
+	/**
+	 * Retorna um objeto da coluna informada no parâmetro columnIndex.
+	 * @return       T
+	 * @param        columnName Índice da coluna que se deseja obter o objeto.
+	 * @param        typeOfValue Tipo do valor a ser obtido da coluna.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getValue(int columnIndex, Class<T> typeOfValue) {
+		return (T) TypeCodecRegistry.getDefault().getCodec(typeOfValue).read(this, columnIndex);
+	}
+
+	/**
+	 * Retorna um objeto da coluna informada no parâmetro columnName.
+	 * @return       T
+	 * @param        columnName Nome da coluna que se deseja obter o objeto.
+	 * @param        typeOfValue Tipo do valor a ser obtido da coluna.
+	 */
+	public <T> T getValue(String columnName, Class<T> typeOfValue) {
+		int columnIndex = getColumnIndex(columnName);
+		if (columnIndex < 0)
+			throw new IllegalArgumentException("A coluna " + columnName + " não existe no cursor.");
+		return getValue(columnIndex, typeOfValue);
+	}
+
+	@Override
+	public int getColumnIndex(String columnName) {
+		try {
+			return resultSet.findColumn(columnName) - 1;
+		} catch (SQLException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public boolean isNull(int columnIndex) {
+		if (columnIndex != lastRead)
+			return getObject(columnIndex) == null;
+		try {
+			return resultSet.wasNull();
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao obter o valor da coluna " + columnIndex + ".", e);
+		}
+	}
+
+	@Override
+	public int getInt(int columnIndex) {
+		try {
+			lastRead = columnIndex;
+			return resultSet.getInt(columnIndex + 1);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao obter o valor da coluna " + columnIndex + ".", e);
+		}
+	}
+
+	@Override
+	public long getLong(int columnIndex) {
+		try {
+			lastRead = columnIndex;
+			return resultSet.getLong(columnIndex + 1);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao obter o valor da coluna " + columnIndex + ".", e);
+		}
+	}
+
+	@Override
+	public double getDouble(int columnIndex) {
+		try {
+			lastRead = columnIndex;
+			return resultSet.getDouble(columnIndex + 1);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao obter o valor da coluna " + columnIndex + ".", e);
+		}
+	}
+
+	@Override
+	public String getString(int columnIndex) {
+		try {
+			lastRead = columnIndex;
+			return resultSet.getString(columnIndex + 1);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao obter o valor da coluna " + columnIndex + ".", e);
+		}
+	}
+
+	@Override
+	public byte[] getBlob(int columnIndex) {
+		try {
+			lastRead = columnIndex;
+			return resultSet.getBytes(columnIndex + 1);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao obter o valor da coluna " + columnIndex + ".", e);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			PreparedStatement statement = (PreparedStatement) resultSet.getStatement();
+			resultSet.close();
+			connection.releaseQuery(statement);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao fechar o cursor.", e);
+		}
+	}
+
+	@Override
+	public int getRowCount() {
+		if (rowCount < 0) {
+			try {
+				if (scrollable) {
+					lastRead = -1;
+					int row = resultSet.getRow();
+					resultSet.last();
+					rowCount = resultSet.getRow();
+					if (row == 0)
+						resultSet.beforeFirst();
+					else
+						resultSet.absolute(row);
+				} else {
+					JdbcDbCursor countCursor = (JdbcDbCursor) connection.executeSqlQuery("SELECT COUNT(*) FROM (" + sqlQuery + ") nanoorm_count", args);
+					rowCount = countCursor.getValue(0, Integer.class);
+					countCursor.close();
+				}
+			} catch (SQLException e) {
+				throw new RuntimeException("Erro ao obter a quantidade de linhas do cursor.", e);
+			}
+		}
+		return rowCount;
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.nanoorm.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import com.nanoorm.DbStatement;
+
+/**
+ * Class JdbcDbStatement
+ * Encapsula um PreparedStatement do JDBC.
+ */
+public class JdbcDbStatement implements DbStatement {
+
+	private PreparedStatement statement;
+
+	/**
+	 * Instância um JdbcDbStatement com a instrução compilada informada no parâmetro statement.
+	 * @param statement Instrução compilada a ser encapsulada.
+	 */
+	public JdbcDbStatement(PreparedStatement statement) {
+		this.statement = statement;
+	}
+
+	@Override
+	public void bindNull(int index) {
+		try {
+			statement.setNull(index, Types.NULL);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao associar o parâmetro " + index + " da instrução.", e);
+		}
+	}
+
+	@Override
+	public void bindLong(int index, long value) {
+		try {
+			statement.setLong(index, value);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao associar o parâmetro " + index + " da instrução.", e);
+		}
+	}
+
+	@Override
+	public void bindDouble(int index, double value) {
+		try {
+			statement.setDouble(index, value);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao associar o parâmetro " + index + " da instrução.", e);
+		}
+	}
+
+	@Override
+	public void bindString(int index, String value) {
+		try {
+			statement.setString(index, value);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao associar o parâmetro " + index + " da instrução.", e);
+		}
+	}
+
+	@Override
+	public void bindBlob(int index, byte[] value) {
+		try {
+			statement.setBytes(index, value);
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao associar o parâmetro " + index + " da instrução.", e);
+		}
+	}
+
+	@Override
+	public void clearBindings() {
+		try {
+			statement.clearParameters();
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao limpar os parâmetros da instrução.", e);
+		}
+	}
+
+	@Override
+	public void execute() {
+		try {
+			statement.execute();
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao executar a instrução sql.", e);
+		}
+	}
+
+	@Override
+	public long executeInsert() {
+		try {
+			statement.executeUpdate();
+			ResultSet keys = statement.getGeneratedKeys();
+			try {
+				// Alguns drivers (ex.: H2) retornam a chave primária informada, que pode não ser numérica.
+				Object key = keys != null && keys.next() ? keys.getObject(1) : null;
+				return key instanceof Number ? ((Number) key).longValue() : -1;
+			} finally {
+				if (keys != null)
+					keys.close();
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao executar a instrução sql.", e);
+		}
+	}
+
+	@Override
+	public int executeUpdateDelete() {
+		try {
+			return statement.executeUpdate();
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao executar a instrução sql.", e);
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			throw new RuntimeException("Erro ao liberar a instrução sql.", e);
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.nanoorm.jdbc;
+
+import com.nanoorm.DbConnection;
+import com.nanoorm.DbCursor;
+import com.nanoorm.ids.IdGenerator;
+import com.nanoorm.mappings.ClassMap;
+
+/**
+ * Representa uma sequência geradora de chaves primárias para fontes de dados JDBC.
+ * Utiliza a mesma tabela nanoORMSequence da plataforma Android, porém sem abrir
+ * ou fechar a conexão, que deve estar aberta pela fonte de dados.
+ * A existência da tabela é verificada uma única vez por instância, e novamente
+ * após reset, pois a sua criação é desfeita junto com a transação em alguns bancos
+ * (ex.: SQLite). Cada chave é obtida incrementando a sequência e lendo o novo
+ * valor na mesma transação.
+ * Corresponde à estratégia GenerationType.SEQUENCE.
+ */
+public class JdbcSequence implements IdGenerator {
+
+	private static final String INCREMENT = "UPDATE nanoORMSequence SET idSequence = idSequence + 1";
+	private static final String SELECT = "SELECT idSequence FROM nanoORMSequence";
+
+	private volatile boolean sequenceChecked;
+
+	private static void buildSequence(DbConnection connection) {
+		connection.beginTransaction();
+		try {
+			connection.executeSql("CREATE TABLE IF NOT EXISTS nanoORMSequence (idSequence BIGINT)");
+			DbCursor cursor = connection.executeSqlQuery(SELECT);
+			int sequenceLength = cursor.getRowCount();
+			cursor.close();
+			if (sequenceLength == 0)
+				connection.executeSql("INSERT INTO nanoORMSequence (idSequence) VALUES (0)");
+			connection.commitTransaction();
+		} catch (RuntimeException e) {
+			connection.rollbackTransaction();
+			throw e;
+		}
+	}
+
+	/**
+	 * Incrementa a sequência e lê o novo valor em uma única transação. O update é
+	 * executado antes da consulta para que o banco de dados bloqueie as gravações
+	 * concorrentes até o fim da transação; com uma PooledDbConnection a consulta
+	 * também é executada na conexão de escrita.
+	 */
+	private static <T> T nextKey(DbConnection connection, Class<T> typeOfKey) {
+		connection.beginTransaction();
+		try {
+			connection.compileStatement(INCREMENT).execute();
+			DbCursor cursor = connection.executeSqlQuery(SELECT);
+			T key;
+			try {
+				key = cursor.getValue(0, typeOfKey);
+			} finally {
+				cursor.close();
+			}
+			connection.commitTransaction();
+			return key;
+		} catch (RuntimeException e) {
+			connection.rollbackTransaction();
+			throw e;
+		}
+	}
+
+	@Override
+	public void init(ClassMap<?> classMap) { }
+
+	@Override
+	public boolean isPostInsert() {
+		return false;
+	}
+
+	@Override
+	public Object generate(DbConnection connection) {
+		if (!sequenceChecked) {
+			buildSequence(connection);
+			sequenceChecked = true;
+		}
+		return nextKey(connection, Long.class);
+	}
+
+	@Override
+	public void reset() {
+		sequenceChecked = false;
+	}
+
+}
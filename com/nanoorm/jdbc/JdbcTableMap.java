@@ -0,0 +1,81 @@
+package com.nanoorm.jdbc;
+
+import java.lang.reflect.Field;
+
+import com.nanoorm.annotations.GenerationType;
+import com.nanoorm.annotations.Id;
+import com.nanoorm.mappings.TableMap;
+import com.nanoorm.types.TypeCodecRegistry;
+
+/**
+ * Class JdbcTableMap
+ * Gera a representação das classes mapeadas em tabelas utilizando tipos sql
+ * padrão, aceitos pelos bancos embarcados mais comuns (SQLite, H2, HSQLDB).
+ */
+public class JdbcTableMap<T> extends TableMap<T> {
+
+	public JdbcTableMap(Class<T> entityClassType) {
+		this(entityClassType, TypeCodecRegistry.getDefault());
+	}
+
+	public JdbcTableMap(Class<T> entityClassType, TypeCodecRegistry typeCodecs) {
+		super(entityClassType, typeCodecs);
+		createTableInstruction = "CREATE TABLE :table(:columns)";
+	}
+
+	@Override
+	protected String buildAlterColumn(String column, String newType) {
+		return null;
+	}
+
+	@Override
+	protected String buildCreateTable() {
+		StringBuilder columns = new StringBuilder();
+		if (idProperty.getAnnotation(Id.class).strategy() == GenerationType.ROWID)
+			columns.append(primaryKey).append(" INTEGER PRIMARY KEY");
+		else
+			columns.append(primaryKey).append(" ").append(getSqlType(idProperty.getType())).append(" PRIMARY KEY");
+
+		for (Field property : tableColumns.keySet())
+			if (property != idProperty)
+				columns.append(", ").append(tableColumns.get(property)).append(" ").append(getSqlType(property.getType()));
+
+		StringBuilder sql = new StringBuilder(createTableInstruction);
+		sql.replace(sql.indexOf(":table"), sql.indexOf(":table") + 6, tableName);
+		sql.replace(sql.indexOf(":columns"), sql.indexOf(":columns") + 8, columns.toString());
+		return sql.toString();
+	}
+
+	@Override
+	protected String buildForeignKey(String foreignKeyColumn,
+			String primaryKeyColumn, String foreignKeyTable) {
+		return null;
+	}
+
+	@Override
+	protected String buildPrimaryKey() {
+		return null;
+	}
+
+	@Override
+	protected void getTableInfo() {
+
+	}
+
+	@Override
+	protected String getSqlType(Class<?> propertyType) {
+		String value = "";
+		switch (typeCodecs.getCodec(propertyType).getStorageClass()) {
+		case INTEGER:
+			value = "BIGINT"; break;
+		case REAL:
+			value = "DOUBLE"; break;
+		case TEXT:
+			value = "VARCHAR(255)"; break;
+		case BLOB:
+			value = "BLOB"; break;
+		}
+		return value;
+	}
+
+}
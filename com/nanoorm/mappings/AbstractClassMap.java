@@ -0,0 +1,913 @@
+package com.nanoorm.mappings;
+
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.nanoorm.CloseableIterator;
+import com.nanoorm.DataSource;
+import com.nanoorm.DbConnection;
+import com.nanoorm.DbCursor;
+import com.nanoorm.DbStatement;
+import com.nanoorm.IdentityMap;
+import com.nanoorm.LoadedReferences;
+import com.nanoorm.Ref;
+import com.nanoorm.annotations.Column;
+import com.nanoorm.annotations.Entity;
+import com.nanoorm.annotations.FetchType;
+import com.nanoorm.annotations.Id;
+import com.nanoorm.annotations.ManyToMany;
+import com.nanoorm.annotations.ManyToOne;
+import com.nanoorm.annotations.OneToMany;
+import com.nanoorm.annotations.OneToOne;
+import com.nanoorm.annotations.Transient;
+import com.nanoorm.ids.HiLoIdGenerator;
+import com.nanoorm.ids.IdGenerator;
+import com.nanoorm.ids.RowIdGenerator;
+import com.nanoorm.ids.TimeOrderedIdGenerator;
+import com.nanoorm.types.TypeCodecRegistry;
+
+/**
+ * Class AbstractClassMap
+ * Implementação base da interface ClassMap, contém o mapeamento comum entre uma
+ * classe e a fonte de dados, cabendo às especializações de cada plataforma apenas
+ * o que for específico do banco de dados utilizado.
+ * Por ser compartilhado pelas fontes de dados de uma mesma Configuration, o
+ * mapeamento não guarda a fonte de dados que o construiu: os métodos que dependem
+ * da sessão ou da conexão recebem a fonte de dados do chamador.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public abstract class AbstractClassMap <T> implements ClassMap<T> {
+
+	private static final String ROOT_ALIAS = "t";
+	private static final String JOIN_ALIAS = "j";
+
+	private String selectInstruction;
+	private String selectAllInstruction;
+	private String firstPageInstruction;
+	private String nextPageInstruction;
+	private String offsetPageInstruction;
+	private String countInstruction;
+	private String insertInstruction;
+	private String updateInstruction;
+	private String deleteInstruction;
+	private Class<T> entityClassType;
+	private Constructor<T> constructor;
+	private PropertyMap[] properties;
+	private Constructor<?>[] referencedConstructors;
+	private String[] joinFetchedProperties;
+	private Map<String, PropertyMap> propertiesByName = new HashMap<String, PropertyMap>();
+	private Map<String, String> cachedInstructions = new ConcurrentHashMap<String, String>();
+	private Map<Long, String> updateInstructions = new ConcurrentHashMap<Long, String>();
+	private PropertyMap idPropertyMap;
+	private int idPosition;
+	private Field idProperty;
+	private String idColumn;
+	private String tableName;
+	private IdGenerator idGenerator;
+
+	private void init(TypeCodecRegistry typeCodecs) {
+		List<PropertyMap> propertyMaps = new ArrayList<PropertyMap>();
+		Entity entity = entityClassType.getAnnotation(Entity.class);
+		tableName = "".equals(entity.tableName()) ? entityClassType.getSimpleName() : entity.tableName();
+
+		for (Field field : entityClassType.getDeclaredFields()) {
+			String column = "";
+
+			if (!field.isAnnotationPresent(Transient.class)) {
+				if ((field.isAnnotationPresent(ManyToOne.class)) || // ManyToOne
+					(field.isAnnotationPresent(OneToOne.class) && "".equals(field.getAnnotation(OneToOne.class).mappedBy())) && // OneToOne
+					!"org.aspectj.lang.JoinPoint$StaticPart".equals(field.getType().getName())) {
+					Class<?> referencedClass = PropertyMap.getReferencedType(field);
+					String referencedTable = "".equals(referencedClass.getAnnotation(Entity.class).tableName()) ? referencedClass.getSimpleName() : referencedClass.getAnnotation(Entity.class).tableName();
+
+					column = field.isAnnotationPresent(Column.class) ? field.getAnnotation(Column.class).name() : referencedTable.toLowerCase() + "_id";
+					propertyMaps.add(new PropertyMap(field, column, buildReferencedId(referencedClass, column, typeCodecs)));
+				} else if(!field.isAnnotationPresent(OneToOne.class) &&
+						  !"org.aspectj.lang.JoinPoint$StaticPart".equals(field.getType().getName()) &&
+						  !field.isAnnotationPresent(OneToMany.class) &&
+						  !field.isAnnotationPresent(ManyToMany.class)) {
+					column = field.isAnnotationPresent(Column.class) ? field.getAnnotation(Column.class).name() : field.getName();
+
+					if (field.isAnnotationPresent(Id.class)) {
+						idPropertyMap = new PropertyMap(field, column, PropertyMap.Kind.ID, typeCodecs.getCodec(field.getType()));
+						idProperty = field;
+						idColumn = column;
+						propertyMaps.add(idPropertyMap);
+					} else
+						propertyMaps.add(new PropertyMap(field, column, PropertyMap.Kind.SCALAR, typeCodecs.getCodec(field.getType())));
+				}
+			}
+		}
+		properties = propertyMaps.toArray(new PropertyMap[propertyMaps.size()]);
+		idPosition = propertyMaps.indexOf(idPropertyMap);
+		constructor = getConstructor(entityClassType);
+		referencedConstructors = new Constructor<?>[properties.length];
+		for (int i = 0; i < properties.length; i++)
+			if (properties[i].getKind() == PropertyMap.Kind.REFERENCE)
+				referencedConstructors[i] = getConstructor(properties[i].getReferencedType());
+		List<String> joined = new ArrayList<String>();
+		for (PropertyMap property : properties) {
+			propertiesByName.put(property.getField().getName(), property);
+			if (property.getKind() == PropertyMap.Kind.REFERENCE && getFetchType(property.getField()) == FetchType.JOIN)
+				joined.add(property.getField().getName());
+		}
+		joinFetchedProperties = joined.toArray(new String[joined.size()]);
+
+		Id id = idProperty.getAnnotation(Id.class);
+		if (id.autoGenerate()) {
+			idGenerator = createIdGenerator(id);
+			idGenerator.init(this);
+		}
+
+		initSelect();
+		initInsert();
+		initUpdate();
+		initDelete();
+	}
+
+	/**
+	 * Constrói o mapeamento do id da entidade referenciada, utilizado para ler e
+	 * gravar a chave estrangeira sem depender do ClassMap da entidade referenciada.
+	 */
+	private static PropertyMap buildReferencedId(Class<?> referencedClass, String column, TypeCodecRegistry typeCodecs) {
+		for (Field field : referencedClass.getDeclaredFields())
+			if (field.isAnnotationPresent(Id.class))
+				return new PropertyMap(field, column, PropertyMap.Kind.ID, typeCodecs.getCodec(field.getType()));
+		throw new IllegalArgumentException("A classe " + referencedClass.getName() + " não possui um atributo anotado com @Id.");
+	}
+
+	/**
+	 * Obtém o construtor sem parâmetros da classe informada, já acessível, utilizado
+	 * para instanciar as entidades sem reflexão a cada linha.
+	 */
+	private static <E> Constructor<E> getConstructor(Class<E> type) {
+		try {
+			Constructor<E> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return constructor;
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("A classe " + type.getName() + " deve possuir um construtor sem parâmetros.", e);
+		}
+	}
+
+	private static FetchType getFetchType(Field field) {
+		if (field.isAnnotationPresent(ManyToOne.class))
+			return field.getAnnotation(ManyToOne.class).fetch();
+		return field.getAnnotation(OneToOne.class).fetch();
+	}
+
+	private void initSelect() {
+		StringBuilder sql = new StringBuilder("SELECT ");
+
+		for (PropertyMap property : properties)
+			sql.append(property.getColumn()).append(", ");
+
+		sql.delete(sql.lastIndexOf(", "), sql.lastIndexOf(", ") + 1);
+		sql.append("FROM ").append(tableName);
+
+		selectAllInstruction = sql.toString();
+		firstPageInstruction = selectAllInstruction + " ORDER BY " + idColumn + " LIMIT ?";
+		nextPageInstruction = selectAllInstruction + " WHERE " + idColumn + " > ? ORDER BY " + idColumn + " LIMIT ?";
+		offsetPageInstruction = firstPageInstruction + " OFFSET ?";
+		countInstruction = "SELECT COUNT(*) FROM " + tableName;
+
+		sql.append(" WHERE ").append(idColumn).append(" = ?");
+		selectInstruction = sql.toString();
+	}
+
+	private void initInsert() {
+		StringBuilder columns = new StringBuilder();
+		StringBuilder parameters = new StringBuilder();
+
+		for (PropertyMap property : properties) {
+			if (property == idPropertyMap && isPostInsertId())
+				continue;
+			columns.append(property.getColumn()).append(", ");
+			parameters.append("?, ");
+		}
+
+		if (columns.length() == 0) {
+			// Somente o id, gerado pelo banco de dados.
+			insertInstruction = "INSERT INTO " + tableName + " DEFAULT VALUES";
+			return;
+		}
+		columns.delete(columns.lastIndexOf(", "), columns.length());
+		parameters.delete(parameters.lastIndexOf(", "), parameters.length());
+		insertInstruction = "INSERT INTO " + tableName + "(" + columns + ") VALUES (" + parameters + ")";
+	}
+
+	private void initUpdate() {
+		updateInstruction = buildUpdate(null);
+	}
+
+	/**
+	 * Gera a instrução update das colunas dos atributos informados, ou de todos os
+	 * atributos exceto o id caso properties seja null. Retorna null caso não exista
+	 * nenhuma coluna a ser gravada.
+	 */
+	private String buildUpdate(int[] dirtyProperties) {
+		StringBuilder sql = new StringBuilder("UPDATE ").append(tableName);
+		sql.append(" SET ");
+		int length = sql.length();
+
+		if (dirtyProperties == null) {
+			for (PropertyMap property : properties)
+				if (property != idPropertyMap)
+					sql.append(property.getColumn()).append(" = ?, ");
+		} else
+			for (int position : dirtyProperties)
+				sql.append(properties[position].getColumn()).append(" = ?, ");
+
+		if (sql.length() == length)
+			return null;
+		sql.delete(sql.lastIndexOf(","), sql.lastIndexOf(",") + 1);
+		sql.append("WHERE ").append(idColumn).append(" = ?");
+		return sql.toString();
+	}
+
+	private void initDelete() {
+		StringBuilder sql = new StringBuilder("DELETE FROM ").append(tableName);
+		sql.append(" WHERE ").append(idColumn).append(" = ?");
+		deleteInstruction = sql.toString();
+	}
+
+	/**
+	 * Associa ao parâmetro da instrução o id da entidade referenciada pelo atributo
+	 * REFERENCE, utilizando o codec do id da entidade referenciada.
+	 */
+	private void bindReference(DbStatement statement, int index, PropertyMap property, Object entity) {
+		property.getReferencedIdPropertyMap().bindValue(statement, index, getReferencedId(property, property.get(entity)));
+	}
+
+	private static Serializable getReferencedId(PropertyMap property, Object referencedObject) {
+		if (referencedObject == null)
+			return null;
+		if (referencedObject instanceof Ref)
+			return ((Ref<?>) referencedObject).getId();
+
+		return (Serializable) property.getReferencedIdPropertyMap().get(referencedObject);
+	}
+
+	/**
+	 * Obtém o gerador de chaves definido na anotação @Id informada.
+	 */
+	private IdGenerator createIdGenerator(Id id) {
+		if (id.generator() != IdGenerator.class) {
+			try {
+				return id.generator().getDeclaredConstructor().newInstance();
+			} catch (Exception e) {
+				throw new RuntimeException("Erro ao obter uma instância do gerador de chaves " + id.generator().getName() + ".", e);
+			}
+		}
+
+		switch (id.strategy()) {
+		case ROWID:
+			return new RowIdGenerator();
+		case HILO:
+			return new HiLoIdGenerator(id.allocationSize());
+		case TIME:
+			return new TimeOrderedIdGenerator();
+		default:
+			return createSequenceGenerator();
+		}
+	}
+
+	@Override
+	public boolean isPostInsertId() {
+		return idGenerator != null && idGenerator.isPostInsert();
+	}
+
+	@Override
+	public void generateId(T entity, DbConnection connection) {
+		if (idGenerator != null && !idGenerator.isPostInsert())
+			idPropertyMap.set(entity, idPropertyMap.convert(idGenerator.generate(connection)));
+	}
+
+	@Override
+	public void resetIdGenerator() {
+		if (idGenerator != null)
+			idGenerator.reset();
+	}
+
+	/**
+	 * Obtém o gerador de chaves da estratégia GenerationType.SEQUENCE, que depende
+	 * da plataforma utilizada.
+	 */
+	protected abstract IdGenerator createSequenceGenerator();
+
+	/**
+	 * Constrói uma instância de ClassMap para a classe informada no
+	 * parâmetro entityClass.
+	 * @param        entityClass Classe a qual se deseja obter os mapeamentos.
+	 * @param        dataSource Fonte de dados da qual são obtidos os codecs dos
+	 * atributos durante a construção; não é mantida pelo ClassMap.
+	 */
+	public AbstractClassMap (Class<T> entityClass, DataSource dataSource) {
+		this.entityClassType = entityClass;
+		init(dataSource.getTypeCodecRegistry());
+	}
+
+	@Override
+	public String getSelectInstruction() {
+		return selectInstruction;
+	}
+
+	/**
+	 * Constrói a instrução sql select que seleciona todos os objetos.
+	 * @return       String
+	 */
+	public String buildSelectForAll () {
+		return selectAllInstruction;
+	}
+
+	@Override
+	public String getFirstPageInstruction() {
+		return firstPageInstruction;
+	}
+
+	@Override
+	public String getNextPageInstruction() {
+		return nextPageInstruction;
+	}
+
+	@Override
+	public String getOffsetPageInstruction() {
+		return offsetPageInstruction;
+	}
+
+	@Override
+	public String getCountInstruction() {
+		return countInstruction;
+	}
+
+	@Override
+	public String getInsertInstruction() {
+		return insertInstruction;
+	}
+
+	@Override
+	public String getUpdateInstruction() {
+		return updateInstruction;
+	}
+
+	@Override
+	public String getDeleteInstruction() {
+		return deleteInstruction;
+	}
+
+	@Override
+	public void bindInsert(DbStatement statement, T entity, DbConnection connection) {
+		int index = 1;
+
+		for (PropertyMap property : properties) {
+			switch (property.getKind()) {
+			case REFERENCE:
+				bindReference(statement, index++, property, entity);
+				break;
+			case ID:
+				if (isPostInsertId())
+					break;
+				if (connection != null)
+					generateId(entity, connection);
+				property.bind(statement, index++, entity);
+				break;
+			default:
+				property.bind(statement, index++, entity);
+			}
+		}
+	}
+
+	@Override
+	public void afterInsert(T entity, long insertedId) {
+		if (isPostInsertId() && insertedId != -1)
+			setEntityId(entity, Long.valueOf(insertedId));
+	}
+
+	@Override
+	public void bindUpdate(DbStatement statement, T entity) {
+		bindUpdate(statement, entity, null);
+	}
+
+	@Override
+	public void bindUpdate(DbStatement statement, T entity, int[] dirtyProperties) {
+		int index = 1;
+
+		if (dirtyProperties == null) {
+			for (PropertyMap property : properties)
+				if (property != idPropertyMap)
+					bindProperty(statement, index++, property, entity);
+		} else
+			for (int position : dirtyProperties)
+				bindProperty(statement, index++, properties[position], entity);
+
+		idPropertyMap.bind(statement, index, entity);
+	}
+
+	private void bindProperty(DbStatement statement, int index, PropertyMap property, Object entity) {
+		if (property.getKind() == PropertyMap.Kind.REFERENCE)
+			bindReference(statement, index, property, entity);
+		else
+			property.bind(statement, index, entity);
+	}
+
+	@Override
+	public String getUpdateInstruction(int[] dirtyProperties) {
+		if (dirtyProperties == null)
+			return updateInstruction;
+		if (dirtyProperties.length == 0)
+			return null;
+
+		if (properties.length > Long.SIZE) {
+			String shape = "update:" + Arrays.toString(dirtyProperties);
+			String sql = cachedInstructions.get(shape);
+			if (sql == null) {
+				sql = buildUpdate(dirtyProperties);
+				cachedInstructions.put(shape, sql);
+			}
+			return sql;
+		}
+
+		// O conjunto de atributos é identificado por uma máscara de bits, sem gerar texto a cada gravação.
+		long mask = 0;
+		for (int position : dirtyProperties)
+			mask |= 1L << position;
+		Long shape = Long.valueOf(mask);
+		String sql = updateInstructions.get(shape);
+		if (sql == null) {
+			sql = buildUpdate(dirtyProperties);
+			updateInstructions.put(shape, sql);
+		}
+		return sql;
+	}
+
+	@Override
+	public int[] getDirtyProperties(Object[] snapshot, Object[] state) {
+		int count = 0;
+		int[] dirty = new int[properties.length];
+		for (int i = 0; i < properties.length; i++) {
+			if (i == idPosition)
+				continue;
+			Object previous = snapshot[i];
+			Object current = state[i];
+			boolean equal = previous instanceof byte[] && current instanceof byte[] ?
+					Arrays.equals((byte[]) previous, (byte[]) current) :
+					previous == null ? current == null : previous.equals(current);
+			if (!equal)
+				dirty[count++] = i;
+		}
+		return Arrays.copyOf(dirty, count);
+	}
+
+	@Override
+	public void bindDelete(DbStatement statement, T entity) {
+		idPropertyMap.bind(statement, 1, entity);
+	}
+
+	@Override
+	public List<T> buildList(DbCursor dbCursor, DataSource dataSource) {
+		return buildList(dbCursor, null, null, null, dataSource);
+	}
+
+	@Override
+	public List<T> buildList(DbCursor dbCursor, String keyColumn, PropertyMap keyProperty, List<Object> keys, DataSource dataSource) {
+		List<T> list = new ArrayList<T>();
+		try {
+			if (!dbCursor.hasRow())
+				return list;
+			int[] columnIndexes = resolveColumnIndexes(dbCursor, "");
+			int keyIndex = keyColumn == null ? -1 : dbCursor.getColumnIndex(keyColumn);
+			IdentityMap identityMap = dataSource.getIdentityMap();
+
+			do {
+				if (keyIndex >= 0)
+					keys.add(keyProperty.read(dbCursor, keyIndex));
+				list.add(buildRow(dbCursor, columnIndexes, identityMap, dataSource));
+			} while (dbCursor.next());
+		} finally {
+			dbCursor.close();
+		}
+		return list;
+	}
+
+	@Override
+	public String buildJoinedSelect(String[] joinedProperties, DataSource dataSource) {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		StringBuilder from = new StringBuilder(" FROM ").append(tableName).append(' ').append(ROOT_ALIAS);
+
+		for (PropertyMap property : properties)
+			sql.append(ROOT_ALIAS).append('.').append(property.getColumn()).append(", ");
+
+		for (int i = 0; i < joinedProperties.length; i++) {
+			PropertyMap property = getReferenceProperty(joinedProperties[i]);
+			ClassMap<?> referencedClassMap = property.getReferencedClassMap(dataSource);
+			String alias = JOIN_ALIAS + i;
+
+			for (String column : referencedClassMap.getColumns())
+				sql.append(alias).append('.').append(column).append(" AS ").append(alias).append('_').append(column).append(", ");
+			from.append(" LEFT JOIN ").append(referencedClassMap.getTableName()).append(' ').append(alias);
+			from.append(" ON (").append(ROOT_ALIAS).append('.').append(property.getColumn()).append(" = ");
+			from.append(alias).append('.').append(referencedClassMap.getIdColumn()).append(')');
+		}
+
+		sql.setLength(sql.length() - 2);
+		return sql.append(from).toString();
+	}
+
+	@Override
+	public List<T> buildList(DbCursor dbCursor, String[] joinedProperties, DataSource dataSource) {
+		try {
+			return buildJoinedList(dbCursor, joinedProperties, dataSource);
+		} finally {
+			dbCursor.close();
+		}
+	}
+
+	private List<T> buildJoinedList(DbCursor dbCursor, String[] joinedProperties, DataSource dataSource) {
+		List<T> list = new ArrayList<T>();
+		if (!dbCursor.hasRow())
+			return list;
+		int[] columnIndexes = resolveColumnIndexes(dbCursor, "");
+		IdentityMap identityMap = dataSource.getIdentityMap();
+
+		PropertyMap[] joined = new PropertyMap[joinedProperties.length];
+		AbstractClassMap<?>[] joinedClassMaps = new AbstractClassMap<?>[joinedProperties.length];
+		int[][] joinedIndexes = new int[joinedProperties.length][];
+		List<Map<Object, Object>> loaded = new ArrayList<Map<Object, Object>>();
+		for (int i = 0; i < joined.length; i++) {
+			joined[i] = getReferenceProperty(joinedProperties[i]);
+			joinedClassMaps[i] = (AbstractClassMap<?>) joined[i].getReferencedClassMap(dataSource);
+			joinedIndexes[i] = joinedClassMaps[i].resolveColumnIndexes(dbCursor, JOIN_ALIAS + i + "_");
+			loaded.add(new HashMap<Object, Object>());
+		}
+
+		do {
+			T object = buildRow(dbCursor, columnIndexes, identityMap, dataSource);
+			for (int i = 0; i < joined.length; i++) {
+				AbstractClassMap<?> joinedClassMap = joinedClassMaps[i];
+				int idIndex = joinedIndexes[i][joinedClassMap.idPosition];
+				if (idIndex < 0 || dbCursor.isNull(idIndex))
+					continue;
+
+				// Sem mapa de identidade, cada entidade referenciada é instanciada uma única vez por consulta.
+				Object referencedObject;
+				if (identityMap != null)
+					referencedObject = joinedClassMap.buildRow(dbCursor, joinedIndexes[i], identityMap, dataSource);
+				else {
+					Object id = joinedClassMap.idPropertyMap.read(dbCursor, idIndex);
+					referencedObject = loaded.get(i).get(id);
+					if (referencedObject == null) {
+						referencedObject = joinedClassMap.buildRow(dbCursor, joinedIndexes[i], null, dataSource);
+						loaded.get(i).put(id, referencedObject);
+					}
+				}
+				LoadedReferences.mark(referencedObject);
+				joined[i].set(object, joined[i].isLazy() ? Ref.to(referencedObject) : referencedObject);
+			}
+			list.add(object);
+		} while (dbCursor.next());
+		return list;
+	}
+
+	@Override
+	public String[] getJoinFetchedProperties() {
+		return joinFetchedProperties.clone();
+	}
+
+	/**
+	 * Obtém o mapeamento de um atributo @ManyToOne ou @OneToOne (lado dono).
+	 */
+	private PropertyMap getReferenceProperty(String propertyName) {
+		PropertyMap property = propertiesByName.get(propertyName);
+		if (property == null || property.getKind() != PropertyMap.Kind.REFERENCE)
+			throw new IllegalArgumentException("O atributo " + propertyName + " não é uma referência @ManyToOne ou @OneToOne da classe " + entityClassType.getName() + ".");
+		return property;
+	}
+
+	@Override
+	public CloseableIterator<T> buildIterator(DbCursor dbCursor, DataSource dataSource) {
+		return new CursorIterator(dbCursor, dataSource);
+	}
+
+	/**
+	 * Instancia um objeto com os valores da linha corrente do cursor. Quando existe
+	 * um mapa de identidade e o cursor possui todas as colunas mapeadas, a instância
+	 * já registrada com o mesmo id é reutilizada; uma referência registrada
+	 * anteriormente é completada com os valores da linha. As referências a outras
+	 * entidades também são obtidas do mapa quando existirem.
+	 * @param columnIndexes Posição das colunas obtida por resolveColumnIndexes.
+	 * @param identityMap Mapa de identidade da sessão corrente, ou null.
+	 * @param dataSource Fonte de dados das referências preguiçosas.
+	 */
+	@SuppressWarnings("unchecked")
+	private T buildRow(DbCursor dbCursor, int[] columnIndexes, IdentityMap identityMap, DataSource dataSource) {
+		T object = null;
+		int idIndex = columnIndexes[idPosition];
+		boolean managed = identityMap != null && idIndex >= 0 && !dbCursor.isNull(idIndex) && isComplete(columnIndexes);
+
+		if (managed) {
+			object = (T) lookup(identityMap, entityClassType, idPropertyMap, dbCursor, idIndex, false);
+			if (object != null)
+				return object;
+			object = (T) lookup(identityMap, entityClassType, idPropertyMap, dbCursor, idIndex, true);
+		}
+		if (object == null)
+			object = newInstance();
+
+		for (int i = 0; i < properties.length; i++) {
+			PropertyMap property = properties[i];
+			int columnIndex = columnIndexes[i];
+			if (columnIndex < 0)
+				continue;
+
+			if (property.getKind() == PropertyMap.Kind.REFERENCE) {
+				if (!dbCursor.isNull(columnIndex)) {
+					PropertyMap referencedId = property.getReferencedIdPropertyMap();
+					Object referencedObject = null;
+					if (property.isLazy())
+						referencedObject = newRef(property, referencedId.read(dbCursor, columnIndex), dataSource);
+					else if (identityMap != null)
+						referencedObject = lookup(identityMap, property.getReferencedType(), referencedId, dbCursor, columnIndex, true);
+					if (referencedObject == null) {
+						referencedObject = newInstance(referencedConstructors[i]);
+						referencedId.hydrate(dbCursor, columnIndex, referencedObject);
+						if (identityMap != null)
+							identityMap.putReference(property.getReferencedType(), referencedId.get(referencedObject), referencedObject);
+					}
+					property.set(object, referencedObject);
+				}
+			} else
+				property.hydrate(dbCursor, columnIndex, object);
+		}
+
+		if (managed) {
+			identityMap.put(entityClassType, idPropertyMap.get(object), object);
+			identityMap.setSnapshot(object, getState(object));
+		}
+		return object;
+	}
+
+	/**
+	 * Cria a referência preguiçosa de um atributo declarado como Ref, que será
+	 * carregada através da fonte de dados informada.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Ref<?> newRef(PropertyMap property, Object referencedId, DataSource dataSource) {
+		Object id = property.getReferencedIdPropertyMap().convert(referencedId);
+		return new Ref(property.getReferencedType(), (Serializable) id, dataSource);
+	}
+
+	/**
+	 * Indica se o cursor possui todas as colunas mapeadas, isto é, se os objetos
+	 * instanciados a partir dele estarão completos.
+	 */
+	private static boolean isComplete(int[] columnIndexes) {
+		for (int columnIndex : columnIndexes)
+			if (columnIndex < 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Procura no mapa de identidade a instância cujo id está na coluna informada do
+	 * cursor. Ids inteiros são lidos como long, sem a criação de objetos.
+	 * @param reference Indica se as referências também devem ser consideradas.
+	 */
+	private static Object lookup(IdentityMap identityMap, Class<?> entityClass, PropertyMap id, DbCursor dbCursor, int columnIndex, boolean reference) {
+		if (isIntegral(id.getType())) {
+			long key = dbCursor.getLong(columnIndex);
+			return reference ? identityMap.getReference(entityClass, key) : identityMap.get(entityClass, key);
+		}
+
+		Object key = id.read(dbCursor, columnIndex);
+		return reference ? identityMap.getReference(entityClass, key) : identityMap.get(entityClass, key);
+	}
+
+	private static boolean isIntegral(Class<?> type) {
+		return type == long.class || type == Long.class || type == int.class || type == Integer.class ||
+			   type == short.class || type == Short.class;
+	}
+
+	/**
+	 * Iterator que instancia um objeto por linha do cursor, avançando o cursor
+	 * somente quando o objeto seguinte é solicitado.
+	 */
+	private class CursorIterator implements CloseableIterator<T> {
+
+		private DbCursor dbCursor;
+		private DataSource dataSource;
+		private int[] columnIndexes;
+		private IdentityMap identityMap;
+		private boolean open = true;
+
+		CursorIterator(DbCursor dbCursor, DataSource dataSource) {
+			this.dbCursor = dbCursor;
+			this.dataSource = dataSource;
+			if (dbCursor.hasRow()) {
+				columnIndexes = resolveColumnIndexes(dbCursor, "");
+				identityMap = dataSource.getIdentityMap();
+			} else
+				close();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return open;
+		}
+
+		@Override
+		public T next() {
+			if (!open)
+				throw new NoSuchElementException();
+
+			T object = buildRow(dbCursor, columnIndexes, identityMap, dataSource);
+			if (!dbCursor.next())
+				close();
+			return object;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("O iterator não permite a remoção de objetos.");
+		}
+
+		@Override
+		public void close() {
+			if (open) {
+				open = false;
+				dbCursor.close();
+			}
+		}
+	}
+
+	/**
+	 * Resolve uma única vez por cursor a posição de cada coluna mapeada, que será
+	 * utilizada para todas as linhas. Colunas ausentes no cursor recebem -1.
+	 * @param prefix Prefixo do nome das colunas no cursor, utilizado pelas
+	 * colunas das entidades obtidas por LEFT JOIN.
+	 */
+	private int[] resolveColumnIndexes(DbCursor dbCursor, String prefix) {
+		int[] columnIndexes = new int[properties.length];
+		for (int i = 0; i < properties.length; i++)
+			columnIndexes[i] = dbCursor.getColumnIndex(prefix + properties[i].getColumn());
+		return columnIndexes;
+	}
+
+	@Override
+	public Object[] getState(T entity) {
+		Object[] state = new Object[properties.length];
+
+		for (int i = 0; i < properties.length; i++) {
+			PropertyMap property = properties[i];
+			Object value = property.get(entity);
+			if (value == null)
+				continue;
+
+			if (property.getKind() == PropertyMap.Kind.REFERENCE)
+				state[i] = getReferencedId(property, value);
+			else
+				state[i] = copy(property.getCodec().toSql(value));
+		}
+		return state;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T buildObject(Object[] state, DataSource dataSource) {
+		IdentityMap identityMap = dataSource.getIdentityMap();
+		Object id = idPropertyMap.convert(state[idPosition]);
+		T object = null;
+
+		if (identityMap != null) {
+			object = (T) identityMap.get(entityClassType, id);
+			if (object != null)
+				return object;
+			object = (T) identityMap.getReference(entityClassType, id);
+		}
+		if (object == null)
+			object = newInstance();
+
+		for (int i = 0; i < properties.length; i++) {
+			PropertyMap property = properties[i];
+			if (state[i] == null)
+				continue;
+
+			if (property.getKind() == PropertyMap.Kind.REFERENCE) {
+				PropertyMap referencedId = property.getReferencedIdPropertyMap();
+				Object referencedObject = null;
+				if (property.isLazy())
+					referencedObject = newRef(property, state[i], dataSource);
+				else if (identityMap != null)
+					referencedObject = identityMap.getReference(property.getReferencedType(), state[i]);
+				if (referencedObject == null) {
+					referencedObject = newInstance(referencedConstructors[i]);
+					referencedId.set(referencedObject, referencedId.convert(state[i]));
+					if (identityMap != null)
+						identityMap.putReference(property.getReferencedType(), state[i], referencedObject);
+				}
+				property.set(object, referencedObject);
+			} else
+				property.set(object, property.convert(copy(state[i])));
+		}
+
+		if (identityMap != null) {
+			identityMap.put(entityClassType, id, object);
+			identityMap.setSnapshot(object, state);
+		}
+		return object;
+	}
+
+	/**
+	 * Copia os valores mutáveis (blobs) compartilhados entre o estado e as entidades.
+	 */
+	private static Object copy(Object value) {
+		return value instanceof byte[] ? ((byte[]) value).clone() : value;
+	}
+
+	@Override
+	public T newInstance() {
+		return newInstance(constructor);
+	}
+
+	private static <E> E newInstance(Constructor<E> constructor) {
+		try {
+			return constructor.newInstance();
+		} catch (Exception e) {
+			throw new RuntimeException("Erro ao obter uma instância da classe " + constructor.getDeclaringClass().getName() + ".", e);
+		}
+	}
+
+	@Override
+	public Serializable getEntityId(Object entity) {
+		return (Serializable) idPropertyMap.get(entity);
+	}
+
+	@Override
+	public void setEntityId(Object entity, Object id) {
+		idPropertyMap.set(entity, idPropertyMap.convert(id));
+	}
+
+	@Override
+	public T buildObject(DbCursor dbCursor, DataSource dataSource) {
+		List<T> list = buildList(dbCursor, dataSource);
+		return list.isEmpty() ? null : list.get(0);
+	}
+
+	@Override
+	public List<String> getColumns() {
+		List<String> columns = new ArrayList<String>(properties.length);
+		for (PropertyMap property : properties)
+			columns.add(property.getColumn());
+		return columns;
+	}
+
+	@Override
+	public String getTableName() {
+		return tableName;
+	}
+
+	@Override
+	public Field getIdProperty() {
+		return idProperty;
+	}
+
+	@Override
+	public PropertyMap getIdPropertyMap() {
+		return idPropertyMap;
+	}
+
+	@Override
+	public PropertyMap getPropertyMap(String propertyName) {
+		PropertyMap property = propertiesByName.get(propertyName);
+		if (property == null)
+			throw new IllegalArgumentException("O atributo " + propertyName + " não é mapeado pela classe " + entityClassType.getName() + ".");
+		return property;
+	}
+
+	@Override
+	public PropertyMap[] getPropertyMaps() {
+		return properties.clone();
+	}
+
+	@Override
+	public String getCachedInstruction(String shape) {
+		return cachedInstructions.get(shape);
+	}
+
+	@Override
+	public void cacheInstruction(String shape, String instruction) {
+		cachedInstructions.put(shape, instruction);
+	}
+
+	@Override
+	public String getIdColumn() {
+		return idColumn;
+	}
+}
@@ -4,23 +4,28 @@ import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.util.List;
 
+import com.nanoorm.CloseableIterator;
+import com.nanoorm.DataSource;
+import com.nanoorm.DbConnection;
 import com.nanoorm.DbCursor;
+import com.nanoorm.DbStatement;
 
 /**
  * Interface ClassMap
  * As classes que implementam esta interface realizam as operações necessárias de
- * mapeamento entre uma classe e a fonte de dados.
+ * mapeamento entre uma classe e a fonte de dados. Uma instância é compartilhada
+ * pelas fontes de dados de uma mesma Configuration, e por isso recebe a fonte de
+ * dados ou a conexão do chamador nos métodos que dependem delas.
  */
 public interface ClassMap <T>
 {
 
 	/**
-	 * Constrói a instrução sql select para um objeto da entidade informada no
-	 * parâmetro entity.
+	 * Obtém a instrução sql select parametrizada que seleciona um objeto da classe
+	 * mapeada, cujo único parâmetro é o id do objeto.
 	 * @return       String
-	 * @param        entityId Id do objeto para qual será gerada a instrução sql.
 	 */
-	public String buildSelectFor (Serializable entityId);
+	public String getSelectInstruction ();
 
 	/**
 	 * Constrói a instrução sql select que seleciona todos os objetos.
@@ -29,25 +34,144 @@ public interface ClassMap <T>
 	public String buildSelectForAll ();
 
 	/**
-	 * Constrói a instrução sql insert para a entidade informada no parâmetro entity.
+	 * Obtém a instrução sql select que seleciona a primeira página de objetos em
+	 * ordem de id, cujo único parâmetro é o tamanho da página.
 	 * @return       String
-	 * @param        entity Entidade para qual será gerada a instrução sql.
 	 */
-	public String buildInsertFor (T entity);
+	public String getFirstPageInstruction ();
 
 	/**
-	 * Constrói a instrução sql update para a entidade informada no parâmetro entity.
+	 * Obtém a instrução sql select que seleciona, em ordem de id, a página de objetos
+	 * seguinte a um id (paginação por chave). Os parâmetros são o último id da página
+	 * anterior e o tamanho da página.
 	 * @return       String
-	 * @param        entity Entidade para qual será gerada a instrução sql.
 	 */
-	public String buildUpdateFor (T entity);
+	public String getNextPageInstruction ();
 
 	/**
-	 * Constrói a instrução sql delete para a entidade informada no parâmetro entity.
+	 * Obtém a instrução sql select que seleciona uma página de objetos em ordem de id
+	 * a partir de uma posição. Os parâmetros são o tamanho da página e a quantidade
+	 * de objetos a serem ignorados.
 	 * @return       String
-	 * @param        entity Entidade para qual será gerada a instrução sql.
 	 */
-	public String buildDeleteFor (T entity);
+	public String getOffsetPageInstruction ();
+
+	/**
+	 * Obtém a instrução sql que conta os objetos da classe mapeada.
+	 * @return       String
+	 */
+	public String getCountInstruction ();
+
+	/**
+	 * Obtém a instrução sql insert parametrizada da classe mapeada, cujos valores
+	 * são associados pelo método bindInsert.
+	 * @return       String
+	 */
+	public String getInsertInstruction ();
+
+	/**
+	 * Obtém a instrução sql update parametrizada da classe mapeada, cujos valores
+	 * são associados pelo método bindUpdate.
+	 * @return       String A instrução, ou null caso a classe não possua colunas
+	 * além do id.
+	 */
+	public String getUpdateInstruction ();
+
+	/**
+	 * Obtém a instrução sql update que grava somente as colunas dos atributos
+	 * informados. As instruções são geradas uma única vez para cada conjunto de
+	 * atributos e reutilizadas.
+	 * @return       String A instrução, ou null caso não exista nenhuma coluna a
+	 * ser gravada.
+	 * @param        properties Posições dos atributos em getPropertyMaps, em ordem
+	 * crescente como retornadas por getDirtyProperties, ou null para todos
+	 * os atributos.
+	 */
+	public String getUpdateInstruction (int[] properties);
+
+	/**
+	 * Obtém a instrução sql delete parametrizada da classe mapeada, cujos valores
+	 * são associados pelo método bindDelete.
+	 * @return       String
+	 */
+	public String getDeleteInstruction ();
+
+	/**
+	 * Associa os valores da entidade informada aos parâmetros da instrução
+	 * compilada a partir de getInsertInstruction, gerando o id através da conexão
+	 * informada, que deve ser a da fonte de dados que executa a inserção.
+	 * @param        statement Instrução compilada que receberá os valores.
+	 * @param        entity Entidade da qual serão obtidos os valores.
+	 * @param        connection Conexão utilizada pelo gerador de ids, ou null para
+	 * manter o id já atribuído à entidade por generateId.
+	 */
+	public void bindInsert (DbStatement statement, T entity, DbConnection connection);
+
+	/**
+	 * Gera e atribui à entidade informada o id a ser utilizado na sua inserção,
+	 * quando o id da classe é gerado antes da inserção. Não possui efeito para ids
+	 * atribuídos pela aplicação ou gerados pelo banco de dados.
+	 * @param        entity Entidade que receberá o id.
+	 * @param        connection Conexão utilizada pelo gerador de ids.
+	 */
+	public void generateId (T entity, DbConnection connection);
+
+	/**
+	 * Descarta as chaves reservadas em memória pelo gerador de ids da classe, após
+	 * uma transação ser desfeita.
+	 */
+	public void resetIdGenerator ();
+
+	/**
+	 * Indica se o id da classe é gerado pelo banco de dados na inserção, sendo
+	 * conhecido somente após afterInsert.
+	 * @return       boolean
+	 */
+	public boolean isPostInsertId ();
+
+	/**
+	 * Conclui o insert da entidade informada, atribuindo-lhe a chave gerada pelo
+	 * banco de dados quando o gerador de chaves da classe for do tipo pós-insert.
+	 * @param        entity Entidade inserida.
+	 * @param        insertedId Valor retornado por DbStatement.executeInsert.
+	 */
+	public void afterInsert (T entity, long insertedId);
+
+	/**
+	 * Associa os valores da entidade informada aos parâmetros da instrução
+	 * compilada a partir de getUpdateInstruction.
+	 * @param        statement Instrução compilada que receberá os valores.
+	 * @param        entity Entidade da qual serão obtidos os valores.
+	 */
+	public void bindUpdate (DbStatement statement, T entity);
+
+	/**
+	 * Associa aos parâmetros da instrução obtida por getUpdateInstruction(properties)
+	 * os valores dos atributos informados e o id da entidade.
+	 * @param        statement Instrução que receberá os valores.
+	 * @param        entity Entidade a ser atualizada.
+	 * @param        properties Posições dos atributos em getPropertyMaps, em ordem
+	 * crescente como retornadas por getDirtyProperties, ou null para todos
+	 * os atributos.
+	 */
+	public void bindUpdate (DbStatement statement, T entity, int[] properties);
+
+	/**
+	 * Compara dois estados obtidos por getState e retorna as posições dos atributos
+	 * cujo valor foi alterado. O id não é considerado.
+	 * @return       int[] Posições dos atributos alterados, vazio caso nenhum tenha sido alterado.
+	 * @param        snapshot Estado anterior da entidade.
+	 * @param        state Estado corrente da entidade.
+	 */
+	public int[] getDirtyProperties (Object[] snapshot, Object[] state);
+
+	/**
+	 * Associa o id da entidade informada ao parâmetro da instrução
+	 * compilada a partir de getDeleteInstruction.
+	 * @param        statement Instrução compilada que receberá o valor.
+	 * @param        entity Entidade da qual será obtido o id.
+	 */
+	public void bindDelete (DbStatement statement, T entity);
 
 	
 	/**
@@ -56,8 +180,10 @@ public interface ClassMap <T>
 	 * @return       T
 	 * @param        dbCursor DbCursor do qual serão obtidos os valores do objeto a ser
 	 * instanciado.
+	 * @param        dataSource Fonte de dados do chamador, da qual são obtidos o mapa
+	 * de identidade da thread corrente e as referências preguiçosas.
 	 */
-	public T buildObject(DbCursor dbCursor); 
+	public T buildObject(DbCursor dbCursor, DataSource dataSource);
 
 	/**
 	 * Instância uma lista de objetos da classe informada no parâmetro entityClass com
@@ -65,8 +191,105 @@ public interface ClassMap <T>
 	 * @return       List<T>
 	 * @param        dbCursor DbCursor do qual serão obtidos os valores dos objetos a
 	 * serem instanciados.
+	 * @param        dataSource Fonte de dados do chamador, da qual são obtidos o mapa
+	 * de identidade da thread corrente e as referências preguiçosas.
 	 */
-	public List<T> buildList(DbCursor dbCursor);
+	public List<T> buildList(DbCursor dbCursor, DataSource dataSource);
+
+	/**
+	 * Instância uma lista de objetos da classe mapeada com os valores obtidos do
+	 * parâmetro dbCursor, adicionando em keys, na mesma ordem dos objetos, o valor da
+	 * coluna keyColumn de cada linha. Utilizado para associar os objetos de uma
+	 * coleção carregada em lote às entidades às quais pertencem.
+	 * @return       List<T>
+	 * @param        dbCursor DbCursor do qual serão obtidos os valores dos objetos.
+	 * @param        keyColumn Nome da coluna adicional a ser lida de cada linha.
+	 * @param        keyProperty Mapeamento cujo codec será utilizado para ler a coluna.
+	 * @param        keys Lista que receberá os valores da coluna keyColumn.
+	 * @param        dataSource Fonte de dados do chamador, da qual são obtidos o mapa
+	 * de identidade da thread corrente e as referências preguiçosas.
+	 */
+	public List<T> buildList(DbCursor dbCursor, String keyColumn, PropertyMap keyProperty, List<Object> keys, DataSource dataSource);
+
+	/**
+	 * Gera a instrução select das entidades da classe mapeada, com alias t, unida
+	 * por LEFT JOIN às tabelas das entidades referenciadas pelos atributos
+	 * informados, com aliases j0, j1, ... e colunas nomeadas com o prefixo do alias
+	 * (j0_coluna). A instrução não possui cláusula WHERE.
+	 * @return       String
+	 * @param        joinedProperties Nomes dos atributos @ManyToOne ou @OneToOne (lado dono).
+	 * @param        dataSource Fonte de dados da qual são obtidos os mapeamentos das
+	 * entidades referenciadas.
+	 * @throws IllegalArgumentException Quando algum atributo não é uma referência.
+	 */
+	public String buildJoinedSelect(String[] joinedProperties, DataSource dataSource);
+
+	/**
+	 * Instancia uma lista de objetos a partir do resultado de uma instrução gerada
+	 * por buildJoinedSelect, atribuindo às referências as entidades completas lidas
+	 * da mesma linha. As referências sem linha correspondente mantêm apenas o id.
+	 * @return       List<T>
+	 * @param        dbCursor DbCursor do qual serão obtidos os valores dos objetos.
+	 * @param        joinedProperties Os mesmos atributos informados em buildJoinedSelect.
+	 * @param        dataSource Fonte de dados do chamador, da qual são obtidos o mapa
+	 * de identidade da thread corrente e as referências preguiçosas.
+	 */
+	public List<T> buildList(DbCursor dbCursor, String[] joinedProperties, DataSource dataSource);
+
+	/**
+	 * Obtém os nomes dos atributos @ManyToOne e @OneToOne anotados com
+	 * fetch = FetchType.JOIN.
+	 */
+	public String[] getJoinFetchedProperties();
+
+	/**
+	 * Obtém um iterator que instancia os objetos da classe mapeada a partir do
+	 * parâmetro dbCursor à medida que são solicitados, uma linha por vez. O cursor
+	 * é fechado quando a última linha é lida ou quando o iterator é fechado.
+	 * @return       CloseableIterator<T>
+	 * @param        dbCursor DbCursor do qual serão obtidos os valores dos objetos.
+	 * @param        dataSource Fonte de dados do chamador, da qual são obtidos o mapa
+	 * de identidade da thread corrente e as referências preguiçosas.
+	 */
+	public CloseableIterator<T> buildIterator(DbCursor dbCursor, DataSource dataSource);
+
+	/**
+	 * Obtém o estado desidratado da entidade informada: o valor de cada atributo
+	 * persistente, na ordem de getPropertyMaps, na representação utilizada pelo banco
+	 * de dados. Os atributos REFERENCE são representados pelo id da entidade referenciada.
+	 * @return       Object[]
+	 * @param        entity Entidade da classe mapeada.
+	 */
+	public Object[] getState(T entity);
+
+	/**
+	 * Instância um objeto da classe mapeada a partir de um estado obtido por getState.
+	 * @return       T
+	 * @param        state Estado desidratado da entidade.
+	 * @param        dataSource Fonte de dados do chamador, da qual são obtidos o mapa
+	 * de identidade da thread corrente e as referências preguiçosas.
+	 */
+	public T buildObject(Object[] state, DataSource dataSource);
+
+	/**
+	 * Instância um objeto vazio da classe mapeada.
+	 * @return       T
+	 */
+	public T newInstance();
+
+	/**
+	 * Obtém o valor do id da entidade informada no parâmetro entity.
+	 * @return       Serializable
+	 * @param        entity Entidade da classe mapeada.
+	 */
+	public Serializable getEntityId(Object entity);
+
+	/**
+	 * Atribui o id informado à entidade, convertendo-o para o tipo do atributo @Id.
+	 * @param        entity Entidade da classe mapeada.
+	 * @param        id Valor do id a ser atribuído.
+	 */
+	public void setEntityId(Object entity, Object id);
 
 	/**
 	 * Obtém um List&lt;String&gt; com todos os nomes das colunas
@@ -84,6 +307,39 @@ public interface ClassMap <T>
 	 * Obtém o atributo que representa o id da classe mapeada.
 	 */
 	public Field getIdProperty();
+
+	/**
+	 * Obtém o mapeamento do atributo que representa o id da classe mapeada.
+	 */
+	public PropertyMap getIdPropertyMap();
+
+	/**
+	 * Obtém o mapeamento do atributo persistente informado no parâmetro propertyName.
+	 * @param        propertyName Nome do atributo na classe mapeada.
+	 * @throws IllegalArgumentException Quando o atributo não é mapeado para uma coluna.
+	 */
+	public PropertyMap getPropertyMap(String propertyName);
+
+	/**
+	 * Obtém os mapeamentos dos atributos persistentes da classe, na ordem em que
+	 * foram declarados.
+	 */
+	public PropertyMap[] getPropertyMaps();
+
+	/**
+	 * Obtém a instrução sql já gerada para o formato de consulta informado.
+	 * @return       String A instrução armazenada ou null caso ainda não tenha sido gerada.
+	 * @param        shape Chave que identifica o formato da consulta.
+	 */
+	public String getCachedInstruction(String shape);
+
+	/**
+	 * Armazena a instrução sql gerada para o formato de consulta informado, para
+	 * que seja reutilizada pelas consultas de mesmo formato.
+	 * @param        shape Chave que identifica o formato da consulta.
+	 * @param        instruction Instrução sql parametrizada.
+	 */
+	public void cacheInstruction(String shape, String instruction);
 	
 	/**
 	 * Obtém o nome da coluna chave primária da tabela que 
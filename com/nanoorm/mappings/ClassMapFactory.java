@@ -2,6 +2,7 @@ package com.nanoorm.mappings;
 
 import com.nanoorm.DataSource;
 import com.nanoorm.android.AndroidClassMap;
+import com.nanoorm.jdbc.JdbcClassMap;
 
 /**
  * Classe responsável por fabricar instâncias de ClassMap.
@@ -25,7 +26,7 @@ public class ClassMapFactory {
 		case ANDROID:
 			classMap = new AndroidClassMap<T>(entityClass, dataSource);	break;
 		case JDBC:
-			throw new UnsupportedOperationException("Fontes de dados JDBC ainda não são suportadas.");
+			classMap = new JdbcClassMap<T>(entityClass, dataSource); break;
 		default:
 			throw new IllegalArgumentException("Tipo de fonte de dados não suportado: " + dataSource.getDataSourceType() + ".");
 		}
@@ -0,0 +1,119 @@
+package com.nanoorm.mappings;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.nanoorm.DataSource;
+import com.nanoorm.IdentityMap;
+
+/**
+ * Class ClassMapRegistry
+ * Registro das instâncias de ClassMap, compartilhado por todos os DataSources
+ * construídos a partir da mesma Configuration.
+ * A consulta de um mapeamento já construído é uma leitura de ConcurrentHashMap,
+ * sem bloqueio. Cada ClassMap é construído uma única vez: a primeira thread que
+ * solicita a classe registra uma FutureTask e executa a construção, e as demais
+ * threads que solicitarem a mesma classe aguardam o resultado dessa tarefa. O
+ * ClassMap é publicado no registro somente depois de completamente inicializado.
+ * Como os ClassMaps são compartilhados, o mapa de identidade da sessão corrente de
+ * cada thread também é mantido pelo registro, sendo o mesmo para todos os
+ * DataSources que o utilizam.
+ * @author Carlos Eduardo Pacheco Menezes
+ */
+public class ClassMapRegistry {
+
+	private final ConcurrentMap<Class<?>, ClassMap<?>> classMappings = new ConcurrentHashMap<Class<?>, ClassMap<?>>();
+	private final ConcurrentMap<Class<?>, FutureTask<ClassMap<?>>> pending = new ConcurrentHashMap<Class<?>, FutureTask<ClassMap<?>>>();
+	private final ThreadLocal<IdentityMap> identityMaps = new ThreadLocal<IdentityMap>();
+
+	/**
+	 * Obtém o ClassMap da classe informada, construindo-o através da fonte de dados
+	 * informada caso ainda não exista no registro.
+	 * A construção de um ClassMap não deve solicitar o mapeamento da própria classe.
+	 * @return       com.nanoorm.mappings.ClassMap
+	 * @param        entityClass Classe da entidade que se deseja obter o mapeamento.
+	 * @param        dataSource Fonte de dados utilizada na construção do ClassMap.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> ClassMap<T> getClassMap(final Class<T> entityClass, final DataSource dataSource) {
+		ClassMap<?> classMap = classMappings.get(entityClass);
+		if (classMap != null)
+			return (ClassMap<T>) classMap;
+
+		FutureTask<ClassMap<?>> task = new FutureTask<ClassMap<?>>(new Callable<ClassMap<?>>() {
+			public ClassMap<?> call() {
+				return ClassMapFactory.getClassMap(entityClass, dataSource);
+			}
+		});
+		FutureTask<ClassMap<?>> running = pending.putIfAbsent(entityClass, task);
+		if (running == null) {
+			try {
+				task.run();
+				classMap = task.get();
+				classMappings.put(entityClass, classMap);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Construção do mapeamento da classe " + entityClass.getName() + " interrompida.", e);
+			} catch (ExecutionException e) {
+				throw unwrap(entityClass, e);
+			} finally {
+				pending.remove(entityClass, task);
+			}
+			return (ClassMap<T>) classMap;
+		}
+
+		classMap = classMappings.get(entityClass);
+		if (classMap != null)
+			return (ClassMap<T>) classMap;
+		try {
+			return (ClassMap<T>) running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Construção do mapeamento da classe " + entityClass.getName() + " interrompida.", e);
+		} catch (ExecutionException e) {
+			throw unwrap(entityClass, e);
+		}
+	}
+
+	/**
+	 * Indica se o mapeamento da classe informada já foi construído.
+	 * @param        entityClass Classe da entidade.
+	 */
+	public boolean contains(Class<?> entityClass) {
+		return classMappings.containsKey(entityClass);
+	}
+
+	/**
+	 * Obtém o mapa de identidade da sessão aberta na thread corrente, ou null
+	 * caso não exista uma sessão aberta.
+	 */
+	public IdentityMap getIdentityMap() {
+		return identityMaps.get();
+	}
+
+	/**
+	 * Define o mapa de identidade da sessão aberta na thread corrente. A associação
+	 * é mantida por thread: a remoção afeta apenas a thread corrente, e não as
+	 * sessões abertas em outras threads.
+	 * @param        identityMap Mapa de identidade, ou null para desassociá-lo da thread.
+	 */
+	public void setIdentityMap(IdentityMap identityMap) {
+		if (identityMap == null)
+			identityMaps.remove();
+		else
+			identityMaps.set(identityMap);
+	}
+
+	private RuntimeException unwrap(Class<?> entityClass, ExecutionException e) {
+		Throwable cause = e.getCause();
+		if (cause instanceof RuntimeException)
+			return (RuntimeException) cause;
+		if (cause instanceof Error)
+			throw (Error) cause;
+		return new RuntimeException("Erro ao construir o mapeamento da classe " + entityClass.getName() + ".", cause);
+	}
+
+}
@@ -0,0 +1,234 @@
+package com.nanoorm.mappings;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import com.nanoorm.DataSource;
+import com.nanoorm.DbCursor;
+import com.nanoorm.DbStatement;
+import com.nanoorm.Ref;
+import com.nanoorm.types.TypeCodec;
+
+/**
+ * Class PropertyMap
+ * Representa o mapeamento de um atributo persistente de uma entidade para uma
+ * coluna. É construído uma única vez por ClassMap, com o atributo já acessível e
+ * o seu tipo de mapeamento já resolvido, para que a leitura e a gravação dos
+ * valores não precisem consultar anotações a cada linha.
+ * Atributos ID e SCALAR recebem o TypeCodec do seu tipo na construção; atributos
+ * REFERENCE recebem o mapeamento do id da entidade referenciada, cujo codec é
+ * utilizado para a chave estrangeira, e podem ser declarados com o tipo da
+ * entidade ou com Ref&lt;Entidade&gt; (referência preguiçosa).
+ */
+public class PropertyMap {
+
+	/**
+	 * Tipos de mapeamento de um atributo.
+	 */
+	public enum Kind {
+		/** Atributo anotado com @Id. */
+		ID,
+		/** Atributo de valor simples. */
+		SCALAR,
+		/** Referência @ManyToOne ou @OneToOne (lado dono), mapeada como chave estrangeira. */
+		REFERENCE
+	}
+
+	private final Field field;
+	private final String column;
+	private final Kind kind;
+	private final TypeCodec codec;
+	private final Class<?> referencedType;
+	private final PropertyMap referencedId;
+	private volatile ClassMap<?> referencedClassMap;
+
+	/**
+	 * Constrói o mapeamento do atributo ID ou SCALAR informado no parâmetro field.
+	 * @param field Atributo mapeado.
+	 * @param column Coluna para a qual o atributo é mapeado.
+	 * @param kind Tipo de mapeamento do atributo.
+	 * @param codec Codec do tipo do atributo.
+	 */
+	public PropertyMap(Field field, String column, Kind kind, TypeCodec codec) {
+		this(field, column, kind, codec, null);
+	}
+
+	/**
+	 * Constrói o mapeamento do atributo REFERENCE informado no parâmetro field.
+	 * @param field Atributo @ManyToOne ou @OneToOne (lado dono).
+	 * @param column Coluna da chave estrangeira.
+	 * @param referencedId Mapeamento do id da entidade referenciada.
+	 */
+	public PropertyMap(Field field, String column, PropertyMap referencedId) {
+		this(field, column, Kind.REFERENCE, referencedId.getCodec(), referencedId);
+	}
+
+	private PropertyMap(Field field, String column, Kind kind, TypeCodec codec, PropertyMap referencedId) {
+		this.field = field;
+		this.column = column;
+		this.kind = kind;
+		this.codec = codec;
+		this.referencedType = kind == Kind.REFERENCE ? getReferencedType(field) : null;
+		this.referencedId = referencedId;
+		field.setAccessible(true);
+	}
+
+	/**
+	 * Obtém a classe da entidade referenciada pelo atributo informado: o argumento
+	 * de tipo quando o atributo é declarado como Ref&lt;Entidade&gt;, ou o próprio
+	 * tipo do atributo nos demais casos.
+	 * @param field Atributo @ManyToOne ou @OneToOne.
+	 */
+	public static Class<?> getReferencedType(Field field) {
+		if (field.getType() != Ref.class)
+			return field.getType();
+
+		Type type = field.getGenericType();
+		if (type instanceof ParameterizedType) {
+			Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+			if (argument instanceof Class)
+				return (Class<?>) argument;
+		}
+		throw new IllegalArgumentException("O atributo " + field.getName() + " deve informar a classe da entidade referenciada em Ref<T>.");
+	}
+
+	/**
+	 * Obtém o valor do atributo na entidade informada.
+	 * @param entity Entidade da qual será obtido o valor.
+	 */
+	public Object get(Object entity) {
+		try {
+			return field.get(entity);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Erro ao obter o valor do atributo " + field.getName() + ".", e);
+		}
+	}
+
+	/**
+	 * Atribui o valor informado ao atributo da entidade.
+	 * @param entity Entidade que receberá o valor.
+	 * @param value Valor a ser atribuído.
+	 */
+	public void set(Object entity, Object value) {
+		try {
+			field.set(entity, value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Erro ao inicializar o atributo " + field.getName() + ".", e);
+		}
+	}
+
+	/**
+	 * Associa o valor do atributo da entidade ao parâmetro da instrução na
+	 * posição index. Válido apenas para atributos ID e SCALAR.
+	 * @param statement Instrução que receberá o valor.
+	 * @param index Posição do parâmetro na instrução.
+	 * @param entity Entidade da qual será obtido o valor.
+	 */
+	public void bind(DbStatement statement, int index, Object entity) {
+		try {
+			codec.bindFrom(statement, index, entity, field);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Erro ao obter o valor do atributo " + field.getName() + ".", e);
+		}
+	}
+
+	/**
+	 * Associa o valor informado ao parâmetro da instrução na posição index,
+	 * convertendo-o com o codec do atributo.
+	 * @param statement Instrução que receberá o valor.
+	 * @param index Posição do parâmetro na instrução.
+	 * @param value Valor a ser associado.
+	 */
+	public void bindValue(DbStatement statement, int index, Object value) {
+		codec.bind(statement, index, value);
+	}
+
+	/**
+	 * Atribui ao atributo da entidade o valor da coluna columnIndex da linha
+	 * corrente do cursor. Valores NULL não são atribuídos.
+	 * @param cursor Cursor posicionado na linha a ser lida.
+	 * @param columnIndex Índice da coluna.
+	 * @param entity Entidade que receberá o valor.
+	 */
+	public void hydrate(DbCursor cursor, int columnIndex, Object entity) {
+		try {
+			codec.readInto(cursor, columnIndex, entity, field);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Erro ao inicializar o atributo " + field.getName() + ".", e);
+		}
+	}
+
+	/**
+	 * Obtém o valor da coluna columnIndex da linha corrente do cursor no tipo do atributo.
+	 * @param cursor Cursor posicionado na linha a ser lida.
+	 * @param columnIndex Índice da coluna.
+	 */
+	public Object read(DbCursor cursor, int columnIndex) {
+		return codec.read(cursor, columnIndex);
+	}
+
+	/**
+	 * Converte o valor informado para o tipo do atributo.
+	 * @param value Valor a ser convertido.
+	 */
+	public Object convert(Object value) {
+		return codec.convert(value);
+	}
+
+	/**
+	 * Obtém o mapeamento do id da entidade referenciada por um atributo REFERENCE,
+	 * que lê e grava a chave estrangeira sem depender do ClassMap da entidade
+	 * referenciada.
+	 */
+	public PropertyMap getReferencedIdPropertyMap() {
+		return referencedId;
+	}
+
+	/**
+	 * Obtém o ClassMap da entidade referenciada por um atributo do tipo REFERENCE.
+	 * O ClassMap é resolvido no primeiro acesso, e não na construção, para permitir
+	 * referências circulares entre entidades.
+	 * @param dataSource Fonte de dados da qual será obtido o mapeamento.
+	 */
+	public ClassMap<?> getReferencedClassMap(DataSource dataSource) {
+		if (referencedClassMap == null)
+			referencedClassMap = dataSource.getMappingFor(referencedType);
+		return referencedClassMap;
+	}
+
+	public Field getField() {
+		return field;
+	}
+
+	public String getColumn() {
+		return column;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public TypeCodec getCodec() {
+		return codec;
+	}
+
+	public Class<?> getType() {
+		return field.getType();
+	}
+
+	/**
+	 * Obtém a classe da entidade referenciada por um atributo REFERENCE.
+	 */
+	public Class<?> getReferencedType() {
+		return referencedType;
+	}
+
+	/**
+	 * Indica se o atributo REFERENCE é declarado como Ref&lt;Entidade&gt;.
+	 */
+	public boolean isLazy() {
+		return field.getType() == Ref.class;
+	}
+
+}
@@ -1,8 +1,6 @@
 package com.nanoorm.mappings;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -13,6 +11,7 @@ import com.nanoorm.annotations.Id;
 import com.nanoorm.annotations.ManyToMany;
 import com.nanoorm.annotations.ManyToOne;
 import com.nanoorm.annotations.OneToOne;
+import com.nanoorm.types.TypeCodecRegistry;
 
 /**
  * TableMap é responsável por obter informações de uma classe e
@@ -30,6 +29,7 @@ public abstract class TableMap<T> {
 	protected String createTableInstruction;
 	protected String primaryKeyInstruction;
 	protected List<String> constraintInstructions;
+	protected TypeCodecRegistry typeCodecs;
 
 	/**
 	 * Obtém informações de uma tabela informada no parâmetro tableName.
@@ -54,15 +54,14 @@ public abstract class TableMap<T> {
 			
 			if  (field.isAnnotationPresent(ManyToOne.class)	||
 				(field.isAnnotationPresent(OneToOne.class) && !"".equals(field.getAnnotation(OneToOne.class).mappedBy())))  {									
-					ParameterizedType type = (ParameterizedType) field.getGenericType();
-		            Type[] types = type.getActualTypeArguments();           		            
+					Class<?> foreignClass = PropertyMap.getReferencedType(field);
 		            String foreignColumn = "";
 		            String foreignTable = "";
 		            
-		            Entity foreignEntity = types[0].getClass().getAnnotation(Entity.class);       
-		            foreignTable =  "".equals(foreignEntity.tableName()) ? types[0].getClass().getSimpleName() : foreignEntity.tableName();	
+		            Entity foreignEntity = foreignClass.getAnnotation(Entity.class);       
+		            foreignTable =  "".equals(foreignEntity.tableName()) ? foreignClass.getSimpleName() : foreignEntity.tableName();	
 		            
-		            for(Field foreignField : (types[0].getClass()).getDeclaredFields()){
+		            for(Field foreignField : foreignClass.getDeclaredFields()){
 		            	String fColumn = foreignField.isAnnotationPresent(Column.class) ? foreignField.getAnnotation(Column.class).name() : foreignField.getName();
 		            	if (foreignField.isAnnotationPresent(Id.class)) 
 		            		foreignColumn = fColumn;		    			
@@ -113,7 +112,18 @@ public abstract class TableMap<T> {
 	 * @param entityClassType Classe que se deseja mapear para o banco de dados.
 	 */
 	public TableMap(Class<T> entityClassType) {
+		this(entityClassType, TypeCodecRegistry.getDefault());
+	}
+
+	/**
+	 * Constrói uma instância de TableMap para a classe informada no parâmetro entityClassType,
+	 * obtendo o tipo das colunas a partir dos codecs registrados em typeCodecs.
+	 * @param entityClassType Classe que se deseja mapear para o banco de dados.
+	 * @param typeCodecs Registro de codecs da configuração.
+	 */
+	public TableMap(Class<T> entityClassType, TypeCodecRegistry typeCodecs) {
 		this.entityClassType = entityClassType;
+		this.typeCodecs = typeCodecs;
 		getClassInfo();
 		getTableInfo();		
 	}
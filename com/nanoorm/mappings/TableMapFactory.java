@@ -2,6 +2,8 @@ package com.nanoorm.mappings;
 
 import com.nanoorm.DataSourceType;
 import com.nanoorm.android.AndroidTableMap;
+import com.nanoorm.jdbc.JdbcTableMap;
+import com.nanoorm.types.TypeCodecRegistry;
 
 /**
  * Class TableMapFactory
@@ -16,13 +18,26 @@ public class TableMapFactory {
 	 * TableMap.
 	 */
 	public static <T> TableMap<T> getTableMap (Class<T> entityClass, DataSourceType dataSourceType) {
+		return getTableMap(entityClass, dataSourceType, TypeCodecRegistry.getDefault());
+	}
+
+	/**
+	 * Obtém o TableMap para a classe informada, utilizando os codecs informados
+	 * no parâmetro typeCodecs para definir o tipo das colunas.
+	 * @param <T>
+	 * @param        entityClass Classe que se deseja obter o TableMap
+	 * @param        dataSourceType Tipo da fonte de dados que se deseja obter o
+	 * TableMap.
+	 * @param        typeCodecs Registro de codecs da configuração.
+	 */
+	public static <T> TableMap<T> getTableMap (Class<T> entityClass, DataSourceType dataSourceType, TypeCodecRegistry typeCodecs) {
 		
 		TableMap<T> tableMap = null;
 		switch (dataSourceType) {
 		case ANDROID:
-			tableMap = new AndroidTableMap<T>(entityClass);	break;
+			tableMap = new AndroidTableMap<T>(entityClass, typeCodecs);	break;
 		case JDBC:
-			throw new UnsupportedOperationException("Fontes de dados JDBC ainda não são suportadas.");
+			tableMap = new JdbcTableMap<T>(entityClass, typeCodecs); break;
 		default:
 			throw new IllegalArgumentException("Tipo de fonte de dados não suportado: " + dataSourceType + ".");
 		}
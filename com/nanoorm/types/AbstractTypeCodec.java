@@ -0,0 +1,76 @@
+package com.nanoorm.types;
+
+import java.lang.reflect.Field;
+
+import com.nanoorm.DbStatement;
+import com.nanoorm.DbCursor;
+
+/**
+ * Class AbstractTypeCodec
+ * Implementação base de TypeCodec, que associa os valores de acordo com a classe
+ * de armazenamento do codec. Codecs de tipos primitivos sobrescrevem readInto e
+ * bindFrom para evitar a criação de objetos.
+ */
+public abstract class AbstractTypeCodec implements TypeCodec {
+
+	private Class<?> type;
+	private StorageClass storageClass;
+
+	/**
+	 * @param type Tipo Java tratado pelo codec.
+	 * @param storageClass Classe de armazenamento do tipo no banco de dados.
+	 */
+	protected AbstractTypeCodec(Class<?> type, StorageClass storageClass) {
+		this.type = type;
+		this.storageClass = storageClass;
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	@Override
+	public StorageClass getStorageClass() {
+		return storageClass;
+	}
+
+	@Override
+	public Object convert(Object value) {
+		if (value == null || type.isInstance(value))
+			return value;
+		throw new IllegalArgumentException("Não é possível converter o valor " + value + " para o tipo " + type.getName() + ".");
+	}
+
+	@Override
+	public void readInto(DbCursor cursor, int columnIndex, Object entity, Field field) throws IllegalAccessException {
+		Object value = read(cursor, columnIndex);
+		if (value != null)
+			field.set(entity, value);
+	}
+
+	@Override
+	public void bind(DbStatement statement, int index, Object value) {
+		if (value == null) {
+			statement.bindNull(index);
+			return;
+		}
+
+		Object sqlValue = toSql(value);
+		switch (storageClass) {
+		case INTEGER:
+			statement.bindLong(index, ((Number) sqlValue).longValue()); break;
+		case REAL:
+			statement.bindDouble(index, ((Number) sqlValue).doubleValue()); break;
+		case TEXT:
+			statement.bindString(index, sqlValue.toString()); break;
+		case BLOB:
+			statement.bindBlob(index, (byte[]) sqlValue); break;
+		}
+	}
+
+	@Override
+	public void bindFrom(DbStatement statement, int index, Object entity, Field field) throws IllegalAccessException {
+		bind(statement, index, field.get(entity));
+	}
+
+}
@@ -0,0 +1,9 @@
+package com.nanoorm.types;
+
+/**
+ * Enumeração com as classes de armazenamento utilizadas para representar os
+ * valores dos atributos no banco de dados.
+ */
+public enum StorageClass {
+	INTEGER, REAL, TEXT, BLOB;
+}
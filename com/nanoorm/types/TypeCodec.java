@@ -0,0 +1,69 @@
+package com.nanoorm.types;
+
+import java.lang.reflect.Field;
+
+import com.nanoorm.DbCursor;
+import com.nanoorm.DbStatement;
+
+/**
+ * Interface TypeCodec
+ * Converte os valores de um tipo Java para a sua representação no banco de dados
+ * e vice-versa. Os codecs são resolvidos uma única vez por atributo mapeado, de
+ * forma que a leitura e a gravação dos valores não dependam do nome do tipo.
+ */
+public interface TypeCodec {
+
+	/**
+	 * Obtém a classe de armazenamento utilizada para o tipo no banco de dados.
+	 */
+	public StorageClass getStorageClass();
+
+	/**
+	 * Converte um valor não nulo para a sua representação no banco de dados, que deve
+	 * ser compatível com a classe de armazenamento do codec (Long, Double, String ou byte[]).
+	 * @param value Valor a ser convertido.
+	 */
+	public Object toSql(Object value);
+
+	/**
+	 * Converte um valor compatível (ex.: um Number de outro tipo ou um texto) para o
+	 * tipo tratado pelo codec.
+	 * @param value Valor a ser convertido.
+	 */
+	public Object convert(Object value);
+
+	/**
+	 * Lê o valor da coluna informada na linha corrente do cursor.
+	 * @return O valor lido ou null caso a coluna seja NULL.
+	 * @param cursor Cursor do qual o valor será lido.
+	 * @param columnIndex Índice da coluna.
+	 */
+	public Object read(DbCursor cursor, int columnIndex);
+
+	/**
+	 * Lê o valor da coluna informada diretamente para o atributo da entidade. Colunas
+	 * NULL não alteram o valor do atributo.
+	 * @param cursor Cursor do qual o valor será lido.
+	 * @param columnIndex Índice da coluna.
+	 * @param entity Entidade que receberá o valor.
+	 * @param field Atributo acessível que receberá o valor.
+	 */
+	public void readInto(DbCursor cursor, int columnIndex, Object entity, Field field) throws IllegalAccessException;
+
+	/**
+	 * Associa o valor informado ao parâmetro da instrução, associando NULL quando o valor for nulo.
+	 * @param statement Instrução que receberá o valor.
+	 * @param index Posição do parâmetro na instrução.
+	 * @param value Valor a ser associado.
+	 */
+	public void bind(DbStatement statement, int index, Object value);
+
+	/**
+	 * Associa o valor do atributo da entidade diretamente ao parâmetro da instrução.
+	 * @param statement Instrução que receberá o valor.
+	 * @param index Posição do parâmetro na instrução.
+	 * @param entity Entidade da qual será obtido o valor.
+	 * @param field Atributo acessível do qual será obtido o valor.
+	 */
+	public void bindFrom(DbStatement statement, int index, Object entity, Field field) throws IllegalAccessException;
+}
@@ -0,0 +1,73 @@
+package com.nanoorm.types;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class TypeCodecRegistry
+ * Registro dos codecs utilizados para converter os atributos das entidades.
+ * Cada Configuration possui o seu próprio registro, inicializado com os codecs
+ * nativos do framework, no qual podem ser registrados codecs para outros tipos.
+ */
+public class TypeCodecRegistry {
+
+	private static final TypeCodecRegistry defaultRegistry = new TypeCodecRegistry();
+
+	private Map<Class<?>, TypeCodec> codecs = new HashMap<Class<?>, TypeCodec>();
+
+	/**
+	 * Constrói um registro com os codecs nativos do framework.
+	 */
+	public TypeCodecRegistry() {
+		register(int.class, new TypeCodecs.IntegerCodec(true));
+		register(Integer.class, new TypeCodecs.IntegerCodec(false));
+		register(long.class, new TypeCodecs.LongCodec(true));
+		register(Long.class, new TypeCodecs.LongCodec(false));
+		register(short.class, new TypeCodecs.ShortCodec(true));
+		register(Short.class, new TypeCodecs.ShortCodec(false));
+		register(double.class, new TypeCodecs.DoubleCodec(true));
+		register(Double.class, new TypeCodecs.DoubleCodec(false));
+		register(float.class, new TypeCodecs.FloatCodec(true));
+		register(Float.class, new TypeCodecs.FloatCodec(false));
+		register(boolean.class, new TypeCodecs.BooleanCodec(true));
+		register(Boolean.class, new TypeCodecs.BooleanCodec(false));
+		register(String.class, new TypeCodecs.StringCodec());
+		register(byte[].class, new TypeCodecs.BlobCodec());
+		register(java.util.Date.class, new TypeCodecs.DateCodec());
+		register(java.sql.Date.class, new TypeCodecs.SqlDateCodec());
+		register(java.util.Calendar.class, new TypeCodecs.CalendarCodec());
+	}
+
+	/**
+	 * Obtém o registro com os codecs nativos do framework, utilizado quando
+	 * nenhum registro é informado.
+	 */
+	public static TypeCodecRegistry getDefault() {
+		return defaultRegistry;
+	}
+
+	/**
+	 * Registra o codec informado para o tipo, substituindo o codec registrado anteriormente.
+	 * @param type Tipo Java tratado pelo codec.
+	 * @param codec Codec a ser utilizado para o tipo.
+	 */
+	public TypeCodecRegistry register(Class<?> type, TypeCodec codec) {
+		codecs.put(type, codec);
+		return this;
+	}
+
+	/**
+	 * Obtém o codec do tipo informado, procurando também pelas superclasses do tipo.
+	 * @param type Tipo Java do qual se deseja obter o codec.
+	 * @throws IllegalArgumentException Quando não existe codec registrado para o tipo.
+	 */
+	public TypeCodec getCodec(Class<?> type) {
+		for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+			TypeCodec codec = codecs.get(current);
+			if (codec != null)
+				return codec;
+		}
+		throw new IllegalArgumentException("O tipo " + type + " não é suportado por este banco de dados.");
+	}
+
+}
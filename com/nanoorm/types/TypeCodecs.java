@@ -0,0 +1,459 @@
+package com.nanoorm.types;
+
+import java.lang.reflect.Field;
+import java.util.Calendar;
+import java.util.Date;
+
+import com.nanoorm.DbCursor;
+import com.nanoorm.DbStatement;
+
+/**
+ * Class TypeCodecs
+ * Codecs dos tipos suportados nativamente pelo framework. Os codecs de tipos
+ * numéricos e booleanos, quando criados para o tipo primitivo, leem e gravam os
+ * atributos através dos métodos primitivos de Field, sem criar objetos.
+ * Os valores são lidos pelos métodos primitivos do cursor antes de verificar se a
+ * coluna é NULL, o que permite ao cursor responder isNull sem uma nova leitura.
+ */
+public final class TypeCodecs {
+
+	private TypeCodecs() { }
+
+	/**
+	 * Codec para int e Integer.
+	 */
+	public static class IntegerCodec extends AbstractTypeCodec {
+
+		private boolean primitive;
+
+		public IntegerCodec(boolean primitive) {
+			super(primitive ? int.class : Integer.class, StorageClass.INTEGER);
+			this.primitive = primitive;
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return Long.valueOf(((Number) value).longValue());
+		}
+
+		@Override
+		public Object convert(Object value) {
+			if (value instanceof Number)
+				return Integer.valueOf(((Number) value).intValue());
+			return value == null ? null : Integer.valueOf(value.toString());
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			int value = cursor.getInt(columnIndex);
+			return cursor.isNull(columnIndex) ? null : Integer.valueOf(value);
+		}
+
+		@Override
+		public void readInto(DbCursor cursor, int columnIndex, Object entity, Field field) throws IllegalAccessException {
+			if (!primitive)
+				super.readInto(cursor, columnIndex, entity, field);
+			else {
+				int value = cursor.getInt(columnIndex);
+				if (!cursor.isNull(columnIndex))
+					field.setInt(entity, value);
+			}
+		}
+
+		@Override
+		public void bindFrom(DbStatement statement, int index, Object entity, Field field) throws IllegalAccessException {
+			if (primitive)
+				statement.bindLong(index, field.getInt(entity));
+			else
+				super.bindFrom(statement, index, entity, field);
+		}
+	}
+
+	/**
+	 * Codec para long e Long.
+	 */
+	public static class LongCodec extends AbstractTypeCodec {
+
+		private boolean primitive;
+
+		public LongCodec(boolean primitive) {
+			super(primitive ? long.class : Long.class, StorageClass.INTEGER);
+			this.primitive = primitive;
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return value;
+		}
+
+		@Override
+		public Object convert(Object value) {
+			if (value instanceof Number)
+				return Long.valueOf(((Number) value).longValue());
+			return value == null ? null : Long.valueOf(value.toString());
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			long value = cursor.getLong(columnIndex);
+			return cursor.isNull(columnIndex) ? null : Long.valueOf(value);
+		}
+
+		@Override
+		public void readInto(DbCursor cursor, int columnIndex, Object entity, Field field) throws IllegalAccessException {
+			if (!primitive)
+				super.readInto(cursor, columnIndex, entity, field);
+			else {
+				long value = cursor.getLong(columnIndex);
+				if (!cursor.isNull(columnIndex))
+					field.setLong(entity, value);
+			}
+		}
+
+		@Override
+		public void bindFrom(DbStatement statement, int index, Object entity, Field field) throws IllegalAccessException {
+			if (primitive)
+				statement.bindLong(index, field.getLong(entity));
+			else
+				super.bindFrom(statement, index, entity, field);
+		}
+	}
+
+	/**
+	 * Codec para short e Short.
+	 */
+	public static class ShortCodec extends AbstractTypeCodec {
+
+		private boolean primitive;
+
+		public ShortCodec(boolean primitive) {
+			super(primitive ? short.class : Short.class, StorageClass.INTEGER);
+			this.primitive = primitive;
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return Long.valueOf(((Number) value).longValue());
+		}
+
+		@Override
+		public Object convert(Object value) {
+			if (value instanceof Number)
+				return Short.valueOf(((Number) value).shortValue());
+			return value == null ? null : Short.valueOf(value.toString());
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			int value = cursor.getInt(columnIndex);
+			return cursor.isNull(columnIndex) ? null : Short.valueOf((short) value);
+		}
+
+		@Override
+		public void readInto(DbCursor cursor, int columnIndex, Object entity, Field field) throws IllegalAccessException {
+			if (!primitive)
+				super.readInto(cursor, columnIndex, entity, field);
+			else {
+				int value = cursor.getInt(columnIndex);
+				if (!cursor.isNull(columnIndex))
+					field.setShort(entity, (short) value);
+			}
+		}
+
+		@Override
+		public void bindFrom(DbStatement statement, int index, Object entity, Field field) throws IllegalAccessException {
+			if (primitive)
+				statement.bindLong(index, field.getShort(entity));
+			else
+				super.bindFrom(statement, index, entity, field);
+		}
+	}
+
+	/**
+	 * Codec para double e Double.
+	 */
+	public static class DoubleCodec extends AbstractTypeCodec {
+
+		private boolean primitive;
+
+		public DoubleCodec(boolean primitive) {
+			super(primitive ? double.class : Double.class, StorageClass.REAL);
+			this.primitive = primitive;
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return value;
+		}
+
+		@Override
+		public Object convert(Object value) {
+			if (value instanceof Number)
+				return Double.valueOf(((Number) value).doubleValue());
+			return value == null ? null : Double.valueOf(value.toString());
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			double value = cursor.getDouble(columnIndex);
+			return cursor.isNull(columnIndex) ? null : Double.valueOf(value);
+		}
+
+		@Override
+		public void readInto(DbCursor cursor, int columnIndex, Object entity, Field field) throws IllegalAccessException {
+			if (!primitive)
+				super.readInto(cursor, columnIndex, entity, field);
+			else {
+				double value = cursor.getDouble(columnIndex);
+				if (!cursor.isNull(columnIndex))
+					field.setDouble(entity, value);
+			}
+		}
+
+		@Override
+		public void bindFrom(DbStatement statement, int index, Object entity, Field field) throws IllegalAccessException {
+			if (primitive)
+				statement.bindDouble(index, field.getDouble(entity));
+			else
+				super.bindFrom(statement, index, entity, field);
+		}
+	}
+
+	/**
+	 * Codec para float e Float.
+	 */
+	public static class FloatCodec extends AbstractTypeCodec {
+
+		private boolean primitive;
+
+		public FloatCodec(boolean primitive) {
+			super(primitive ? float.class : Float.class, StorageClass.REAL);
+			this.primitive = primitive;
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return Double.valueOf(((Number) value).doubleValue());
+		}
+
+		@Override
+		public Object convert(Object value) {
+			if (value instanceof Number)
+				return Float.valueOf(((Number) value).floatValue());
+			return value == null ? null : Float.valueOf(value.toString());
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			double value = cursor.getDouble(columnIndex);
+			return cursor.isNull(columnIndex) ? null : Float.valueOf((float) value);
+		}
+
+		@Override
+		public void readInto(DbCursor cursor, int columnIndex, Object entity, Field field) throws IllegalAccessException {
+			if (!primitive)
+				super.readInto(cursor, columnIndex, entity, field);
+			else {
+				double value = cursor.getDouble(columnIndex);
+				if (!cursor.isNull(columnIndex))
+					field.setFloat(entity, (float) value);
+			}
+		}
+
+		@Override
+		public void bindFrom(DbStatement statement, int index, Object entity, Field field) throws IllegalAccessException {
+			if (primitive)
+				statement.bindDouble(index, field.getFloat(entity));
+			else
+				super.bindFrom(statement, index, entity, field);
+		}
+	}
+
+	/**
+	 * Codec para boolean e Boolean, armazenados como 1 e 0.
+	 */
+	public static class BooleanCodec extends AbstractTypeCodec {
+
+		private boolean primitive;
+
+		public BooleanCodec(boolean primitive) {
+			super(primitive ? boolean.class : Boolean.class, StorageClass.INTEGER);
+			this.primitive = primitive;
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return Long.valueOf(((Boolean) value) ? 1 : 0);
+		}
+
+		@Override
+		public Object convert(Object value) {
+			if (value instanceof Number)
+				return Boolean.valueOf(((Number) value).longValue() != 0);
+			return value == null ? null : Boolean.valueOf("1".equals(value.toString()) || Boolean.parseBoolean(value.toString()));
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			long value = cursor.getLong(columnIndex);
+			return cursor.isNull(columnIndex) ? null : Boolean.valueOf(value != 0);
+		}
+
+		@Override
+		public void readInto(DbCursor cursor, int columnIndex, Object entity, Field field) throws IllegalAccessException {
+			if (!primitive)
+				super.readInto(cursor, columnIndex, entity, field);
+			else {
+				long value = cursor.getLong(columnIndex);
+				if (!cursor.isNull(columnIndex))
+					field.setBoolean(entity, value != 0);
+			}
+		}
+
+		@Override
+		public void bindFrom(DbStatement statement, int index, Object entity, Field field) throws IllegalAccessException {
+			if (primitive)
+				statement.bindLong(index, field.getBoolean(entity) ? 1 : 0);
+			else
+				super.bindFrom(statement, index, entity, field);
+		}
+	}
+
+	/**
+	 * Codec para String.
+	 */
+	public static class StringCodec extends AbstractTypeCodec {
+
+		public StringCodec() {
+			super(String.class, StorageClass.TEXT);
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return value;
+		}
+
+		@Override
+		public Object convert(Object value) {
+			return value == null ? null : value.toString();
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			return cursor.getString(columnIndex);
+		}
+	}
+
+	/**
+	 * Codec para byte[].
+	 */
+	public static class BlobCodec extends AbstractTypeCodec {
+
+		public BlobCodec() {
+			super(byte[].class, StorageClass.BLOB);
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return value;
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			return cursor.getBlob(columnIndex);
+		}
+	}
+
+	/**
+	 * Codec para java.util.Date, armazenado em milissegundos.
+	 */
+	public static class DateCodec extends AbstractTypeCodec {
+
+		public DateCodec() {
+			super(Date.class, StorageClass.INTEGER);
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return Long.valueOf(((Date) value).getTime());
+		}
+
+		@Override
+		public Object convert(Object value) {
+			if (value instanceof Number)
+				return new Date(((Number) value).longValue());
+			return super.convert(value);
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			long value = cursor.getLong(columnIndex);
+			return cursor.isNull(columnIndex) ? null : new Date(value);
+		}
+	}
+
+	/**
+	 * Codec para java.sql.Date, armazenado em milissegundos.
+	 */
+	public static class SqlDateCodec extends AbstractTypeCodec {
+
+		public SqlDateCodec() {
+			super(java.sql.Date.class, StorageClass.INTEGER);
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return Long.valueOf(((Date) value).getTime());
+		}
+
+		@Override
+		public Object convert(Object value) {
+			if (value instanceof Date)
+				return new java.sql.Date(((Date) value).getTime());
+			if (value instanceof Number)
+				return new java.sql.Date(((Number) value).longValue());
+			return super.convert(value);
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			long value = cursor.getLong(columnIndex);
+			return cursor.isNull(columnIndex) ? null : new java.sql.Date(value);
+		}
+	}
+
+	/**
+	 * Codec para Calendar, armazenado em milissegundos.
+	 */
+	public static class CalendarCodec extends AbstractTypeCodec {
+
+		public CalendarCodec() {
+			super(Calendar.class, StorageClass.INTEGER);
+		}
+
+		@Override
+		public Object toSql(Object value) {
+			return Long.valueOf(((Calendar) value).getTimeInMillis());
+		}
+
+		@Override
+		public Object convert(Object value) {
+			if (value instanceof Number) {
+				Calendar calendar = Calendar.getInstance();
+				calendar.setTimeInMillis(((Number) value).longValue());
+				return calendar;
+			}
+			return super.convert(value);
+		}
+
+		@Override
+		public Object read(DbCursor cursor, int columnIndex) {
+			long value = cursor.getLong(columnIndex);
+			if (cursor.isNull(columnIndex))
+				return null;
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis(value);
+			return calendar;
+		}
+	}
+}